@@ -0,0 +1,83 @@
+package org.gluu.oxtrust.benchmark;
+
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_ID;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.BenchmarkServices;
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.service.antlr.scimFilter.ScimFilterParserService;
+import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterUtil;
+import org.gluu.search.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the translation of SCIM filters into database filters ({@link ScimFilterParserService#createFilter(String,
+ * Filter, Class)}) and the preprocessing step that precedes it ({@link FilterUtil#preprocess(String, Class)}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    private static final Map<String, String> FILTERS = new HashMap<>();
+
+    static {
+        FILTERS.put("simple", "userName eq \"user1\"");
+        FILTERS.put("compound", "userName sw \"user\" and (name.familyName co \"Fam\" or displayName pr)" +
+                " and not (active eq false)");
+        FILTERS.put("multivalued", "emails[type eq \"work\" and value ew \"example.com\"] or phoneNumbers.value co \"555\"");
+        FILTERS.put("extended", USER_EXT_SCHEMA_ID + ":" + Fixtures.extendedAttributeName(0) + " eq \"value-0-1\" and " +
+                USER_EXT_SCHEMA_ID + ":" + Fixtures.extendedAttributeName(12) + " gt 10");
+        FILTERS.put("wideOr", wideOr(25));
+    }
+
+    @Param({"simple", "compound", "multivalued", "extended", "wideOr"})
+    private String filterKind;
+
+    private ScimFilterParserService filterService;
+    private String filter;
+
+    @Setup
+    public void setup() {
+        filterService = new BenchmarkServices().getFilterService();
+        filter = FILTERS.get(filterKind);
+    }
+
+    @Benchmark
+    public Filter createFilter() throws Exception {
+        return filterService.createFilter(filter, null, UserResource.class);
+    }
+
+    @Benchmark
+    public String preprocess() throws Exception {
+        return FilterUtil.preprocess(filter, UserResource.class);
+    }
+
+    private static String wideOr(int terms) {
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            sb.append(i == 0 ? "" : " or ").append("userName eq \"user").append(i).append("\"");
+        }
+        return sb.toString();
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.gluu.oxtrust.benchmark;
+
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_ID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.BenchmarkServices;
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.service.scim2.Scim2PatchService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Scim2PatchService#applyPatchOperation(BaseScimResource, PatchOperation)} with plain paths and with
+ * value selection filters, over users and over a group with {@link Fixtures#LARGE_GROUP_MEMBERS} members.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchBenchmark {
+
+    private Scim2PatchService patchService;
+    private UserResource user;
+    private GroupResource group;
+
+    private PatchOperation replaceDisplayName;
+    private PatchOperation replaceExtended;
+    private PatchOperation replaceWithValueFilter;
+    private PatchOperation removeWithValueFilter;
+    private PatchOperation addMembers;
+    private PatchOperation removeMemberWithValueFilter;
+
+    @Setup
+    public void setup() {
+
+        patchService = new BenchmarkServices().getPatchService();
+        user = Fixtures.user(1);
+        group = Fixtures.group(1, Fixtures.LARGE_GROUP_MEMBERS);
+
+        replaceDisplayName = operation("replace", "displayName", "Jane Doe");
+
+        Map<String, Object> extended = new HashMap<>();
+        extended.put(Fixtures.extendedAttributeName(1), "changed");
+        extended.put(Fixtures.extendedAttributeName(13), 42);
+        replaceExtended = operation("replace", USER_EXT_SCHEMA_ID, extended);
+
+        replaceWithValueFilter = operation("replace", "emails[type eq \"home\"].value", "someone@else.com");
+        removeWithValueFilter = operation("remove", "phoneNumbers[value ew \"0001\"]", null);
+
+        List<Map<String, Object>> newMembers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            newMembers.add(Collections.singletonMap("value", Fixtures.userInum(Fixtures.LARGE_GROUP_MEMBERS + i)));
+        }
+        addMembers = operation("add", "members", newMembers);
+        removeMemberWithValueFilter = operation("remove", "members[value eq \"" + Fixtures.userInum(5000) + "\"]", null);
+
+    }
+
+    private static PatchOperation operation(String op, String path, Object value) {
+
+        PatchOperation operation = new PatchOperation();
+        operation.setOperation(op);
+        operation.setPath(path);
+        operation.setValue(value);
+        return operation;
+
+    }
+
+    @Benchmark
+    public BaseScimResource userReplaceSimple() throws Exception {
+        return patchService.applyPatchOperation(user, replaceDisplayName);
+    }
+
+    @Benchmark
+    public BaseScimResource userReplaceExtended() throws Exception {
+        return patchService.applyPatchOperation(user, replaceExtended);
+    }
+
+    @Benchmark
+    public BaseScimResource userReplaceValueFilter() throws Exception {
+        return patchService.applyPatchOperation(user, replaceWithValueFilter);
+    }
+
+    @Benchmark
+    public BaseScimResource userRemoveValueFilter() throws Exception {
+        return patchService.applyPatchOperation(user, removeWithValueFilter);
+    }
+
+    @Benchmark
+    public BaseScimResource largeGroupAddMembers() throws Exception {
+        return patchService.applyPatchOperation(group, addMembers);
+    }
+
+    @Benchmark
+    public BaseScimResource largeGroupRemoveMemberValueFilter() throws Exception {
+        return patchService.applyPatchOperation(group, removeMemberWithValueFilter);
+    }
+
+}
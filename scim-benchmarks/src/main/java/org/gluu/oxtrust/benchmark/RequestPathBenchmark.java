@@ -0,0 +1,143 @@
+package org.gluu.oxtrust.benchmark;
+
+import static org.gluu.oxtrust.model.scim2.Constants.BULK_REQUEST_SCHEMA_ID;
+import static org.gluu.oxtrust.model.scim2.Constants.PATCH_REQUEST_SCHEMA_ID;
+import static org.gluu.oxtrust.model.scim2.Constants.SEARCH_REQUEST_SCHEMA_ID;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.benchmark.harness.InMemoryDirectory;
+import org.gluu.oxtrust.benchmark.harness.InMemoryScimServer;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end measurement of whole request paths (HTTP request parsing, filter translation, persistence, response
+ * serialization) against an {@link InMemoryScimServer}. Reports throughput and latency distribution (use {@code -t} to
+ * run with several concurrent threads). No benchmark adds or removes entries (the group patch adds a member and removes
+ * it in the same request, bulk requests only modify users), so the size of the data set stays the same across runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestPathBenchmark {
+
+    private static final int BULK_OPERATIONS = 10;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"100"})
+    private int groups;
+
+    @Param({"1000"})
+    private int membersPerGroup;
+
+    private InMemoryScimServer server;
+
+    private String searchUri;
+    private String searchBody;
+    private String groupUri;
+    private String groupPatchBody;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Setup
+    public void setup() {
+
+        InMemoryDirectory directory = new InMemoryDirectory();
+        directory.seed(users, groups, membersPerGroup);
+        server = new InMemoryScimServer(directory);
+
+        String filter = "userName sw \"user1\" and displayName co \"Family\"";
+        searchUri = String.format("%s?filter=%s&sortBy=userName&count=%d", InMemoryScimServer.USERS_PATH, encode(filter), PAGE_SIZE);
+        searchBody = String.format("{\"schemas\":[\"%s\"],\"filter\":\"%s\",\"sortBy\":\"displayName\",\"count\":%d}",
+                SEARCH_REQUEST_SCHEMA_ID, "emails[type eq \\\"work\\\"] or nickName pr", PAGE_SIZE);
+
+        //Adds a user to the first group and then removes it by means of a value selection filter
+        String inum = Fixtures.userInum(Math.min(membersPerGroup, users) % users);
+        groupUri = InMemoryScimServer.GROUPS_PATH + "/" + Fixtures.groupInum(0);
+        groupPatchBody = String.format("{\"schemas\":[\"%s\"],\"Operations\":["
+                + "{\"op\":\"add\",\"path\":\"members\",\"value\":[{\"value\":\"%s\"}]},"
+                + "{\"op\":\"remove\",\"path\":\"members[value eq \\\"%s\\\"]\"}]}", PATCH_REQUEST_SCHEMA_ID, inum, inum);
+
+        //Fail fast if the harness is not able to serve requests properly
+        check(searchUsers());
+        check(searchResources());
+        check(bulkPatch());
+        check(groupPatch());
+
+    }
+
+    @Benchmark
+    public MockHttpResponse searchUsers() {
+        return server.execute("GET", searchUri, null);
+    }
+
+    @Benchmark
+    public MockHttpResponse searchResources() {
+        return server.execute("POST", InMemoryScimServer.SEARCH_PATH, searchBody);
+    }
+
+    @Benchmark
+    public MockHttpResponse bulkPatch() {
+
+        long n = counter.getAndIncrement();
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"schemas\":[\"").append(BULK_REQUEST_SCHEMA_ID).append("\"],\"Operations\":[");
+
+        for (int k = 0; k < BULK_OPERATIONS; k++) {
+            String inum = Fixtures.userInum((int) ((n * BULK_OPERATIONS + k) % users));
+            sb.append(k == 0 ? "" : ",")
+                .append("{\"method\":\"PATCH\",\"path\":\"/Users/").append(inum).append("\",\"data\":")
+                .append("{\"schemas\":[\"").append(PATCH_REQUEST_SCHEMA_ID).append("\"],\"Operations\":[")
+                .append("{\"op\":\"replace\",\"path\":\"nickName\",\"value\":\"nick").append(n).append("\"}]}}");
+        }
+        sb.append("]}");
+        return server.execute("POST", InMemoryScimServer.BULK_PATH, sb.toString());
+
+    }
+
+    @Benchmark
+    public MockHttpResponse groupPatch() {
+        return server.execute("PATCH", groupUri, groupPatchBody);
+    }
+
+    private static void check(MockHttpResponse response) {
+
+        if (response.getStatus() / 100 != 2) {
+            throw new IllegalStateException(String.format("Unexpected response (%d): %s", response.getStatus(),
+                    response.getContentAsString()));
+        }
+
+    }
+
+    private static String encode(String str) {
+
+        try {
+            return URLEncoder.encode(str, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+}
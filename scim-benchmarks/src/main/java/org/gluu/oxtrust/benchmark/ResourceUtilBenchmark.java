@@ -0,0 +1,87 @@
+package org.gluu.oxtrust.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.extensions.Extension;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.user.Name;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the data transference and copying utilities of {@link ScimResourceUtil} used by PUT and PATCH requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceUtilBenchmark {
+
+    private List<Extension> userExtensions;
+    private UserResource user;
+    private UserResource fullReplacement;
+    private UserResource partialReplacement;
+    private GroupResource group;
+    private GroupResource groupReplacement;
+
+    @Setup
+    public void setup() {
+
+        userExtensions = Collections.singletonList(Fixtures.userExtension());
+        user = Fixtures.user(1);
+        fullReplacement = Fixtures.user(2);
+        fullReplacement.setId(user.getId());
+
+        partialReplacement = new UserResource();
+        Name name = new Name();
+        name.setGivenName("Jane");
+        partialReplacement.setName(name);
+        partialReplacement.setDisplayName("Jane Doe");
+
+        group = Fixtures.group(1, Fixtures.LARGE_GROUP_MEMBERS);
+        groupReplacement = Fixtures.group(1, Fixtures.LARGE_GROUP_MEMBERS / 2);
+
+    }
+
+    @Benchmark
+    public BaseScimResource transferReplaceUserFull() throws Exception {
+        return ScimResourceUtil.transferToResourceReplace(fullReplacement, user, userExtensions);
+    }
+
+    @Benchmark
+    public BaseScimResource transferReplaceUserPartial() throws Exception {
+        return ScimResourceUtil.transferToResourceReplace(partialReplacement, user, userExtensions);
+    }
+
+    @Benchmark
+    public BaseScimResource transferReplaceLargeGroup() throws Exception {
+        return ScimResourceUtil.transferToResourceReplace(groupReplacement, group, Collections.emptyList());
+    }
+
+    @Benchmark
+    public BaseScimResource cloneUser() {
+        return ScimResourceUtil.clone(user);
+    }
+
+    @Benchmark
+    public BaseScimResource cloneLargeGroup() {
+        return ScimResourceUtil.clone(group);
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.gluu.oxtrust.benchmark;
+
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_ID;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.BenchmarkServices;
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.service.scim2.serialization.ScimResourceSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ScimResourceSerializer#serialize(org.gluu.oxtrust.model.scim2.BaseScimResource, String, String)}
+ * under the projections clients commonly use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /**
+     * none: no attributes/excludedAttributes; include: a handful of core and extended attributes; exclude: drop
+     * the heaviest multi-valued attributes
+     */
+    @Param({"none", "include", "exclude"})
+    private String projection;
+
+    private ScimResourceSerializer serializer;
+    private UserResource user;
+    private GroupResource group;
+
+    private String attributes;
+    private String excludedAttributes;
+
+    @Setup
+    public void setup() {
+
+        serializer = new BenchmarkServices().getResourceSerializer();
+        user = Fixtures.user(1);
+        group = Fixtures.group(1, Fixtures.LARGE_GROUP_MEMBERS);
+
+        switch (projection) {
+            case "include":
+                attributes = "userName, name.givenName, emails, " + USER_EXT_SCHEMA_ID + ":" + Fixtures.extendedAttributeName(3);
+                break;
+            case "exclude":
+                excludedAttributes = "addresses, phoneNumbers, emails, roles";
+                break;
+            default:
+                //no projection
+        }
+
+    }
+
+    @Benchmark
+    public String serializeUser() throws Exception {
+        return serializer.serialize(user, attributes, excludedAttributes);
+    }
+
+    @Benchmark
+    public String serializeLargeGroup() throws Exception {
+        return serializer.serialize(group, "include".equals(projection) ? "displayName, members.value" : null,
+                "exclude".equals(projection) ? "members.display" : null);
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.gluu.oxtrust.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.BenchmarkServices;
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim.ScimCustomPerson;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.service.scim2.Scim2UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link Scim2UserService#transferAttributesToUserResource(ScimCustomPerson, UserResource, String)}, the
+ * mapping applied to every database entry that ends up in a response (retrievals and searches).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserTransferBenchmark {
+
+    @Param({"0", "5"})
+    private int groups;
+
+    private Scim2UserService userService;
+    private ScimCustomPerson person;
+
+    @Setup
+    public void setup() {
+        userService = new BenchmarkServices().getUserService();
+        person = Fixtures.person(1, groups);
+    }
+
+    @Benchmark
+    public UserResource transferAttributesToUserResource() {
+        UserResource user = new UserResource();
+        userService.transferAttributesToUserResource(person, user, Fixtures.USERS_ENDPOINT);
+        return user;
+    }
+
+}
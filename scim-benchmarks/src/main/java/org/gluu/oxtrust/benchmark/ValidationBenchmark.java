@@ -0,0 +1,67 @@
+package org.gluu.oxtrust.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.scim2.extensions.Extension;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.model.scim2.util.ResourceValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the full chain of {@link ResourceValidator} checks applied to resources upon creation and update (see
+ * executeValidation in BaseScimWebService).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private List<Extension> userExtensions;
+    private UserResource user;
+    private GroupResource group;
+
+    @Setup
+    public void setup() {
+        userExtensions = Collections.singletonList(Fixtures.userExtension());
+        user = Fixtures.user(1);
+        group = Fixtures.group(1, Fixtures.LARGE_GROUP_MEMBERS);
+    }
+
+    @Benchmark
+    public ResourceValidator validateUser() throws Exception {
+        return validate(new ResourceValidator(user, userExtensions));
+    }
+
+    @Benchmark
+    public ResourceValidator validateLargeGroup() throws Exception {
+        return validate(new ResourceValidator(group, Collections.emptyList()));
+    }
+
+    private static ResourceValidator validate(ResourceValidator validator) throws Exception {
+
+        validator.validateRequiredAttributes(false);
+        validator.validateSchemasAttribute();
+        validator.validateValidableAttributes();
+        validator.validateCanonicalizedAttributes();
+        validator.validateExtendedAttributes();
+        return validator;
+
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal replacement of the CDI container for benchmarking purposes: it assigns values to the fields annotated with
+ * {@code @Inject} of a bean by means of reflection. Only the fields needed by the code paths being measured have to be
+ * set, the rest can be left unassigned.
+ */
+public final class BeanWiring {
+
+    private BeanWiring() { }
+
+    /**
+     * Assigns a value to a (possibly private and/or inherited) field of the bean passed
+     * @param bean Bean to modify
+     * @param fieldName Name of the field
+     * @param value Value to assign
+     * @param <T> Type of the bean
+     * @return The same bean passed
+     */
+    public static <T> T set(T bean, String fieldName, Object value) {
+
+        Class<?> cls = bean.getClass();
+        while (cls != null) {
+            try {
+                Field f = cls.getDeclaredField(fieldName);
+                f.setAccessible(true);
+                f.set(bean, value);
+                return bean;
+            } catch (NoSuchFieldException e) {
+                cls = cls.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException(String.format("No field '%s' found in %s", fieldName, bean.getClass().getName()));
+
+    }
+
+    /**
+     * Assigns an slf4j logger to the field named {@code log} of the bean passed
+     * @param bean Bean to modify
+     * @param <T> Type of the bean
+     * @return The same bean passed
+     */
+    public static <T> T withLogger(T bean) {
+        return set(bean, "log", LoggerFactory.getLogger(bean.getClass()));
+    }
+
+    /**
+     * Invokes the methods annotated with {@code @PostConstruct} of the bean passed (those of superclasses first). Call
+     * it once all fields the initialization code relies upon have been set
+     * @param bean Bean to initialize
+     * @param <T> Type of the bean
+     * @return The same bean passed
+     */
+    public static <T> T postConstruct(T bean) {
+
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> cls = bean.getClass(); cls != null; cls = cls.getSuperclass()) {
+            hierarchy.add(cls);
+        }
+        Collections.reverse(hierarchy);
+
+        for (Class<?> cls : hierarchy) {
+            for (Method m : cls.getDeclaredMethods()) {
+                if (m.isAnnotationPresent(PostConstruct.class)) {
+                    try {
+                        m.setAccessible(true);
+                        m.invoke(bean);
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+        return bean;
+
+    }
+
+}
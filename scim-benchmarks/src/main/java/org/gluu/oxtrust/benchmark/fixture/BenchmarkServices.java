@@ -0,0 +1,108 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+import org.gluu.oxtrust.service.IGroupService;
+import org.gluu.oxtrust.service.antlr.scimFilter.ScimFilterParserService;
+import org.gluu.oxtrust.service.scim2.ExtensionService;
+import org.gluu.oxtrust.service.scim2.Scim2PatchService;
+import org.gluu.oxtrust.service.scim2.Scim2UserService;
+import org.gluu.oxtrust.service.scim2.UserPersistenceHelper;
+import org.gluu.oxtrust.service.scim2.cache.EntityCache;
+import org.gluu.oxtrust.service.scim2.cache.RequestEntityMap;
+import org.gluu.oxtrust.service.scim2.serialization.ScimResourceSerializer;
+
+/**
+ * Holds an instance of every SCIM bean exercised by benchmarks. Beans are wired by hand with only the collaborators the
+ * measured code paths need; no database or CDI container is involved.
+ */
+public class BenchmarkServices {
+
+    private final ExtensionService extService;
+    private final ScimResourceSerializer resourceSerializer;
+    private final ScimFilterParserService filterService;
+    private final Scim2PatchService patchService;
+    private final Scim2UserService userService;
+
+    public BenchmarkServices() {
+
+        extService = new FixtureExtensionService();
+
+        resourceSerializer = BeanWiring.withLogger(new ScimResourceSerializer());
+        BeanWiring.set(resourceSerializer, "extService", extService);
+
+        filterService = BeanWiring.withLogger(new ScimFilterParserService());
+        BeanWiring.set(filterService, "attrService", new FixtureAttributeService());
+        BeanWiring.set(filterService, "extService", extService);
+        BeanWiring.set(filterService, "ldapBackend", true);
+        BeanWiring.set(filterService, "optimizeFilters",
+                Boolean.parseBoolean(System.getProperty("scim.filter.optimize", "false")));
+
+        patchService = BeanWiring.withLogger(new Scim2PatchService());
+        BeanWiring.set(patchService, "filterService", filterService);
+        BeanWiring.set(patchService, "extService", extService);
+
+        //The entity cache is left disabled so that lookups always reach the group service
+        UserPersistenceHelper persistenceHelper = BeanWiring.withLogger(new UserPersistenceHelper());
+        BeanWiring.set(persistenceHelper, "groupService", groupService());
+        BeanWiring.set(persistenceHelper, "entityCache", new EntityCache());
+        //Every transfer stands for a different request, so entries are not remembered between lookups
+        BeanWiring.set(persistenceHelper, "requestEntityMap", new RequestEntityMap() {
+            @Override
+            public <T> T get(String dn, Class<T> cls, Function<String, T> loader) {
+                return loader.apply(dn);
+            }
+        });
+
+        userService = BeanWiring.withLogger(new Scim2UserService());
+        BeanWiring.set(userService, "extService", extService);
+        BeanWiring.set(userService, "scimFilterParserService", filterService);
+        BeanWiring.set(userService, "groupService", groupService());
+        BeanWiring.set(userService, "userPersistenceHelper", persistenceHelper);
+        BeanWiring.set(userService, "ldapBackend", true);
+        BeanWiring.set(userService, "groupEndpointUrl", Fixtures.GROUPS_ENDPOINT);
+
+    }
+
+    /**
+     * Returns an IGroupService whose only working method is getGroupByDn (it resolves the DNs built by
+     * {@link Fixtures#groupDn(int)})
+     */
+    private static IGroupService groupService() {
+
+        return (IGroupService) Proxy.newProxyInstance(IGroupService.class.getClassLoader(),
+                new Class<?>[]{ IGroupService.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("getGroupByDn")) {
+                        String dn = args[0].toString();
+                        //dn is in the form inum=<inum>,ou=groups,o=gluu
+                        String inum = dn.substring(dn.indexOf('=') + 1, dn.indexOf(','));
+                        int i = Integer.parseInt(inum.substring(inum.lastIndexOf('-') + 1));
+                        return Fixtures.gluuGroup(i);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+    }
+
+    public ExtensionService getExtService() {
+        return extService;
+    }
+
+    public ScimResourceSerializer getResourceSerializer() {
+        return resourceSerializer;
+    }
+
+    public ScimFilterParserService getFilterService() {
+        return filterService;
+    }
+
+    public Scim2PatchService getPatchService() {
+        return patchService;
+    }
+
+    public Scim2UserService getUserService() {
+        return userService;
+    }
+
+}
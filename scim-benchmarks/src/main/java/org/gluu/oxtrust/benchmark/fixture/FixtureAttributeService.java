@@ -0,0 +1,21 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import java.util.List;
+
+import org.gluu.model.GluuAttribute;
+import org.gluu.oxtrust.service.AttributeService;
+
+/**
+ * An {@link AttributeService} that serves the attributes built by {@link Fixtures#attributes()} instead of reading them
+ * from the database.
+ */
+public class FixtureAttributeService extends AttributeService {
+
+    private final List<GluuAttribute> attributes = Fixtures.attributes();
+
+    @Override
+    public List<GluuAttribute> getAllAttributes() {
+        return attributes;
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.extensions.Extension;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.service.scim2.ExtensionService;
+
+/**
+ * An {@link ExtensionService} that serves the extension built by {@link Fixtures#userExtension()} instead of computing
+ * it from the attributes stored in the database.
+ */
+public class FixtureExtensionService extends ExtensionService {
+
+    private final List<Extension> userExtensions = Collections.singletonList(Fixtures.userExtension());
+
+    public FixtureExtensionService() {
+        BeanWiring.withLogger(this);
+    }
+
+    @Override
+    public List<Extension> getResourceExtensions(Class<? extends BaseScimResource> cls) {
+        return cls.equals(UserResource.class) ? userExtensions : Collections.emptyList();
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.gluu.oxtrust.service.scim2.IndexMetadataService;
+
+/**
+ * An {@link IndexMetadataService} that declares a fixed set of indexes (those of a default installation for the
+ * attributes populated by {@link Fixtures}) regardless of system properties.
+ */
+public class FixtureIndexMetadataService extends IndexMetadataService {
+
+    private final Map<String, Set<IndexType>> indexes = new HashMap<>();
+
+    public FixtureIndexMetadataService() {
+        indexes.put("objectclass", EnumSet.of(IndexType.EQ, IndexType.PRES));
+        indexes.put("inum", EnumSet.of(IndexType.EQ, IndexType.PRES));
+        indexes.put("uid", EnumSet.of(IndexType.EQ, IndexType.SUB));
+        indexes.put("mail", EnumSet.of(IndexType.EQ, IndexType.SUB));
+        indexes.put("displayname", EnumSet.of(IndexType.EQ, IndexType.SUB));
+        indexes.put("givenname", EnumSet.of(IndexType.EQ, IndexType.SUB));
+        indexes.put("sn", EnumSet.of(IndexType.EQ, IndexType.SUB));
+        indexes.put("member", EnumSet.of(IndexType.EQ));
+        indexes.put("memberof", EnumSet.of(IndexType.EQ));
+        indexes.put("gluustatus", EnumSet.of(IndexType.EQ));
+    }
+
+    @Override
+    public Set<IndexType> getIndexTypes(String attribute) {
+        return attribute == null ? Collections.emptySet()
+                : indexes.getOrDefault(attribute.toLowerCase(), Collections.emptySet());
+    }
+
+}
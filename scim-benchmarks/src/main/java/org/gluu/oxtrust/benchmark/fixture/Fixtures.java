@@ -0,0 +1,381 @@
+package org.gluu.oxtrust.benchmark.fixture;
+
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_DESCRIPTION;
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_ID;
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_NAME;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.gluu.model.GluuAttribute;
+import org.gluu.model.attribute.AttributeDataType;
+import org.gluu.oxtrust.model.GluuGroup;
+import org.gluu.oxtrust.model.scim.ScimCustomPerson;
+import org.gluu.oxtrust.model.scim2.Meta;
+import org.gluu.oxtrust.model.scim2.extensions.Extension;
+import org.gluu.oxtrust.model.scim2.extensions.ExtensionField;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.group.Member;
+import org.gluu.oxtrust.model.scim2.user.Address;
+import org.gluu.oxtrust.model.scim2.user.Email;
+import org.gluu.oxtrust.model.scim2.user.Name;
+import org.gluu.oxtrust.model.scim2.user.PhoneNumber;
+import org.gluu.oxtrust.model.scim2.user.Role;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+
+/**
+ * Builds deterministic data sets resembling what a mid-sized Gluu deployment holds: users with a rich profile plus
+ * {@link #EXTENDED_ATTRIBUTES} custom attributes, and groups with a large number of members.
+ */
+public final class Fixtures {
+
+    public static final int EXTENDED_ATTRIBUTES = 20;
+
+    public static final int LARGE_GROUP_MEMBERS = 10000;
+
+    public static final String BASE_ENDPOINT = "https://scim.example.com/identity/restv1";
+    public static final String USERS_ENDPOINT = BASE_ENDPOINT + "/scim/v2/Users";
+    public static final String GROUPS_ENDPOINT = BASE_ENDPOINT + "/scim/v2/Groups";
+
+    public static final String PEOPLE_BRANCH = "ou=people,o=gluu";
+    public static final String GROUPS_BRANCH = "ou=groups,o=gluu";
+
+    private static final String CREATED = "2020-03-14T15:09:26.535Z";
+    private static final String LAST_MODIFIED = "2021-06-28T03:14:15.926Z";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Fixtures() { }
+
+    public static String userInum(int i) {
+        return String.format("%08x-u-%04d", i * 2654435761L & 0xffffffffL, i % 10000);
+    }
+
+    public static String groupInum(int i) {
+        return String.format("%08x-g-%04d", i * 40503L & 0xffffffffL, i % 10000);
+    }
+
+    public static String groupDn(int i) {
+        return "inum=" + groupInum(i) + "," + GROUPS_BRANCH;
+    }
+
+    public static String extendedAttributeName(int i) {
+        return String.format("customAttr%02d", i);
+    }
+
+    private static AttributeDataType extendedAttributeType(int i) {
+        //12 strings, 4 numerics, 2 booleans and 2 dates
+        return i < 12 ? AttributeDataType.STRING : (i < 16 ? AttributeDataType.NUMERIC :
+                (i < 18 ? AttributeDataType.BOOLEAN : AttributeDataType.DATE));
+    }
+
+    private static boolean extendedAttributeMultivalued(int i) {
+        return i % 3 == 0 && i < 12;
+    }
+
+    /**
+     * Builds the user extension (its URN is the default one used by Gluu) with {@link #EXTENDED_ATTRIBUTES} fields
+     * @return An Extension object
+     */
+    public static Extension userExtension() {
+
+        Map<String, ExtensionField> fields = new LinkedHashMap<>();
+        for (int i = 0; i < EXTENDED_ATTRIBUTES; i++) {
+            ExtensionField field = new ExtensionField();
+            field.setName(extendedAttributeName(i));
+            field.setDescription("Custom attribute #" + i);
+            field.setType(extendedAttributeType(i));
+            field.setMultiValued(extendedAttributeMultivalued(i));
+            fields.put(field.getName(), field);
+        }
+
+        Extension ext = new Extension(USER_EXT_SCHEMA_ID);
+        ext.setName(USER_EXT_SCHEMA_NAME);
+        ext.setDescription(USER_EXT_SCHEMA_DESCRIPTION);
+        ext.setFields(fields);
+        return ext;
+
+    }
+
+    /**
+     * Builds the list of database attributes backing the fields of {@link #userExtension()} plus a few core ones
+     * @return A list of GluuAttribute
+     */
+    public static List<GluuAttribute> attributes() {
+
+        List<GluuAttribute> list = new ArrayList<>();
+        for (ExtensionField field : userExtension().getFields().values()) {
+            list.add(attribute(field.getName(), field.getType(), field.isMultiValued(), true));
+        }
+        list.add(attribute("uid", AttributeDataType.STRING, false, false));
+        list.add(attribute("givenName", AttributeDataType.STRING, false, false));
+        list.add(attribute("sn", AttributeDataType.STRING, false, false));
+        list.add(attribute("displayName", AttributeDataType.STRING, false, false));
+        list.add(attribute("mail", AttributeDataType.STRING, true, false));
+        return list;
+
+    }
+
+    private static GluuAttribute attribute(String name, AttributeDataType type, boolean multivalued, boolean custom) {
+
+        GluuAttribute attribute = new GluuAttribute();
+        attribute.setName(name);
+        attribute.setDataType(type);
+        attribute.setOxMultiValuedAttribute(multivalued);
+        attribute.setOxSCIMCustomAttribute(custom);
+        return attribute;
+
+    }
+
+    private static Object extendedValue(int attr, int user) {
+
+        switch (extendedAttributeType(attr)) {
+            case NUMERIC:
+                return user * 31 + attr;
+            case BOOLEAN:
+                return (user + attr) % 2 == 0;
+            case DATE:
+                return String.format("20%02d-%02d-%02dT10:20:30Z", 10 + user % 10, 1 + attr % 12, 1 + user % 28);
+            default:
+                String value = "value-" + attr + "-" + user;
+                return extendedAttributeMultivalued(attr) ? Arrays.asList(value, value + "-b", value + "-c") : value;
+        }
+
+    }
+
+    private static String[] extendedStoredValue(int attr, int user) {
+
+        switch (extendedAttributeType(attr)) {
+            case DATE:
+                //generalized time as found in LDAP
+                return new String[]{ String.format("20%02d%02d%02d102030Z", 10 + user % 10, 1 + attr % 12, 1 + user % 28) };
+            case STRING:
+                if (extendedAttributeMultivalued(attr)) {
+                    String value = "value-" + attr + "-" + user;
+                    return new String[]{ value, value + "-b", value + "-c" };
+                }
+            default:
+                return new String[]{ extendedValue(attr, user).toString() };
+        }
+
+    }
+
+    /**
+     * Builds a user resource populated with most core attributes and all extended attributes
+     * @param i A seed that determines the values of attributes
+     * @return A UserResource
+     */
+    public static UserResource user(int i) {
+
+        UserResource user = new UserResource();
+        user.setId(userInum(i));
+        user.setExternalId("ext-" + i);
+        user.setUserName("user" + i);
+
+        Meta meta = new Meta();
+        meta.setResourceType("User");
+        meta.setCreated(CREATED);
+        meta.setLastModified(LAST_MODIFIED);
+        meta.setLocation(USERS_ENDPOINT + "/" + user.getId());
+        user.setMeta(meta);
+
+        Name name = new Name();
+        name.setGivenName("Given" + i);
+        name.setFamilyName("Family" + i);
+        name.setMiddleName("M");
+        name.setHonorificPrefix("Dr.");
+        name.computeFormattedName();
+        user.setName(name);
+
+        user.setDisplayName("Given" + i + " Family" + i);
+        user.setNickName("nick" + i);
+        user.setProfileUrl("https://profiles.example.com/user" + i);
+        user.setTitle("Engineer");
+        user.setUserType("Employee");
+        user.setPreferredLanguage("en");
+        user.setLocale("en-US");
+        user.setTimezone("America/Chicago");
+        user.setActive(true);
+
+        user.setEmails(emails(i));
+        user.setPhoneNumbers(phones(i));
+        user.setAddresses(addresses(i));
+
+        Role role = new Role();
+        role.setValue("role-" + (i % 7));
+        user.setRoles(new ArrayList<>(Arrays.asList(role)));
+
+        Map<String, Object> custom = new LinkedHashMap<>();
+        for (int j = 0; j < EXTENDED_ATTRIBUTES; j++) {
+            custom.put(extendedAttributeName(j), extendedValue(j, i));
+        }
+        user.addCustomAttributes(USER_EXT_SCHEMA_ID, custom);
+        user.getSchemas().add(USER_EXT_SCHEMA_ID);
+        return user;
+
+    }
+
+    private static List<Email> emails(int i) {
+
+        List<Email> list = new ArrayList<>();
+        for (Email.Type type : Email.Type.values()) {
+            Email email = new Email();
+            email.setValue(String.format("user%d@%s.example.com", i, type.name().toLowerCase()));
+            email.setType(type);
+            email.setPrimary(type.equals(Email.Type.WORK));
+            list.add(email);
+        }
+        return list;
+
+    }
+
+    private static List<PhoneNumber> phones(int i) {
+
+        List<PhoneNumber> list = new ArrayList<>();
+        for (int j = 0; j < 2; j++) {
+            PhoneNumber phone = new PhoneNumber();
+            phone.setValue(String.format("+1-555-%03d-%04d", j, i % 10000));
+            phone.setType(j == 0 ? PhoneNumber.Type.WORK : PhoneNumber.Type.MOBILE);
+            phone.setPrimary(j == 0);
+            list.add(phone);
+        }
+        return list;
+
+    }
+
+    private static List<Address> addresses(int i) {
+
+        Address address = new Address();
+        address.setStreetAddress(i + " Main Street");
+        address.setLocality("Austin");
+        address.setRegion("TX");
+        address.setPostalCode("78701");
+        address.setCountry("US");
+        address.setType(Address.Type.WORK);
+        address.setPrimary(true);
+        address.setFormatted(address.getStreetAddress() + ", Austin TX 78701");
+        return new ArrayList<>(Arrays.asList(address));
+
+    }
+
+    /**
+     * Builds a group resource with the number of members requested
+     * @param i A seed that determines the id and name of the group
+     * @param members Number of members
+     * @return A GroupResource
+     */
+    public static GroupResource group(int i, int members) {
+
+        GroupResource group = new GroupResource();
+        group.setId(groupInum(i));
+        group.setDisplayName("Group " + i);
+
+        Meta meta = new Meta();
+        meta.setResourceType("Group");
+        meta.setCreated(CREATED);
+        meta.setLastModified(LAST_MODIFIED);
+        meta.setLocation(GROUPS_ENDPOINT + "/" + group.getId());
+        group.setMeta(meta);
+
+        Set<Member> set = new HashSet<>();
+        for (int j = 0; j < members; j++) {
+            Member member = new Member();
+            member.setValue(userInum(j));
+            member.setRef(USERS_ENDPOINT + "/" + member.getValue());
+            member.setDisplay("Given" + j + " Family" + j);
+            member.setType("User");
+            set.add(member);
+        }
+        group.setMembers(set);
+        return group;
+
+    }
+
+    /**
+     * Builds a database entry equivalent to what {@link #user(int)} returns, as it would be read from LDAP
+     * @param i A seed that determines the values of attributes
+     * @param groups Number of groups the user belongs to
+     * @return A ScimCustomPerson
+     */
+    public static ScimCustomPerson person(int i, int groups) {
+
+        UserResource user = user(i);
+        ScimCustomPerson person = new ScimCustomPerson();
+        person.setInum(user.getId());
+        person.setDn("inum=" + user.getId() + "," + PEOPLE_BRANCH);
+        person.setUid(user.getUserName());
+
+        person.setAttribute("oxTrustExternalId", user.getExternalId());
+        person.setCustomAttribute("oxTrustMetaCreated", CREATED);
+        person.setCustomAttribute("oxTrustMetaLastModified", LAST_MODIFIED);
+        person.setAttribute("givenName", user.getName().getGivenName());
+        person.setAttribute("sn", user.getName().getFamilyName());
+        person.setAttribute("middleName", user.getName().getMiddleName());
+        person.setAttribute("oxTrusthonorificPrefix", user.getName().getHonorificPrefix());
+        person.setAttribute("displayName", user.getDisplayName());
+        person.setAttribute("nickname", user.getNickName());
+        person.setAttribute("oxTrustProfileURL", user.getProfileUrl());
+        person.setAttribute("oxTrustTitle", user.getTitle());
+        person.setAttribute("oxTrustUserType", user.getUserType());
+        person.setAttribute("preferredLanguage", user.getPreferredLanguage());
+        person.setAttribute("locale", user.getLocale());
+        person.setAttribute("zoneinfo", user.getTimezone());
+        person.setCustomAttribute("oxTrustActive", "true");
+        person.setAttribute("gluuStatus", "active");
+
+        person.setAttribute("oxTrustEmail", asJsonArray(user.getEmails()));
+        person.setAttribute("mail", user.getEmails().stream().map(Email::getValue).toArray(String[]::new));
+        person.setAttribute("oxTrustPhoneValue", asJsonArray(user.getPhoneNumbers()));
+        person.setAttribute("oxTrustAddresses", asJsonArray(user.getAddresses()));
+        person.setAttribute("oxTrustRole", asJsonArray(user.getRoles()));
+
+        String[] memberOf = new String[groups];
+        for (int j = 0; j < groups; j++) {
+            memberOf[j] = groupDn(j);
+        }
+        person.setAttribute("memberOf", memberOf);
+
+        for (int j = 0; j < EXTENDED_ATTRIBUTES; j++) {
+            person.setAttribute(extendedAttributeName(j), extendedStoredValue(j, i));
+        }
+        return person;
+
+    }
+
+    /**
+     * Builds a database group entry
+     * @param i A seed that determines the id and name of the group
+     * @return A GluuGroup
+     */
+    public static GluuGroup gluuGroup(int i) {
+
+        GluuGroup group = new GluuGroup();
+        group.setInum(groupInum(i));
+        group.setDn(groupDn(i));
+        group.setDisplayName("Group " + i);
+        return group;
+
+    }
+
+    private static String[] asJsonArray(List<?> items) {
+
+        try {
+            String[] array = new String[items.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = MAPPER.writeValueAsString(items.get(i));
+            }
+            return array;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+}
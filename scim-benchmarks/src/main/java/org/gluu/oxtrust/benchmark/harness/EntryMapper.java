@@ -0,0 +1,341 @@
+package org.gluu.oxtrust.benchmark.harness;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.gluu.persist.annotation.AttributeName;
+import org.gluu.persist.annotation.AttributesList;
+import org.gluu.persist.annotation.DN;
+
+/**
+ * Translates persistence-annotated beans (those having fields marked with {@link AttributeName}, {@link AttributesList}
+ * and {@link DN}) to and from the plain attribute maps held by {@link InMemoryEntryManager}. Every conversion produces
+ * a fresh object, so callers get the same isolation a real database provides: modifying an entry obtained from the
+ * store has no effect until it is merged back.
+ */
+final class EntryMapper {
+
+    private static final Map<Class<?>, Mapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    private EntryMapper() { }
+
+    static Map<String, List<Object>> newAttributeMap() {
+        return new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    }
+
+    static String getDn(Object entry) {
+
+        Mapping mapping = mappingOf(entry.getClass());
+        if (mapping.dnField == null) {
+            throw new IllegalArgumentException("No @DN field found in " + entry.getClass().getName());
+        }
+        Object dn = get(mapping.dnField, entry);
+        if (dn == null) {
+            throw new IllegalArgumentException("Entry has no DN assigned");
+        }
+        return dn.toString();
+
+    }
+
+    static Map<String, List<Object>> toAttributes(Object entry) {
+
+        Mapping mapping = mappingOf(entry.getClass());
+        Map<String, List<Object>> attributes = newAttributeMap();
+
+        for (Map.Entry<String, Field> attr : mapping.attributeFields.entrySet()) {
+            List<Object> values = toValues(get(attr.getValue(), entry));
+            if (!values.isEmpty()) {
+                attributes.put(attr.getKey(), values);
+            }
+        }
+        if (mapping.listField != null) {
+            Collection<?> elements = (Collection<?>) get(mapping.listField, entry);
+
+            if (elements != null) {
+                for (Object element : elements) {
+                    Object name = invoke(mapping.elementName.getReadMethod(), element);
+                    List<Object> values = toValues(invoke(mapping.elementValues.getReadMethod(), element));
+
+                    //Explicitly annotated fields take precedence over custom attributes of the same name
+                    if (name != null && !values.isEmpty() && !attributes.containsKey(name.toString())) {
+                        attributes.put(name.toString(), values);
+                    }
+                }
+            }
+        }
+        return attributes;
+
+    }
+
+    static <T> T toEntry(String dn, Map<String, List<Object>> attributes, Class<T> cls) {
+
+        Mapping mapping = mappingOf(cls);
+        T entry;
+        try {
+            entry = cls.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + cls.getName(), e);
+        }
+
+        if (mapping.dnField != null) {
+            set(mapping.dnField, entry, dn);
+        }
+        Set<String> consumed = new HashSet<>();
+        for (Map.Entry<String, Field> attr : mapping.attributeFields.entrySet()) {
+            List<Object> values = attributes.get(attr.getKey());
+            if (values != null) {
+                set(attr.getValue(), entry, convert(values, attr.getValue().getType(), attr.getValue().getGenericType()));
+                consumed.add(attr.getKey().toLowerCase());
+            }
+        }
+
+        if (mapping.listField != null) {
+            List<Object> elements = new ArrayList<>();
+            for (Map.Entry<String, List<Object>> attr : attributes.entrySet()) {
+                if (!consumed.contains(attr.getKey().toLowerCase())) {
+                    elements.add(newElement(mapping, attr.getKey(), attr.getValue()));
+                }
+            }
+            set(mapping.listField, entry, elements);
+        }
+        return entry;
+
+    }
+
+    private static Object newElement(Mapping mapping, String name, List<Object> values) {
+
+        try {
+            Object element = mapping.elementClass.getDeclaredConstructor().newInstance();
+            invoke(mapping.elementName.getWriteMethod(), element, name);
+
+            Class<?> valuesType = mapping.elementValues.getPropertyType();
+            invoke(mapping.elementValues.getWriteMethod(), element,
+                    convert(values, valuesType, mapping.elementValues.getWriteMethod().getGenericParameterTypes()[0]));
+
+            if (mapping.elementMultiValued != null) {
+                invoke(mapping.elementMultiValued.getWriteMethod(), element, values.size() > 1);
+            }
+            return element;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot instantiate " + mapping.elementClass.getName(), e);
+        }
+
+    }
+
+    private static List<Object> toValues(Object value) {
+
+        List<Object> values = new ArrayList<>();
+        if (value == null) {
+            return values;
+        } else if (value instanceof Object[]) {
+            values.addAll(Arrays.asList((Object[]) value));
+        } else if (value instanceof Collection) {
+            values.addAll((Collection<?>) value);
+        } else if (value instanceof Enum) {
+            values.add(enumValue((Enum<?>) value));
+        } else if (value instanceof Date) {
+            values.add(new Date(((Date) value).getTime()));
+        } else {
+            values.add(value);
+        }
+        values.removeIf(v -> v == null);
+        return values;
+
+    }
+
+    private static Object convert(List<Object> values, Class<?> type, Type genericType) {
+
+        if (Collection.class.isAssignableFrom(type)) {
+            Class<?> elementType = Object.class;
+            if (genericType instanceof ParameterizedType) {
+                Type arg = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+                if (arg instanceof Class) {
+                    elementType = (Class<?>) arg;
+                }
+            }
+            List<Object> list = new ArrayList<>();
+            for (Object value : values) {
+                list.add(convertScalar(value, elementType));
+            }
+            return list;
+        } else if (type.isArray()) {
+            Object array = Array.newInstance(type.getComponentType(), values.size());
+            for (int i = 0; i < values.size(); i++) {
+                Array.set(array, i, convertScalar(values.get(i), type.getComponentType()));
+            }
+            return array;
+        } else {
+            return values.isEmpty() ? null : convertScalar(values.get(0), type);
+        }
+
+    }
+
+    private static Object convertScalar(Object value, Class<?> type) {
+
+        if (type.isInstance(value) || type.equals(Object.class)) {
+            return value instanceof Date ? new Date(((Date) value).getTime()) : value;
+        }
+        String str = value instanceof Date ? ((Date) value).toInstant().toString() : value.toString();
+
+        if (type.equals(String.class)) {
+            return str;
+        } else if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+            return Boolean.valueOf(str);
+        } else if (type.equals(Integer.class) || type.equals(int.class)) {
+            return Integer.valueOf(str);
+        } else if (type.equals(Long.class) || type.equals(long.class)) {
+            return Long.valueOf(str);
+        } else if (type.equals(Date.class)) {
+            try {
+                return Date.from(Instant.parse(str));
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        } else if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                if (str.equalsIgnoreCase(enumValue((Enum<?>) constant).toString())) {
+                    return constant;
+                }
+            }
+            return null;
+        }
+        return value;
+
+    }
+
+    /**
+     * Enums stored in the database (like {@code GluuStatus}) expose the actual persisted value by means of
+     * {@code getValue}
+     */
+    private static Object enumValue(Enum<?> constant) {
+
+        try {
+            Method getter = constant.getDeclaringClass().getMethod("getValue");
+            Object value = getter.invoke(constant);
+            return value == null ? constant.name() : value;
+        } catch (ReflectiveOperationException e) {
+            return constant.name();
+        }
+
+    }
+
+    private static Mapping mappingOf(Class<?> cls) {
+        return MAPPINGS.computeIfAbsent(cls, Mapping::new);
+    }
+
+    private static Object get(Field field, Object bean) {
+
+        try {
+            return field.get(bean);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    private static void set(Field field, Object bean, Object value) {
+
+        try {
+            field.set(bean, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    private static Object invoke(Method method, Object bean, Object... args) {
+
+        try {
+            return method.invoke(bean, args);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /**
+     * Reflective metadata of a persistence-annotated class, computed once per class
+     */
+    private static class Mapping {
+
+        private final Map<String, Field> attributeFields = new LinkedHashMap<>();
+        private Field dnField;
+        private Field listField;
+        private Class<?> elementClass;
+        private PropertyDescriptor elementName;
+        private PropertyDescriptor elementValues;
+        private PropertyDescriptor elementMultiValued;
+
+        Mapping(Class<?> cls) {
+
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> c = cls; c != null && !c.equals(Object.class); c = c.getSuperclass()) {
+                hierarchy.add(c);
+            }
+            //Process superclasses first so that subclasses can redefine attributes
+            Collections.reverse(hierarchy);
+
+            for (Class<?> c : hierarchy) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(DN.class)) {
+                        field.setAccessible(true);
+                        dnField = field;
+                    } else if (field.isAnnotationPresent(AttributeName.class)) {
+                        field.setAccessible(true);
+                        attributeFields.put(field.getAnnotation(AttributeName.class).name(), field);
+                    } else if (field.isAnnotationPresent(AttributesList.class)) {
+                        field.setAccessible(true);
+                        listField = field;
+                        inspectElements(field);
+                    }
+                }
+            }
+
+        }
+
+        private void inspectElements(Field field) {
+
+            AttributesList annotation = field.getAnnotation(AttributesList.class);
+            elementClass = (Class<?>) ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            try {
+                for (PropertyDescriptor pd : Introspector.getBeanInfo(elementClass).getPropertyDescriptors()) {
+                    if (pd.getName().equals(annotation.name())) {
+                        elementName = pd;
+                    } else if (pd.getName().equals(annotation.value())) {
+                        elementValues = pd;
+                    } else if (pd.getName().equals("multiValued") && pd.getWriteMethod() != null) {
+                        elementMultiValued = pd;
+                    }
+                }
+            } catch (IntrospectionException e) {
+                throw new IllegalStateException(e);
+            }
+            if (elementName == null || elementValues == null) {
+                throw new IllegalStateException("Cannot map attributes list elements of type " + elementClass.getName());
+            }
+
+        }
+
+    }
+
+}
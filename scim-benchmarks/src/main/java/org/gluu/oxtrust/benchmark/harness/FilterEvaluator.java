@@ -0,0 +1,146 @@
+package org.gluu.oxtrust.benchmark.harness;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.gluu.search.filter.Filter;
+
+/**
+ * Evaluates {@link Filter} trees (as built by {@code ScimFilterParserService}) against the attribute maps held by
+ * {@link InMemoryEntryManager}. Matching mimics LDAP semantics: attribute names and string values are compared
+ * ignoring case, an assertion is true for a multi-valued attribute if it holds for any of its values, and ordering
+ * comparisons are numeric when both operands can be read as numbers.
+ */
+final class FilterEvaluator {
+
+    private FilterEvaluator() { }
+
+    static boolean matches(Filter filter, Map<String, List<Object>> attributes) {
+
+        if (filter == null) {
+            return true;
+        }
+        String type = filter.getType().name();
+        switch (type) {
+            case "AND":
+                for (Filter sub : filter.getFilters()) {
+                    if (!matches(sub, attributes)) {
+                        return false;
+                    }
+                }
+                return true;
+            case "OR":
+                for (Filter sub : filter.getFilters()) {
+                    if (matches(sub, attributes)) {
+                        return true;
+                    }
+                }
+                return false;
+            case "NOT":
+                return !matches(filter.getFilters()[0], attributes);
+            case "PRESENCE":
+                return !values(filter, attributes).isEmpty();
+            case "EQUALITY":
+                return values(filter, attributes).stream().anyMatch(v -> compare(v, filter.getAssertionValue()) == 0);
+            case "GREATER":
+                return values(filter, attributes).stream().anyMatch(v -> compare(v, filter.getAssertionValue()) >= 0);
+            case "LESS":
+                return values(filter, attributes).stream().anyMatch(v -> compare(v, filter.getAssertionValue()) <= 0);
+            case "SUBSTRING":
+                return values(filter, attributes).stream().anyMatch(v -> substringMatches(v.toString(), filter));
+            default:
+                throw new UnsupportedOperationException("Filter type not supported: " + type);
+        }
+
+    }
+
+    /**
+     * Builds a comparator of entries based on the first value of the attribute given. Entries lacking the attribute are
+     * placed last regardless of the direction of sorting
+     */
+    static Comparator<Map<String, List<Object>>> comparing(String attribute, boolean descending) {
+
+        Comparator<Object> values = descending ? Collections.reverseOrder(FilterEvaluator::compare) : FilterEvaluator::compare;
+        return Comparator.comparing(attrs -> first(attrs.get(attribute)), Comparator.nullsLast(values));
+
+    }
+
+    static int compare(Object stored, Object assertion) {
+
+        Object a = stored instanceof Date ? ((Date) stored).getTime() : stored;
+        Object b = assertion instanceof Date ? ((Date) assertion).getTime() : assertion;
+
+        if (a instanceof Number || b instanceof Number) {
+            BigDecimal x = toDecimal(a);
+            BigDecimal y = toDecimal(b);
+            if (x != null && y != null) {
+                return x.compareTo(y);
+            }
+        }
+        return String.valueOf(a).compareToIgnoreCase(String.valueOf(b));
+
+    }
+
+    private static List<Object> values(Filter filter, Map<String, List<Object>> attributes) {
+
+        String name = filter.getAttributeName();
+        if (name == null && filter.getFilters() != null && filter.getFilters().length > 0) {
+            //e.g. lowercase function applied to the attribute
+            name = filter.getFilters()[0].getAttributeName();
+        }
+        List<Object> values = name == null ? null : attributes.get(name);
+        return values == null ? Collections.emptyList() : values;
+
+    }
+
+    private static boolean substringMatches(String value, Filter filter) {
+
+        String str = value.toLowerCase();
+        int pos = 0;
+
+        if (filter.getSubInitial() != null) {
+            String initial = filter.getSubInitial().toLowerCase();
+            if (!str.startsWith(initial)) {
+                return false;
+            }
+            pos = initial.length();
+        }
+        if (filter.getSubAny() != null) {
+            for (String any : filter.getSubAny()) {
+                int i = str.indexOf(any.toLowerCase(), pos);
+                if (i < 0) {
+                    return false;
+                }
+                pos = i + any.length();
+            }
+        }
+        if (filter.getSubFinal() != null) {
+            String fin = filter.getSubFinal().toLowerCase();
+            return str.length() - fin.length() >= pos && str.endsWith(fin);
+        }
+        return true;
+
+    }
+
+    private static BigDecimal toDecimal(Object value) {
+
+        if (value instanceof Number) {
+            return new BigDecimal(value.toString());
+        }
+        try {
+            return value == null ? null : new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+    }
+
+    private static Object first(List<Object> values) {
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+}
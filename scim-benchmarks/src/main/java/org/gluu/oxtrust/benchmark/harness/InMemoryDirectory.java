@@ -0,0 +1,197 @@
+package org.gluu.oxtrust.benchmark.harness;
+
+import static org.gluu.oxtrust.benchmark.fixture.Fixtures.GROUPS_BRANCH;
+import static org.gluu.oxtrust.benchmark.fixture.Fixtures.PEOPLE_BRANCH;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.model.GluuCustomPerson;
+import org.gluu.oxtrust.model.GluuGroup;
+import org.gluu.oxtrust.model.scim.ScimCustomPerson;
+import org.gluu.oxtrust.service.IGroupService;
+import org.gluu.oxtrust.service.IPersonService;
+import org.gluu.oxtrust.service.OrganizationService;
+import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.exception.EntryPersistenceException;
+import org.gluu.search.filter.Filter;
+
+/**
+ * Wraps an {@link InMemoryEntryManager} with the oxTrust person, group and organization services SCIM code depends
+ * upon, and allows to seed it with a deterministic population of users and groups (built from {@link Fixtures}).
+ * Only the service methods invoked by the SCIM service are implemented.
+ */
+public class InMemoryDirectory {
+
+    public static final String ORGANIZATION_DN = "o=gluu";
+
+    private final InMemoryEntryManager store;
+    private final PersistenceEntryManager entryManager;
+    private final IPersonService personService;
+    private final IGroupService groupService;
+    private final OrganizationService organizationService;
+
+    public InMemoryDirectory() {
+
+        store = new InMemoryEntryManager();
+        entryManager = store.getEntryManager();
+
+        personService = (IPersonService) Proxy.newProxyInstance(IPersonService.class.getClassLoader(),
+                new Class<?>[]{ IPersonService.class }, (proxy, method, args) -> personOperation(method, args));
+        groupService = (IGroupService) Proxy.newProxyInstance(IGroupService.class.getClassLoader(),
+                new Class<?>[]{ IGroupService.class }, (proxy, method, args) -> groupOperation(method, args));
+
+        organizationService = new OrganizationService() {
+            @Override
+            public String getDnForOrganization() {
+                return ORGANIZATION_DN;
+            }
+        };
+
+    }
+
+    /**
+     * Removes existing entries and populates the directory with users and groups. Group {@code g} contains the users
+     * {@code g * membersPerGroup} to {@code (g + 1) * membersPerGroup - 1} (modulo the number of users), and users'
+     * {@code memberOf} attribute is kept consistent with that
+     * @param users Number of users to create
+     * @param groups Number of groups to create
+     * @param membersPerGroup Number of members every group will have (at most {@code users})
+     */
+    public void seed(int users, int groups, int membersPerGroup) {
+
+        store.clear();
+        int size = Math.min(membersPerGroup, users);
+        List<List<String>> memberOf = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            memberOf.add(new ArrayList<>());
+        }
+
+        for (int g = 0; g < groups; g++) {
+            List<String> members = new ArrayList<>(size);
+            for (int k = 0; k < size; k++) {
+                int i = (g * size + k) % users;
+                members.add(personService.getDnForPerson(Fixtures.userInum(i)));
+                memberOf.get(i).add(Fixtures.groupDn(g));
+            }
+            GluuGroup group = Fixtures.gluuGroup(g);
+            group.setOrganization(ORGANIZATION_DN);
+            group.setMembers(members);
+            entryManager.persist(group);
+        }
+
+        for (int i = 0; i < users; i++) {
+            ScimCustomPerson person = Fixtures.person(i, 0);
+            person.setAttribute("memberOf", memberOf.get(i).toArray(new String[0]));
+            entryManager.persist(person);
+        }
+
+    }
+
+    public InMemoryEntryManager getStore() {
+        return store;
+    }
+
+    public PersistenceEntryManager getEntryManager() {
+        return entryManager;
+    }
+
+    public IPersonService getPersonService() {
+        return personService;
+    }
+
+    public IGroupService getGroupService() {
+        return groupService;
+    }
+
+    public OrganizationService getOrganizationService() {
+        return organizationService;
+    }
+
+    private Object personOperation(Method method, Object[] args) {
+
+        switch (method.getName()) {
+            case "getDnForPerson":
+                return args[0] == null ? PEOPLE_BRANCH : String.format("inum=%s,%s", args[0], PEOPLE_BRANCH);
+            case "getPersonByInum":
+                return lookup(String.format("inum=%s,%s", args[0], PEOPLE_BRANCH), method.getReturnType());
+            case "getPersonByDn":
+                return lookup(args[0].toString(), method.getReturnType());
+            case "getPersonByUid":
+                return first(entryManager.findEntries(PEOPLE_BRANCH, method.getReturnType(),
+                        Filter.createEqualityFilter("uid", args[0])));
+            case "findPersonsByUids":
+                @SuppressWarnings("unchecked")
+                List<String> uids = (List<String>) args[0];
+                Filter[] filters = uids.stream().map(uid -> Filter.createEqualityFilter("uid", uid)).toArray(Filter[]::new);
+                return entryManager.findEntries(PEOPLE_BRANCH, GluuCustomPerson.class, Filter.createORFilter(filters));
+            case "addPerson":
+                entryManager.persist(args[0]);
+                return null;
+            case "updatePerson":
+                entryManager.merge(args[0]);
+                return null;
+            case "removePerson":
+                entryManager.removeRecursively(((GluuCustomPerson) args[0]).getDn());
+                return null;
+            case "generateInumForNewPerson":
+                return UUID.randomUUID().toString();
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+
+    }
+
+    private Object groupOperation(Method method, Object[] args) {
+
+        switch (method.getName()) {
+            case "getDnForGroup":
+                return args[0] == null ? GROUPS_BRANCH : String.format("inum=%s,%s", args[0], GROUPS_BRANCH);
+            case "getGroupByInum":
+                return lookup(String.format("inum=%s,%s", args[0], GROUPS_BRANCH), GluuGroup.class);
+            case "getGroupByDn":
+                return lookup(args[0].toString(), GluuGroup.class);
+            case "getGroupByDisplayName":
+                return first(entryManager.findEntries(GROUPS_BRANCH, GluuGroup.class,
+                        Filter.createEqualityFilter("displayName", args[0])));
+            case "findGroups":
+                GluuGroup example = (GluuGroup) args[0];
+                return entryManager.findEntries(GROUPS_BRANCH, GluuGroup.class,
+                        Filter.createEqualityFilter("displayName", example.getDisplayName()), null, (Integer) args[1]);
+            case "addGroup":
+                entryManager.persist(args[0]);
+                return null;
+            case "updateGroup":
+                entryManager.merge(args[0]);
+                return null;
+            case "removeGroup":
+                entryManager.removeRecursively(((GluuGroup) args[0]).getDn());
+                return null;
+            case "generateInumForNewGroup":
+                return UUID.randomUUID().toString();
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+
+    }
+
+    private Object lookup(String dn, Class<?> cls) {
+
+        try {
+            return entryManager.find(cls, dn);
+        } catch (EntryPersistenceException e) {
+            //oxTrust services return null when the entry does not exist
+            return null;
+        }
+
+    }
+
+    private static Object first(List<?> list) {
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+}
@@ -0,0 +1,233 @@
+package org.gluu.oxtrust.benchmark.harness;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.exception.EntryPersistenceException;
+import org.gluu.persist.ldap.impl.LdapEntryManagerFactory;
+import org.gluu.persist.model.PagedResult;
+import org.gluu.persist.model.SortOrder;
+import org.gluu.search.filter.Filter;
+
+/**
+ * A thread-safe, in-memory stand-in of the database used by the SCIM service. It implements the subset of
+ * {@link PersistenceEntryManager} operations SCIM code relies upon: {@code find}, {@code findEntries},
+ * {@code findPagedEntries} (with filter evaluation, sorting and paging), {@code countEntries}, {@code persist},
+ * {@code merge}, {@code remove}, {@code removeRecursively} and {@code contains}. Any other operation throws an
+ * {@link UnsupportedOperationException}.
+ * <p>Entries are kept as plain attribute maps keyed by normalized DN; beans are (de)hydrated on every read and write
+ * (see {@link EntryMapper}) so that the harness pays a cost comparable to the mapping a real entry manager does.</p>
+ */
+public class InMemoryEntryManager implements InvocationHandler {
+
+    private final ConcurrentNavigableMap<String, StoredEntry> entries = new ConcurrentSkipListMap<>();
+
+    private final PersistenceEntryManager entryManager;
+
+    public InMemoryEntryManager() {
+        entryManager = (PersistenceEntryManager) Proxy.newProxyInstance(PersistenceEntryManager.class.getClassLoader(),
+                new Class<?>[]{ PersistenceEntryManager.class }, this);
+    }
+
+    /**
+     * Returns the {@link PersistenceEntryManager} view of this store, suitable for injection into SCIM beans
+     * @return A PersistenceEntryManager instance
+     */
+    public PersistenceEntryManager getEntryManager() {
+        return entryManager;
+    }
+
+    /**
+     * Number of entries (of any kind) currently held
+     * @return An int
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+
+        if (method.getDeclaringClass().equals(Object.class)) {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return InMemoryEntryManager.class.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+            }
+        }
+
+        switch (method.getName()) {
+            case "find":
+                return find(args);
+            case "findEntries":
+                return findEntries(args);
+            case "findPagedEntries":
+                return findPagedEntries(args);
+            case "countEntries":
+                return (int) select(args[0].toString(), (Filter) args[2]).count();
+            case "persist":
+                persist(args[0]);
+                return null;
+            case "merge":
+                return merge(args[0]);
+            case "remove":
+                remove(args[0] instanceof String ? args[0].toString() : EntryMapper.getDn(args[0]), false);
+                return null;
+            case "removeRecursively":
+                remove(args[0].toString(), true);
+                return null;
+            case "contains":
+                return entries.containsKey(normalize(args[0] instanceof String ? args[0].toString() : EntryMapper.getDn(args[0])));
+            case "getPersistenceType":
+                return LdapEntryManagerFactory.PERSISTENCE_TYPE;
+            case "hasBranchesSupport":
+                return true;
+            default:
+                throw new UnsupportedOperationException(method.toString());
+        }
+
+    }
+
+    private Object find(Object[] args) {
+
+        //Supports both find(Class, Object) and find(Object, Class, String[]) variants
+        Class<?> cls = null;
+        Object dn = null;
+        for (Object arg : args) {
+            if (arg instanceof Class) {
+                cls = (Class<?>) arg;
+            } else if (dn == null && arg != null && !arg.getClass().isArray()) {
+                dn = arg;
+            }
+        }
+        StoredEntry entry = dn == null ? null : entries.get(normalize(dn.toString()));
+        if (entry == null) {
+            throw new EntryPersistenceException(String.format("Failed to find entry: %s", dn));
+        }
+        return EntryMapper.toEntry(entry.dn, entry.attributes, cls);
+
+    }
+
+    private List<Object> findEntries(Object[] args) {
+
+        //findEntries(baseDN, entryClass, filter[, returnAttributes[, sizeLimit]]), or
+        //findEntries(baseDN, entryClass, filter, scope, returnAttributes, batchOperation, start, count, chunkSize)
+        Class<?> cls = (Class<?>) args[1];
+        Stream<StoredEntry> stream = select(args[0].toString(), (Filter) args[2]);
+        if (args.length == 5 && args[4] instanceof Integer && (Integer) args[4] > 0) {
+            stream = stream.limit((Integer) args[4]);
+        } else if (args.length == 9) {
+            stream = stream.skip(Math.max((Integer) args[6], 0));
+            if ((Integer) args[7] > 0) {
+                stream = stream.limit((Integer) args[7]);
+            }
+        }
+        return stream.<Object>map(e -> EntryMapper.toEntry(e.dn, e.attributes, cls)).collect(Collectors.toList());
+
+    }
+
+    private PagedResult<Object> findPagedEntries(Object[] args) {
+
+        //findPagedEntries(baseDN, entryClass, filter, returnAttributes, sortBy, sortOrder, start, count, chunkSize)
+        Class<?> cls = (Class<?>) args[1];
+        String sortBy = (String) args[4];
+        SortOrder sortOrder = (SortOrder) args[5];
+        int start = (Integer) args[6];
+        int count = (Integer) args[7];
+
+        List<StoredEntry> matching = select(args[0].toString(), (Filter) args[2]).collect(Collectors.toList());
+        if (sortBy != null) {
+            Comparator<Map<String, List<Object>>> comparator = FilterEvaluator.comparing(sortBy, SortOrder.DESCENDING.equals(sortOrder));
+            matching.sort((e1, e2) -> comparator.compare(e1.attributes, e2.attributes));
+        }
+
+        int from = Math.min(Math.max(start, 0), matching.size());
+        int to = count < 0 ? matching.size() : Math.min(from + count, matching.size());
+        List<Object> page = new ArrayList<>();
+        for (StoredEntry entry : matching.subList(from, to)) {
+            page.add(EntryMapper.toEntry(entry.dn, entry.attributes, cls));
+        }
+
+        PagedResult<Object> result = new PagedResult<>();
+        result.setStart(from);
+        result.setEntries(page);
+        result.setEntriesCount(page.size());
+        result.setTotalEntriesCount(matching.size());
+        return result;
+
+    }
+
+    private void persist(Object entry) {
+
+        String dn = EntryMapper.getDn(entry);
+        if (entries.putIfAbsent(normalize(dn), new StoredEntry(dn, EntryMapper.toAttributes(entry))) != null) {
+            throw new EntryPersistenceException(String.format("Entry already exists: %s", dn));
+        }
+
+    }
+
+    private Object merge(Object entry) {
+
+        String dn = EntryMapper.getDn(entry);
+        if (entries.replace(normalize(dn), new StoredEntry(dn, EntryMapper.toAttributes(entry))) == null) {
+            throw new EntryPersistenceException(String.format("Failed to merge missing entry: %s", dn));
+        }
+        return entry;
+
+    }
+
+    private void remove(String dn, boolean recursive) {
+
+        String key = normalize(dn);
+        entries.remove(key);
+        if (recursive) {
+            entries.keySet().removeIf(k -> k.endsWith("," + key));
+        }
+
+    }
+
+    /**
+     * Returns the entries strictly under the base DN given (subtree scope) that match the filter
+     */
+    private Stream<StoredEntry> select(String baseDn, Filter filter) {
+
+        String suffix = "," + normalize(baseDn);
+        return entries.entrySet().stream().filter(e -> e.getKey().endsWith(suffix)).map(Map.Entry::getValue)
+                .filter(e -> FilterEvaluator.matches(filter, e.attributes));
+
+    }
+
+    private static String normalize(String dn) {
+        return dn.replaceAll("\\s*,\\s*", ",").toLowerCase();
+    }
+
+    private static class StoredEntry {
+
+        private final String dn;
+        private final Map<String, List<Object>> attributes;
+
+        StoredEntry(String dn, Map<String, List<Object>> attributes) {
+            this.dn = dn;
+            this.attributes = attributes;
+        }
+
+    }
+
+}
@@ -0,0 +1,310 @@
+package org.gluu.oxtrust.benchmark.harness;
+
+import static org.gluu.oxtrust.model.scim2.Constants.MEDIA_TYPE_SCIM_JSON;
+
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.gluu.config.oxtrust.AppConfiguration;
+import org.gluu.config.oxtrust.ScimMode;
+import org.gluu.config.oxtrust.ScimProperties;
+import org.gluu.oxtrust.benchmark.fixture.BeanWiring;
+import org.gluu.oxtrust.benchmark.fixture.FixtureAttributeService;
+import org.gluu.oxtrust.benchmark.fixture.FixtureExtensionService;
+import org.gluu.oxtrust.benchmark.fixture.FixtureIndexMetadataService;
+import org.gluu.oxtrust.benchmark.fixture.Fixtures;
+import org.gluu.oxtrust.service.AttributeService;
+import org.gluu.oxtrust.service.antlr.scimFilter.ScimFilterParserService;
+import org.gluu.oxtrust.service.external.ExternalScimService;
+import org.gluu.oxtrust.service.scim2.ExtensionService;
+import org.gluu.oxtrust.service.scim2.ExternalConstraintsService;
+import org.gluu.oxtrust.service.scim2.FilterCostGuard;
+import org.gluu.oxtrust.service.scim2.Scim2GroupService;
+import org.gluu.oxtrust.service.scim2.Scim2PatchService;
+import org.gluu.oxtrust.service.scim2.Scim2UserService;
+import org.gluu.oxtrust.service.scim2.TotalResultsService;
+import org.gluu.oxtrust.service.scim2.UserPersistenceHelper;
+import org.gluu.oxtrust.service.scim2.cache.EntityCache;
+import org.gluu.oxtrust.service.scim2.cache.LoopbackInvalidationChannel;
+import org.gluu.oxtrust.service.scim2.cache.RenderedResourceCache;
+import org.gluu.oxtrust.service.scim2.cache.RequestEntityMap;
+import org.gluu.oxtrust.service.scim2.cache.SearchResultCache;
+import org.gluu.oxtrust.service.scim2.serialization.ScimResourceSerializer;
+import org.gluu.oxtrust.ws.rs.scim2.BaseScimWebService;
+import org.gluu.oxtrust.ws.rs.scim2.BulkWebService;
+import org.gluu.oxtrust.ws.rs.scim2.Fido2DeviceWebService;
+import org.gluu.oxtrust.ws.rs.scim2.FidoDeviceWebService;
+import org.gluu.oxtrust.ws.rs.scim2.GroupWebService;
+import org.gluu.oxtrust.ws.rs.scim2.SearchResourcesWebService;
+import org.gluu.oxtrust.ws.rs.scim2.UserWebService;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.plugins.providers.jackson.ResteasyJackson2Provider;
+import org.jboss.resteasy.spi.Dispatcher;
+
+/**
+ * Boots the SCIM JAX-RS resources (users, groups, bulk and cross-resource search endpoints) in-process on top of an
+ * {@link InMemoryDirectory}, so that whole request paths - from HTTP request parsing to persistence and response
+ * serialization - can be load-tested without a Gluu Server. Requests are dispatched with the RESTEasy mock
+ * infrastructure; beans are wired by hand as in {@link org.gluu.oxtrust.benchmark.fixture.BenchmarkServices}.
+ * <p>Differences with a real deployment: there is no authorization filter (it's equivalent to running in
+ * {@link ScimMode#BYPASS} mode), custom scripts are disabled, and CDI interceptors such as the one adjusting
+ * {@code $ref}s in responses do not run.</p>
+ */
+public class InMemoryScimServer {
+
+    public static final String USERS_PATH = "/scim/v2/Users";
+    public static final String GROUPS_PATH = "/scim/v2/Groups";
+    public static final String BULK_PATH = "/scim/v2/Bulk";
+    public static final String SEARCH_PATH = "/scim/v2/.search";
+
+    private static final int MAX_COUNT = 200;
+    private static final int BULK_MAX_OPERATIONS = 1000;
+    private static final int BULK_MAX_PAYLOAD_SIZE = 10 * 1024 * 1024;
+
+    private final InMemoryDirectory directory;
+    private final Dispatcher dispatcher;
+    private final ThreadBoundEntityMap requestEntityMap = new ThreadBoundEntityMap();
+
+    public InMemoryScimServer(InMemoryDirectory directory) {
+
+        this.directory = directory;
+
+        ScimProperties scimProperties = new ScimProperties();
+        scimProperties.setMaxCount(MAX_COUNT);
+        scimProperties.setBulkMaxOperations(BULK_MAX_OPERATIONS);
+        scimProperties.setBulkMaxPayloadSize(BULK_MAX_PAYLOAD_SIZE);
+        scimProperties.setProtectionMode(ScimMode.BYPASS);
+
+        AppConfiguration appConfiguration = new AppConfiguration();
+        appConfiguration.setBaseEndpoint(Fixtures.BASE_ENDPOINT);
+        appConfiguration.setScimProperties(scimProperties);
+
+        ExtensionService extService = new FixtureExtensionService();
+        AttributeService attributeService = new FixtureAttributeService();
+        ExternalScimService externalScimService = new DisabledExternalScimService();
+
+        ScimResourceSerializer resourceSerializer = BeanWiring.withLogger(new ScimResourceSerializer());
+        BeanWiring.set(resourceSerializer, "extService", extService);
+
+        ScimFilterParserService filterService = BeanWiring.withLogger(new ScimFilterParserService());
+        BeanWiring.set(filterService, "attrService", attributeService);
+        BeanWiring.set(filterService, "extService", extService);
+        BeanWiring.set(filterService, "ldapBackend", true);
+        BeanWiring.set(filterService, "optimizeFilters",
+                Boolean.parseBoolean(System.getProperty("scim.filter.optimize", "false")));
+
+        Scim2PatchService patchService = BeanWiring.withLogger(new Scim2PatchService());
+        BeanWiring.set(patchService, "filterService", filterService);
+        BeanWiring.set(patchService, "extService", extService);
+
+        ExternalConstraintsService constraintsService = BeanWiring.withLogger(new ExternalConstraintsService());
+        BeanWiring.set(constraintsService, "entryManager", directory.getEntryManager());
+        BeanWiring.set(constraintsService, "externalScimService", externalScimService);
+
+        //Caches are disabled unless system properties scim.entityCache.ttl, scim.renderCache.ttl and
+        //scim.searchCache.ttl are set
+        EntityCache entityCache = BeanWiring.withLogger(new EntityCache());
+        BeanWiring.set(entityCache, "invalidationChannel", new LoopbackInvalidationChannel());
+        BeanWiring.set(entityCache, "requestEntityMap", requestEntityMap);
+        BeanWiring.postConstruct(entityCache);
+
+        RenderedResourceCache renderedResourceCache = BeanWiring.withLogger(new RenderedResourceCache());
+        BeanWiring.set(renderedResourceCache, "externalScimService", externalScimService);
+        BeanWiring.postConstruct(renderedResourceCache);
+
+        SearchResultCache searchResultCache = BeanWiring.withLogger(new SearchResultCache());
+        BeanWiring.set(searchResultCache, "externalScimService", externalScimService);
+        BeanWiring.postConstruct(searchResultCache);
+
+        //Totals are exact unless system property scim.totalResults.mode is set
+        TotalResultsService totalResultsService = BeanWiring.withLogger(new TotalResultsService());
+        BeanWiring.set(totalResultsService, "ldapEntryManager", directory.getEntryManager());
+        BeanWiring.postConstruct(totalResultsService);
+
+        //Full scans are let through unless system property scim.filterGuard.mode is set
+        FilterCostGuard filterCostGuard = BeanWiring.withLogger(new FilterCostGuard());
+        BeanWiring.set(filterCostGuard, "indexMetadataService", new FixtureIndexMetadataService());
+        BeanWiring.set(filterCostGuard, "totalResultsService", totalResultsService);
+        BeanWiring.postConstruct(filterCostGuard);
+
+        UserPersistenceHelper persistenceHelper = BeanWiring.withLogger(new UserPersistenceHelper());
+        BeanWiring.set(persistenceHelper, "persistenceEntryManager", directory.getEntryManager());
+        BeanWiring.set(persistenceHelper, "personService", directory.getPersonService());
+        BeanWiring.set(persistenceHelper, "attributeService", attributeService);
+        BeanWiring.set(persistenceHelper, "groupService", directory.getGroupService());
+        BeanWiring.set(persistenceHelper, "externalScimService", externalScimService);
+        BeanWiring.set(persistenceHelper, "entityCache", entityCache);
+        BeanWiring.set(persistenceHelper, "requestEntityMap", requestEntityMap);
+        BeanWiring.postConstruct(persistenceHelper);
+
+        Scim2UserService userService = BeanWiring.withLogger(new Scim2UserService());
+        BeanWiring.set(userService, "personService", directory.getPersonService());
+        BeanWiring.set(userService, "userPersistenceHelper", persistenceHelper);
+        BeanWiring.set(userService, "groupService", directory.getGroupService());
+        BeanWiring.set(userService, "externalScimService", externalScimService);
+        BeanWiring.set(userService, "extService", extService);
+        BeanWiring.set(userService, "scimFilterParserService", filterService);
+        BeanWiring.set(userService, "ldapEntryManager", directory.getEntryManager());
+        BeanWiring.set(userService, "totalResultsService", totalResultsService);
+        BeanWiring.set(userService, "filterCostGuard", filterCostGuard);
+        BeanWiring.set(userService, "appConfiguration", appConfiguration);
+        BeanWiring.postConstruct(userService);
+
+        Scim2GroupService groupService = BeanWiring.withLogger(new Scim2GroupService());
+        BeanWiring.set(groupService, "personService", directory.getPersonService());
+        BeanWiring.set(groupService, "groupService", directory.getGroupService());
+        BeanWiring.set(groupService, "externalScimService", externalScimService);
+        BeanWiring.set(groupService, "organizationService", directory.getOrganizationService());
+        BeanWiring.set(groupService, "extService", extService);
+        BeanWiring.set(groupService, "scimFilterParserService", filterService);
+        BeanWiring.set(groupService, "totalResultsService", totalResultsService);
+        BeanWiring.set(groupService, "filterCostGuard", filterCostGuard);
+        BeanWiring.set(groupService, "userPersistenceHelper", persistenceHelper);
+        BeanWiring.set(groupService, "entityCache", entityCache);
+
+        BaseScimWebService[] resources = new BaseScimWebService[6];
+
+        UserWebService userWS = new UserWebService();
+        BeanWiring.set(userWS, "scim2UserService", userService);
+        BeanWiring.set(userWS, "scim2PatchService", patchService);
+        BeanWiring.set(userWS, "renderedResourceCache", renderedResourceCache);
+        BeanWiring.set(userWS, "searchResultCache", searchResultCache);
+        resources[0] = userWS;
+
+        GroupWebService groupWS = new GroupWebService();
+        BeanWiring.set(groupWS, "userWebService", userWS);
+        BeanWiring.set(groupWS, "scim2GroupService", groupService);
+        BeanWiring.set(groupWS, "groupService", directory.getGroupService());
+        BeanWiring.set(groupWS, "scim2PatchService", patchService);
+        BeanWiring.set(groupWS, "renderedResourceCache", renderedResourceCache);
+        BeanWiring.set(groupWS, "searchResultCache", searchResultCache);
+        resources[1] = groupWS;
+
+        //FIDO endpoints are not served, but bulk and search resources need to know their URLs
+        FidoDeviceWebService fidoWS = new FidoDeviceWebService();
+        BeanWiring.set(fidoWS, "scimFilterParserService", filterService);
+        resources[2] = fidoWS;
+        resources[3] = new Fido2DeviceWebService();
+
+        BulkWebService bulkWS = new BulkWebService();
+        BeanWiring.set(bulkWS, "userWS", userWS);
+        BeanWiring.set(bulkWS, "groupWS", groupWS);
+        BeanWiring.set(bulkWS, "fidoDeviceWS", fidoWS);
+        BeanWiring.set(bulkWS, "fido2DeviceWS", resources[3]);
+        BeanWiring.set(bulkWS, "requestEntityMap", requestEntityMap);
+        resources[4] = bulkWS;
+
+        SearchResourcesWebService searchWS = new SearchResourcesWebService();
+        BeanWiring.set(searchWS, "userWS", userWS);
+        BeanWiring.set(searchWS, "groupWS", groupWS);
+        BeanWiring.set(searchWS, "fidoWS", fidoWS);
+        BeanWiring.set(searchWS, "fido2WS", resources[3]);
+        resources[5] = searchWS;
+
+        for (BaseScimWebService resource : resources) {
+            //Fields inherited from BaseScimWebService
+            BeanWiring.withLogger(resource);
+            BeanWiring.set(resource, "appConfiguration", appConfiguration);
+            BeanWiring.set(resource, "resourceSerializer", resourceSerializer);
+            BeanWiring.set(resource, "extService", extService);
+            BeanWiring.set(resource, "personService", directory.getPersonService());
+            BeanWiring.set(resource, "userPersistenceHelper", persistenceHelper);
+            BeanWiring.set(resource, "externalConstraintsService", constraintsService);
+        }
+        //Order matters: group, bulk and search resources read the endpoint URLs of the others upon initialization
+        for (BaseScimWebService resource : resources) {
+            BeanWiring.postConstruct(resource);
+        }
+
+        dispatcher = MockDispatcherFactory.createDispatcher();
+        dispatcher.getProviderFactory().registerProvider(ResteasyJackson2Provider.class);
+        dispatcher.getRegistry().addSingletonResource(userWS);
+        dispatcher.getRegistry().addSingletonResource(groupWS);
+        dispatcher.getRegistry().addSingletonResource(bulkWS);
+        dispatcher.getRegistry().addSingletonResource(searchWS);
+
+    }
+
+    /**
+     * Issues a request and waits for its response
+     * @param method HTTP verb
+     * @param uri Path of the resource (relative to the root of the application) optionally followed by a query string,
+     *            e.g. {@code /scim/v2/Users?filter=userName%20eq%20%22user1%22}
+     * @param body Payload of the request, or null when there is none
+     * @return The response obtained
+     */
+    public MockHttpResponse execute(String method, String uri, String body) {
+
+        try {
+            MockHttpRequest request = MockHttpRequest.create(method, uri);
+            request.accept(MEDIA_TYPE_SCIM_JSON);
+            if (body != null) {
+                request.contentType(MEDIA_TYPE_SCIM_JSON);
+                request.content(body.getBytes(StandardCharsets.UTF_8));
+            }
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer harness");
+
+            MockHttpResponse response = new MockHttpResponse();
+            dispatcher.invoke(request, response);
+            return response;
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            requestEntityMap.end();
+        }
+
+    }
+
+    public InMemoryDirectory getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Mimics the request scope of {@link RequestEntityMap}: every thread works on its own map, which is discarded once
+     * the request in course finishes
+     */
+    private static class ThreadBoundEntityMap extends RequestEntityMap {
+
+        private final ThreadLocal<RequestEntityMap> maps = ThreadLocal.withInitial(RequestEntityMap::new);
+
+        @Override
+        public <T> T get(String dn, Class<T> cls, Function<String, T> loader) {
+            return maps.get().get(dn, cls, loader);
+        }
+
+        @Override
+        public void evict(String dn) {
+            maps.get().evict(dn);
+        }
+
+        @Override
+        public void clear() {
+            maps.get().clear();
+        }
+
+        private void end() {
+            maps.remove();
+        }
+
+    }
+
+    /**
+     * Behaves as if no SCIM custom scripts were enabled
+     */
+    private static class DisabledExternalScimService extends ExternalScimService {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+    }
+
+}
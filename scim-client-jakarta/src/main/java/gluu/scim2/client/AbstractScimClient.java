@@ -25,6 +25,7 @@ import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
 import gluu.scim2.client.rest.CloseableClient;
 import gluu.scim2.client.rest.FreelyAccessible;
 import gluu.scim2.client.rest.provider.AuthorizationInjectionFilter;
+import gluu.scim2.client.rest.provider.ConditionalRequestFilter;
 import gluu.scim2.client.rest.provider.ListResponseProvider;
 import gluu.scim2.client.rest.provider.ScimResourceProvider;
 
@@ -38,7 +39,7 @@ import gluu.scim2.client.rest.provider.ScimResourceProvider;
  * method of this class, which properly handles the authorization details in conjunction with the filter
  * {@link gluu.scim2.client.rest.provider.AuthorizationInjectionFilter AuthorizationInjectionFilter}.</p>
  * <p>Concrete subclasses of this class must provide {@link #getAuthenticationHeader() getAuthenticationHeader} and
- * {@link #authorize(Response) authorize} methods that must implement specific ways to obtain access tokens depending
+ * {@link #authorize(Response, String) authorize} methods that must implement specific ways to obtain access tokens depending
  * on how the SCIM service is being protected.</p>
  * @param <T> The type of the internal RestEasy proxy used by this class. This is the same type that
  * {@link gluu.scim2.client.factory.ScimClientFactory ScimClientFactory} methods return.
@@ -83,6 +84,7 @@ public abstract class AbstractScimClient<T> implements CloseableClient, Invocati
         target.register(ListResponseProvider.class);
         target.register(AuthorizationInjectionFilter.class);
         target.register(ScimResourceProvider.class);
+        target.register(ConditionalRequestFilter.class);
         scimService = target.proxy(serviceClass);
 
         clientMap.update(client, null);
@@ -93,10 +95,17 @@ public abstract class AbstractScimClient<T> implements CloseableClient, Invocati
      * stream is fully consumed, so there is no need to create finally blocks with close(). Also, the readEntity method
      * can be called any number of times. For instance, the "raw" response can be inspected by using readEntity(String.class)
      */
-    private Response invokeServiceMethod(Method method, Object[] args) throws ReflectiveOperationException {
+    private Response invokeServiceMethod(Method method, Object[] args, String authzHeader) throws ReflectiveOperationException {
 
         logger.trace("Sending service request for method {}", method.getName());
-        Response response = (Response) method.invoke(scimService, args);
+        Response response;
+        //The header travels with this very request, so concurrent invocations over the same client do not interfere
+        clientMap.setRequestValue(authzHeader);
+        try {
+            response = (Response) method.invoke(scimService, args);
+        } finally {
+            clientMap.clearRequestValue();
+        }
         boolean buffered = false;
         try {
             //This try block helps prevent a RestEasy NPE that arises when the response is empty (has no content)
@@ -133,19 +142,18 @@ public abstract class AbstractScimClient<T> implements CloseableClient, Invocati
 
             //Set authorization header if needed
             if (unprotected != null) {
-                response = invokeServiceMethod(method, args);
+                response = invokeServiceMethod(method, args, null);
             } else {
-                clientMap.update(client, getAuthenticationHeader());
-                response = invokeServiceMethod(method, args);
+                String header = getAuthenticationHeader();
+                response = invokeServiceMethod(method, args, header);
                 int code = response.getStatus();
 
                 if (code == Response.Status.UNAUTHORIZED.getStatusCode() ||
                         code == Response.Status.FORBIDDEN.getStatusCode()) {
 
-                    if (authorize(response)) {
+                    if (authorize(response, header)) {
                         logger.trace("Trying second attempt of request (former received unauthorized or forbidden response code)");
-                        clientMap.update(client, getAuthenticationHeader());
-                        response = invokeServiceMethod(method, args);
+                        response = invokeServiceMethod(method, args, getAuthenticationHeader());
                     } else {
                         logger.error("Could not get access token for current request: {}", methodName);
                     }
@@ -165,10 +173,27 @@ public abstract class AbstractScimClient<T> implements CloseableClient, Invocati
         logger.info("Setting custom headers");
     	clientMap.setCustomHeaders(client, headers);
     }
+
+    /**
+     * Attaches a cache to this client. From then on, retrievals of resources already cached are issued as conditional
+     * requests (see {@link ResourceCache}). Pass null to stop using a cache
+     * @param cache A ResourceCache instance
+     */
+    public void setResourceCache(ResourceCache cache) {
+        logger.info("Setting resource cache");
+        clientMap.setResourceCache(client, cache);
+    }
     
     abstract String getAuthenticationHeader();
 
-    abstract boolean authorize(Response response);
+    /**
+     * Obtains new credentials after the service rejected a request
+     * @param response The response to the rejected request
+     * @param rejectedHeader The authorization header the rejected request carried (as returned by
+     *                       {@link #getAuthenticationHeader()})
+     * @return Whether a second attempt of the request is worth making
+     */
+    abstract boolean authorize(Response response, String rejectedHeader);
 
     private Optional<Integer> getIntegerProperty(String name) {
 
@@ -36,7 +36,8 @@ public class UmaScimClient<T> extends AbstractScimClient<T> {
 
     private Logger logger = LogManager.getLogger(getClass());
 
-    private String rpt;
+    //RPTs can only be obtained in exchange of permission tickets, so they are renewed on demand only
+    private AccessTokenHolder rptHolder = new AccessTokenHolder();
 
     private String umaAatClientId;
     private String umaAatClientKeyId;
@@ -69,17 +70,20 @@ public class UmaScimClient<T> extends AbstractScimClient<T> {
      */
     @Override
     String getAuthenticationHeader() {
+        String rpt = rptHolder.getValue();
     	return StringHelper.isEmpty(rpt) ?  null : "Bearer " + rpt;
     }
 
     /**
      * Recomputes a new RPT according to UMA workflow if the response passed as parameter has status code 401 (unauthorized).
+     * When several threads are rejected at once, only one RPT request is made and the rest reuse its result.
      * @param response A Response object corresponding to the request obtained in the previous call to a service method
+     * @param rejectedHeader Authorization header of the rejected request, null if it carried no RPT
      * @return If the parameter passed has a status code different to 401, it returns false. Otherwise it returns the success
      * of the attempt made to get a new RPT
      */
     @Override
-    boolean authorize(Response response) {
+    boolean authorize(Response response, String rejectedHeader) {
 
         boolean value = false;
         if (response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
@@ -98,8 +102,11 @@ public class UmaScimClient<T> extends AbstractScimClient<T> {
                         asUri = headerKeyValue.substring(7);
                     }
                 }
+                String uri = asUri;
+                String ticket = permissionTicket;
                 value= StringHelper.isNotEmpty(asUri) && StringHelper.isNotEmpty(permissionTicket)
-                        && obtainAuthorizedRpt(asUri, permissionTicket);
+                        && StringUtils.isNotBlank(rptHolder.refresh(StringUtils.removeStart(rejectedHeader, "Bearer "),
+                            () -> new AccessTokenHolder.Token(obtainAuthorizedRpt(uri, ticket), null)));
             } catch (Exception e) {
                 throw new ScimInitializationException(e.getMessage(), e);
             }
@@ -108,10 +115,10 @@ public class UmaScimClient<T> extends AbstractScimClient<T> {
         return value;
     }
 
-    private boolean obtainAuthorizedRpt(String asUri, String ticket) {
+    private String obtainAuthorizedRpt(String asUri, String ticket) {
 
         try {
-            return StringUtils.isNotBlank(getAuthorizedRpt(asUri, ticket));
+            return getAuthorizedRpt(asUri, ticket);
         } catch (Exception e) {
             throw new ScimInitializationException(e.getMessage(), e);
         }
@@ -147,8 +154,7 @@ public class UmaScimClient<T> extends AbstractScimClient<T> {
                 throw new ScimInitializationException("UMA RPT is invalid");
             }
 
-            this.rpt = rptResponse.getAccessToken();
-            return rpt;
+            return rptResponse.getAccessToken();
 
         } catch (Exception ex) {
             throw new ScimInitializationException(ex.getMessage(), ex);
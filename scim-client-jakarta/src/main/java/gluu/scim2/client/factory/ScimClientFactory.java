@@ -1,5 +1,6 @@
 package gluu.scim2.client.factory;
 
+import gluu.scim2.client.AsyncScimClient;
 import gluu.scim2.client.OAuthScimClient;
 import gluu.scim2.client.UmaScimClient;
 import gluu.scim2.client.TestModeScimClient;
@@ -181,6 +182,129 @@ public class ScimClientFactory {
                 keyStorePath, keyStorePassword, keyId);
     }
 
+    /**
+     * Constructs an object that allows non-blocking interaction with the SCIM API assuming it is protected by UMA. See
+     * {@link #getClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.lang.String) }
+     * for a description of the authorization parameters
+     * @param interfaceClass The Class whose methods will be invoked by means of {@link AsyncScimClient#submit(java.util.function.Function)}
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param umaAatClientId Requesting party Client Id
+     * @param umaAatClientJksPath Path to requesting party jks file
+     * @param umaAatClientJksPassword Keystore password
+     * @param umaAatClientKeyId Key Id in the keystore. Pass an empty string to use the first key in keystore
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host. Requests exceeding
+     *                              this limit are queued (without blocking any thread)
+     * @param <T> The type of the service interface
+     * @return An object that allows to issue requests asynchronously
+     */
+    public static <T> AsyncScimClient<T> getAsyncClient(Class<T> interfaceClass, String domain, String umaAatClientId,
+            String umaAatClientJksPath, String umaAatClientJksPassword, String umaAatClientKeyId, int maxConnections,
+            int maxConnectionsPerHost) {
+        return new AsyncScimClient<>(interfaceClass, domain, new UmaScimClient<>(interfaceClass, domain, umaAatClientId,
+                umaAatClientJksPath, umaAatClientJksPassword, umaAatClientKeyId), maxConnections, maxConnectionsPerHost);
+    }
+
+    /**
+     * See {@link #getAsyncClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String, java.lang.String, int, int) }
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param umaAatClientId Requesting party Client Id
+     * @param umaAatClientJksPath Path to requesting party jks file in local filesystem
+     * @param umaAatClientJksPassword Keystore password
+     * @param umaAatClientKeyId Key Id in the keystore. Pass an empty string to use the first key in keystore
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host
+     * @return An object that allows issuing User, Group, and FidoDevices operations asynchronously
+     */
+    public static AsyncScimClient<ClientSideService> getAsyncClient(String domain, String umaAatClientId,
+            String umaAatClientJksPath, String umaAatClientJksPassword, String umaAatClientKeyId, int maxConnections,
+            int maxConnectionsPerHost) {
+        return getAsyncClient(defaultInterface, domain, umaAatClientId, umaAatClientJksPath, umaAatClientJksPassword,
+                umaAatClientKeyId, maxConnections, maxConnectionsPerHost);
+    }
+
+    /**
+     * Constructs an object that allows non-blocking interaction with the SCIM API assuming it is protected by test mode.
+     * See {@link #getTestClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String) }
+     * @param interfaceClass The Class whose methods will be invoked by means of {@link AsyncScimClient#submit(java.util.function.Function)}
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param OIDCMetadataUrl URL of authorization servers' metadata document. Usually in the form {@code https://your.gluu-server.com/.well-known/openid-configuration}
+     * @param clientId ID of an already registered OIDC client in the Gluu Server
+     * @param clientSecret Secret of the corresponding client (see clientID parameter)
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host. Requests exceeding
+     *                              this limit are queued (without blocking any thread)
+     * @param <T> The type of the service interface
+     * @return An object that allows to issue requests asynchronously
+     * @throws Exception If there is initialization problem
+     */
+    public static <T> AsyncScimClient<T> getAsyncTestClient(Class<T> interfaceClass, String domain, String OIDCMetadataUrl,
+            String clientId, String clientSecret, int maxConnections, int maxConnectionsPerHost) throws Exception {
+        return new AsyncScimClient<>(interfaceClass, domain, new TestModeScimClient<>(interfaceClass, domain,
+                OIDCMetadataUrl, clientId, clientSecret), maxConnections, maxConnectionsPerHost);
+    }
+
+    /**
+     * See {@link #getAsyncTestClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String, int, int) }
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param OIDCMetadataUrl URL of authorization servers' metadata document. Usually in the form {@code https://your.gluu-server.com/.well-known/openid-configuration}
+     * @param clientId ID of an already registered OIDC client in the Gluu Server
+     * @param clientSecret Secret of the corresponding client (see clientID parameter)
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host
+     * @return An object that allows issuing User, Group, and FidoDevices operations asynchronously
+     * @throws Exception If there is initialization problem
+     */
+    public static AsyncScimClient<ClientSideService> getAsyncTestClient(String domain, String OIDCMetadataUrl,
+            String clientId, String clientSecret, int maxConnections, int maxConnectionsPerHost) throws Exception {
+        return getAsyncTestClient(defaultInterface, domain, OIDCMetadataUrl, clientId, clientSecret, maxConnections,
+                maxConnectionsPerHost);
+    }
+
+    /**
+     * Constructs an object that allows non-blocking interaction with the SCIM API assuming it is protected by oauth mode.
+     * See {@link #getOAuthClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String, boolean) }
+     * @param interfaceClass The Class whose methods will be invoked by means of {@link AsyncScimClient#submit(java.util.function.Function)}
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param OIDCMetadataUrl URL of authorization servers' metadata document. Usually in the form {@code https://your.gluu-server.com/.well-known/openid-configuration}
+     * @param clientId ID of an already registered OIDC client in the Gluu Server
+     * @param clientSecret Secret of the corresponding client (see clientID parameter)
+     * @param secretPostAuthnMethod Whether the client uses client_secret_post (true) or client_secret_basic (false) to
+     *                              authenticate to the token endpoint
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host. Requests exceeding
+     *                              this limit are queued (without blocking any thread)
+     * @param <T> The type of the service interface
+     * @return An object that allows to issue requests asynchronously
+     * @throws Exception If there is initialization problem
+     */
+    public static <T> AsyncScimClient<T> getAsyncOAuthClient(Class<T> interfaceClass, String domain, String OIDCMetadataUrl,
+            String clientId, String clientSecret, boolean secretPostAuthnMethod, int maxConnections,
+            int maxConnectionsPerHost) throws Exception {
+        return new AsyncScimClient<>(interfaceClass, domain, new OAuthScimClient<>(interfaceClass, domain,
+                OIDCMetadataUrl, clientId, clientSecret, secretPostAuthnMethod), maxConnections, maxConnectionsPerHost);
+    }
+
+    /**
+     * See {@link #getAsyncOAuthClient(java.lang.Class, java.lang.String, java.lang.String, java.lang.String, java.lang.String, boolean, int, int) }
+     * @param domain The root URL of the SCIM service. Usually in the form {@code https://your.gluu-server.com/identity/restv1}
+     * @param OIDCMetadataUrl URL of authorization servers' metadata document. Usually in the form {@code https://your.gluu-server.com/.well-known/openid-configuration}
+     * @param clientId ID of an already registered OIDC client in the Gluu Server
+     * @param clientSecret Secret of the corresponding client (see clientID parameter)
+     * @param secretPostAuthnMethod Whether the client uses client_secret_post (true) or client_secret_basic (false) to
+     *                              authenticate to the token endpoint
+     * @param maxConnections Maximum number of connections the client will open
+     * @param maxConnectionsPerHost Maximum number of concurrent connections to the same host
+     * @return An object that allows issuing User, Group, and FidoDevices operations asynchronously
+     * @throws Exception If there is initialization problem
+     */
+    public static AsyncScimClient<ClientSideService> getAsyncOAuthClient(String domain, String OIDCMetadataUrl,
+            String clientId, String clientSecret, boolean secretPostAuthnMethod, int maxConnections,
+            int maxConnectionsPerHost) throws Exception {
+        return getAsyncOAuthClient(defaultInterface, domain, OIDCMetadataUrl, clientId, clientSecret,
+                secretPostAuthnMethod, maxConnections, maxConnectionsPerHost);
+    }
+
     private static <T> T typedProxy(Class <T> interfaceClass, InvocationHandler handler){
         return interfaceClass.cast(Proxy.newProxyInstance(interfaceClass.getClassLoader(),
                 new Class<?>[]{interfaceClass}, handler));
@@ -36,9 +36,10 @@ public class AuthorizationInjectionFilter implements ClientRequestFilter {
 
         Client client = context.getClient();
         MultivaluedMap<String, Object> headers = context.getHeaders();
-        String authzHeader = clientMap.getValue(client);
+        //Prefer the header bound to this request over the one (if any) associated to the client
+        String authzHeader = Optional.ofNullable(clientMap.getRequestValue()).orElseGet(() -> clientMap.getValue(client));
 
-        if (StringUtils.isNotEmpty(authzHeader)) {   //resteasy client is tied to an authz header
+        if (StringUtils.isNotEmpty(authzHeader)) {
             headers.putSingle("Authorization", authzHeader);
         }
 
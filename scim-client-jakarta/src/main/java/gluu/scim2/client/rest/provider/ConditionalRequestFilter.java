@@ -0,0 +1,113 @@
+package gluu.scim2.client.rest.provider;
+
+import gluu.scim2.client.ClientMap;
+import gluu.scim2.client.ResourceCache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.client.ClientRequestContext;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.client.ClientResponseContext;
+import jakarta.ws.rs.client.ClientResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Client-side filter that issues conditional retrievals on behalf of clients that have a
+ * {@link ResourceCache ResourceCache} attached: GET requests carry the ETag of the representation cached (if any) and
+ * 304 responses are turned into 200 responses whose entity is the cached representation. Representations received
+ * with an ETag are stored in the cache, and successful modifications evict the resource affected.
+ * <p>Developers do not need to manipulate this class for their SCIM applications.</p>
+ */
+@Provider
+public class ConditionalRequestFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final List<String> MODIFYING_METHODS = Arrays.asList(HttpMethod.PUT, HttpMethod.DELETE, "PATCH");
+
+    //Request property holding the entry whose ETag was sent, so it can be served even if evicted meanwhile
+    private static final String CACHED_ENTRY_PROPERTY = ConditionalRequestFilter.class.getName() + ".entry";
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private ClientMap clientMap = ClientMap.instance();
+
+    public void filter(ClientRequestContext context) {
+
+        ResourceCache cache = clientMap.getResourceCache(context.getClient());
+        //Requests where the caller supplied a precondition of their own are left untouched
+        if (cache != null && context.getMethod().equals(HttpMethod.GET)
+                && !context.getHeaders().containsKey(HttpHeaders.IF_NONE_MATCH)) {
+
+            ResourceCache.Entry entry = cache.get(context.getUri());
+            if (entry != null) {
+                logger.trace("Sending conditional request for {}", context.getUri());
+                context.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH, entry.getEtag());
+                context.setProperty(CACHED_ENTRY_PROPERTY, entry);
+            }
+        }
+
+    }
+
+    public void filter(ClientRequestContext request, ClientResponseContext response) throws IOException {
+
+        ResourceCache cache = clientMap.getResourceCache(request.getClient());
+        if (cache == null) return;
+
+        URI uri = request.getUri();
+        int status = response.getStatus();
+
+        if (request.getMethod().equals(HttpMethod.GET)) {
+            String etag = response.getHeaderString(HttpHeaders.ETAG);
+
+            ResourceCache.Entry entry = (ResourceCache.Entry) request.getProperty(CACHED_ENTRY_PROPERTY);
+
+            if (status == Response.Status.NOT_MODIFIED.getStatusCode()) {
+                //Only 304s to the preconditions added by this filter are handled, the caller gets theirs as is
+                if (entry != null) {
+                    logger.trace("Serving cached representation of {}", uri);
+                    cache.recordHit();
+                    response.setStatus(Response.Status.OK.getStatusCode());
+                    response.setEntityStream(new ByteArrayInputStream(entry.getBody()));
+                    response.getHeaders().putSingle(HttpHeaders.ETAG, entry.getEtag());
+                    if (entry.getContentType() != null) {
+                        response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, entry.getContentType());
+                    }
+                }
+            } else {
+                cache.recordMiss();
+                if (status == Response.Status.OK.getStatusCode() && etag != null && response.hasEntity()) {
+                    byte[] body = readFully(response.getEntityStream());
+                    response.setEntityStream(new ByteArrayInputStream(body));
+                    cache.put(uri, etag, response.getHeaderString(HttpHeaders.CONTENT_TYPE), body);
+                }
+            }
+        } else if (MODIFYING_METHODS.contains(request.getMethod())
+                && response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+            cache.invalidate(uri);
+        }
+
+    }
+
+    private byte[] readFully(InputStream stream) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = stream) {
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+
+    }
+
+}
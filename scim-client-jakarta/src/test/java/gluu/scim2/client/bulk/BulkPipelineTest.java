@@ -0,0 +1,217 @@
+package gluu.scim2.client.bulk;
+
+import gluu.scim2.client.BaseTest;
+import gluu.scim2.client.BulkPipeline;
+import org.gluu.oxtrust.model.scim2.bulk.BulkOperation;
+import org.gluu.oxtrust.model.scim2.bulk.BulkRequest;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.group.Member;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.Status;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks how {@link BulkPipeline} splits operations into bulk requests and resolves bulkId references across them
+ */
+public class BulkPipelineTest extends BaseTest {
+
+    private static final int USERS = 5;
+    private static final long NO_SIZE_LIMIT = 10_000_000;
+
+    private ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    //Requests sent and their sizes in bytes, in the order they were sent
+    private List<BulkRequest> sent = new CopyOnWriteArrayList<>();
+    private List<Integer> sizes = new CopyOnWriteArrayList<>();
+
+    private List<String> userIds = new ArrayList<>();
+    private String groupId;
+
+    @Test
+    public void splitAtMaxOperations() {
+
+        logger.info("Creating {} users with at most 2 operations per bulk request", USERS);
+        BulkPipeline pipeline = new BulkPipeline(recorder(), 2, NO_SIZE_LIMIT, 2, executor);
+        List<BulkOperation> results = pipeline.process(IntStream.range(0, USERS).mapToObj(i -> userPost("u" + i)));
+
+        List<Integer> counts = sent.stream().map(r -> r.getOperations().size()).sorted().collect(Collectors.toList());
+        assertEquals(counts, Arrays.asList(1, 2, 2));
+
+        assertEquals(results.size(), USERS);
+        for (BulkOperation result : results) {
+            assertEquals(Integer.parseInt(result.getStatus()), Status.CREATED.getStatusCode());
+            userIds.add(getId(result));
+        }
+
+    }
+
+    @Test(dependsOnMethods = "splitAtMaxOperations")
+    public void splitAtMaxPayloadSize() throws Exception {
+
+        List<BulkOperation> patches = userIds.stream().map(this::userPatch).collect(Collectors.toList());
+        //Room for about two operations per request
+        long maxPayloadSize = 3L * mapper.writeValueAsBytes(patches.get(0)).length;
+
+        logger.info("Updating {} users with bulk requests of {} bytes at most", USERS, maxPayloadSize);
+        BulkPipeline pipeline = new BulkPipeline(recorder(), 100, maxPayloadSize, 2, executor);
+        List<BulkOperation> results = pipeline.process(patches.stream());
+
+        assertTrue(sent.size() > 1);
+        assertTrue(sizes.stream().allMatch(size -> size <= maxPayloadSize), "Sizes " + sizes);
+        assertEquals(sent.stream().mapToInt(r -> r.getOperations().size()).sum(), USERS);
+
+        assertEquals(results.size(), USERS);
+        assertTrue(results.stream().allMatch(r -> Integer.parseInt(r.getStatus()) == Status.OK.getStatusCode()));
+
+    }
+
+    @Test(dependsOnMethods = "splitAtMaxOperations")
+    public void rejectOversizedOperation() {
+
+        BulkPipeline pipeline = new BulkPipeline(recorder(), 100, 50, 1, executor);
+        try {
+            pipeline.process(userIds.stream().map(this::userPatch));
+            fail("Operation should not fit in a request");
+        } catch (IllegalArgumentException e) {
+            logger.info("Operation rejected: {}", e.getMessage());
+        }
+        assertTrue(sent.isEmpty());
+
+    }
+
+    @Test(dependsOnMethods = "splitAtMaxOperations")
+    public void resolveBulkIdsAcrossRequests() {
+
+        logger.info("Creating a user and a group referencing it in separate bulk requests");
+        BulkOperation group = groupPost("g", "bulkId:member");
+        //A window of 3 would allow both requests in course at once if the pipeline did not wait for the user
+        BulkPipeline pipeline = new BulkPipeline(recorder(), 1, NO_SIZE_LIMIT, 3, executor);
+        List<BulkOperation> results = pipeline.process(Arrays.asList(userPost("member"), group).stream());
+
+        assertEquals(sent.size(), 2);
+        assertEquals(sent.get(0).getOperations().get(0).getBulkId(), "member");
+        assertEquals(sent.get(1).getOperations().get(0).getBulkId(), "g");
+
+        BulkOperation userResult = results.stream().filter(r -> "member".equals(r.getBulkId())).findFirst().get();
+        BulkOperation groupResult = results.stream().filter(r -> "g".equals(r.getBulkId())).findFirst().get();
+        assertEquals(Integer.parseInt(userResult.getStatus()), Status.CREATED.getStatusCode());
+        assertEquals(Integer.parseInt(groupResult.getStatus()), Status.CREATED.getStatusCode());
+
+        String memberId = getId(userResult);
+        userIds.add(memberId);
+        groupId = getId(groupResult);
+
+        //The reference was rewritten before sending the group
+        assertFalse(group.getDataStr().contains("bulkId:"));
+        assertTrue(group.getDataStr().contains(memberId));
+
+        Response response = client.getGroupById(groupId, "members", null);
+        assertEquals(response.getStatus(), Status.OK.getStatusCode());
+        Set<Member> members = response.readEntity(GroupResource.class).getMembers();
+        assertEquals(members.size(), 1);
+        assertEquals(members.iterator().next().getValue(), memberId);
+
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void delete() {
+
+        logger.info("Cleaning...");
+        if (groupId != null) {
+            assertEquals(client.deleteGroup(groupId).getStatus(), Status.NO_CONTENT.getStatusCode());
+        }
+        for (String id : userIds) {
+            assertEquals(client.deleteUser(id).getStatus(), Status.NO_CONTENT.getStatusCode());
+        }
+        executor.shutdown();
+
+    }
+
+    /**
+     * Sends requests with the client, remembering them. Previous requests are forgotten
+     */
+    private Function<BulkRequest, Response> recorder() {
+
+        sent.clear();
+        sizes.clear();
+        return request -> {
+            try {
+                sizes.add(mapper.writeValueAsBytes(request).length);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            sent.add(request);
+            return client.processBulkOperations(request);
+        };
+
+    }
+
+    private BulkOperation userPost(String bulkId) {
+
+        Map<String, Object> user = new HashMap<>();
+        user.put("schemas", Collections.singletonList("urn:ietf:params:scim:schemas:core:2.0:User"));
+        user.put("userName", "pipeline_" + bulkId + "_" + System.currentTimeMillis());
+
+        BulkOperation op = new BulkOperation();
+        op.setMethod("POST");
+        op.setPath("/Users");
+        op.setBulkId(bulkId);
+        op.setData(user);
+        return op;
+
+    }
+
+    private BulkOperation userPatch(String id) {
+
+        Map<String, Object> replace = new HashMap<>();
+        replace.put("op", "replace");
+        replace.put("path", "displayName");
+        replace.put("value", "Pipelined user");
+
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("schemas", Collections.singletonList("urn:ietf:params:scim:api:messages:2.0:PatchOp"));
+        patch.put("Operations", Collections.singletonList(replace));
+
+        BulkOperation op = new BulkOperation();
+        op.setMethod("PATCH");
+        op.setPath("/Users/" + id);
+        op.setData(patch);
+        return op;
+
+    }
+
+    private BulkOperation groupPost(String bulkId, String memberRef) {
+
+        Map<String, Object> group = new HashMap<>();
+        group.put("schemas", Collections.singletonList("urn:ietf:params:scim:schemas:core:2.0:Group"));
+        group.put("displayName", "Pipeline group");
+        group.put("members", Collections.singletonList(Collections.singletonMap("value", memberRef)));
+
+        BulkOperation op = new BulkOperation();
+        op.setMethod("POST");
+        op.setPath("/Groups");
+        op.setBulkId(bulkId);
+        op.setData(group);
+        return op;
+
+    }
+
+    private String getId(BulkOperation result) {
+        String location = result.getLocation();
+        assertNotNull(location);
+        return location.substring(location.lastIndexOf("/") + 1);
+    }
+
+}
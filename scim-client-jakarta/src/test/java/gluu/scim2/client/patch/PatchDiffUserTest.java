@@ -0,0 +1,213 @@
+package gluu.scim2.client.patch;
+
+import gluu.scim2.client.UserBaseTest;
+import org.gluu.oxtrust.model.scim2.CustomAttributes;
+import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
+import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
+import org.gluu.oxtrust.model.scim2.user.Email;
+import org.gluu.oxtrust.model.scim2.user.PhoneNumber;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.gluu.oxtrust.model.scim2.util.ResourceDiffUtil;
+import org.testng.annotations.Test;
+
+import jakarta.ws.rs.core.Response;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static jakarta.ws.rs.core.Response.Status.*;
+
+import static org.gluu.oxtrust.model.scim2.Constants.USER_EXT_SCHEMA_ID;
+import static org.testng.Assert.*;
+
+/**
+ * Round-trips the patches computed by {@link ResourceDiffUtil}: diff, patch, and verification of the resulting user
+ */
+public class PatchDiffUserTest extends UserBaseTest {
+
+    private UserResource user;
+
+    @Test
+    public void create(){
+
+        UserResource dummy = new UserResource();
+        dummy.setUserName("" + System.currentTimeMillis());
+        dummy.setNickName("Jane");
+        dummy.setEmails(new ArrayList<>());
+        dummy.getEmails().add(email("bjane@acme.org", "Jane at ACME", "hobby", null));
+        dummy.getEmails().add(email("bjane@gluu.org", "Jane at Gluu", "work", true));
+
+        PhoneNumber pn = new PhoneNumber();
+        pn.setValue("+57 1234 56789");
+        pn.setType("home");
+        dummy.setPhoneNumbers(Collections.singletonList(pn));
+
+        CustomAttributes custAttrs = new CustomAttributes(USER_EXT_SCHEMA_ID);
+        custAttrs.setAttribute("scimCustomFirst", "one");
+        custAttrs.setAttribute("scimCustomThird", 3);
+        dummy.addCustomAttributes(custAttrs);
+
+        Response response = client.createUser(dummy, null, null);
+        assertEquals(response.getStatus(), CREATED.getStatusCode());
+        user = response.readEntity(usrClass);
+
+    }
+
+    @Test(dependsOnMethods = "create")
+    public void noChanges() throws Exception{
+        assertTrue(ResourceDiffUtil.diff(user, getDeepCloneUsr(user)).getOperations().isEmpty());
+    }
+
+    @Test(dependsOnMethods = "noChanges")
+    public void removeEmptyValues() throws Exception{
+
+        UserResource updated = getDeepCloneUsr(user);
+        updated.setNickName(null);
+        updated.setPhoneNumbers(new ArrayList<>());
+
+        List<PatchOperation> operations = ResourceDiffUtil.diff(user, updated).getOperations();
+        assertEquals(operations.size(), 2);
+        assertTrue(operations.stream().allMatch(op -> op.getOperation().equals("remove") && op.getValue() == null));
+        assertEquals(paths(operations), new HashSet<>(Arrays.asList("nickName", "phoneNumbers")));
+
+        patch(operations);
+        assertNull(user.getNickName());
+        assertNull(user.getPhoneNumbers());
+
+    }
+
+    @Test(dependsOnMethods = "removeEmptyValues")
+    public void valueFilterSelectors() throws Exception{
+
+        UserResource updated = getDeepCloneUsr(user);
+        findEmail(updated, "bjane@acme.org").setType("home");
+
+        List<PatchOperation> operations = ResourceDiffUtil.diff(user, updated).getOperations();
+        assertEquals(operations.size(), 1);
+        assertEquals(operations.get(0).getOperation(), "replace");
+        assertEquals(operations.get(0).getPath(), "emails[value eq \"bjane@acme.org\"].type");
+        assertEquals(operations.get(0).getValue(), "home");
+
+        patch(operations);
+        assertEquals(findEmail(user, "bjane@acme.org").getType(), "home");
+        //The other email is untouched
+        assertEquals(findEmail(user, "bjane@gluu.org").getType(), "work");
+        assertTrue(findEmail(user, "bjane@gluu.org").getPrimary());
+
+    }
+
+    @Test(dependsOnMethods = "valueFilterSelectors")
+    public void primaryMovedToEarlierElement() throws Exception{
+
+        //Make the primary email come last in the version compared against
+        user.getEmails().sort(Comparator.comparing(email -> Boolean.TRUE.equals(email.getPrimary())));
+        UserResource updated = getDeepCloneUsr(user);
+        findEmail(updated, "bjane@acme.org").setPrimary(true);
+        findEmail(updated, "bjane@gluu.org").setPrimary(false);
+
+        //Elements carry enough data for per-element replacements to be smaller than a full replacement
+        List<PatchOperation> operations = ResourceDiffUtil.diff(user, updated).getOperations();
+        List<String> paths = operations.stream().map(PatchOperation::getPath).collect(Collectors.toList());
+        int demotion = paths.indexOf("emails[value eq \"bjane@gluu.org\"].primary");
+        int promotion = paths.indexOf("emails[value eq \"bjane@acme.org\"].primary");
+
+        assertTrue(demotion >= 0 && promotion >= 0, "Operations " + paths);
+        assertTrue(demotion < promotion, "Operations " + paths);
+
+        patch(operations);
+        List<Email> primaries = user.getEmails().stream().filter(email -> Boolean.TRUE.equals(email.getPrimary()))
+                .collect(Collectors.toList());
+        assertEquals(primaries.size(), 1);
+        assertEquals(primaries.get(0).getValue(), "bjane@acme.org");
+
+    }
+
+    @Test(dependsOnMethods = "primaryMovedToEarlierElement")
+    public void fullReplacementWhenSmaller() throws Exception{
+
+        UserResource updated = getDeepCloneUsr(user);
+        updated.setEmails(new ArrayList<>());
+        updated.getEmails().add(email("jane@example.com", "Jane", "work", true));
+        updated.getEmails().add(email("jane@example.org", "Jane", "other", null));
+
+        List<PatchOperation> operations = ResourceDiffUtil.diff(user, updated).getOperations();
+        //Removing both elements and adding two others is bigger than replacing the attribute
+        assertEquals(operations.size(), 1);
+        assertEquals(operations.get(0).getOperation(), "replace");
+        assertEquals(operations.get(0).getPath(), "emails");
+
+        patch(operations);
+        assertEquals(user.getEmails().stream().map(Email::getValue).collect(Collectors.toSet()),
+                new HashSet<>(Arrays.asList("jane@example.com", "jane@example.org")));
+
+    }
+
+    @Test(dependsOnMethods = "fullReplacementWhenSmaller")
+    public void extensionPaths() throws Exception{
+
+        UserResource updated = getDeepCloneUsr(user);
+        CustomAttributes custAttrs = updated.getCustomAttributes(USER_EXT_SCHEMA_ID);
+        custAttrs.remove("scimCustomFirst");
+        custAttrs.setAttribute("scimCustomThird", 4);
+
+        List<PatchOperation> operations = ResourceDiffUtil.diff(user, updated).getOperations();
+        assertEquals(operations.size(), 2);
+        for (PatchOperation operation : operations) {
+            if (operation.getOperation().equals("remove")) {
+                assertEquals(operation.getPath(), USER_EXT_SCHEMA_ID + ":scimCustomFirst");
+            } else {
+                assertEquals(operation.getOperation(), "replace");
+                assertEquals(operation.getPath(), USER_EXT_SCHEMA_ID + ":scimCustomThird");
+                assertEquals(operation.getValue(), 4);
+            }
+        }
+
+        patch(operations);
+        custAttrs = user.getCustomAttributes(USER_EXT_SCHEMA_ID);
+        assertNull(custAttrs.getValue("scimCustomFirst", String.class));
+        assertEquals(custAttrs.getValue("scimCustomThird", Integer.class).intValue(), 4);
+
+    }
+
+    @Test(dependsOnMethods = "extensionPaths", alwaysRun = true)
+    public void delete(){
+        deleteUser(user);
+    }
+
+    /**
+     * Applies the operations to the user and retrieves it afresh
+     */
+    private void patch(List<PatchOperation> operations){
+
+        PatchRequest request = new PatchRequest();
+        request.setOperations(operations);
+
+        Response response = client.patchUser(request, user.getId(), null, null);
+        assertEquals(response.getStatus(), OK.getStatusCode());
+
+        response = client.getUserById(user.getId(), null, null);
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        user = response.readEntity(usrClass);
+
+    }
+
+    private Set<String> paths(List<PatchOperation> operations){
+        return operations.stream().map(PatchOperation::getPath).collect(Collectors.toSet());
+    }
+
+    private Email findEmail(UserResource user, String value){
+        return user.getEmails().stream().filter(email -> email.getValue().equals(value)).findFirst().get();
+    }
+
+    private Email email(String value, String display, String type, Boolean primary){
+
+        Email email = new Email();
+        email.setValue(value);
+        email.setDisplay(display);
+        email.setType(type);
+        email.setPrimary(primary);
+        return email;
+
+    }
+
+}
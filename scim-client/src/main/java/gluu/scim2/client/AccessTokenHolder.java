@@ -0,0 +1,225 @@
+package gluu.scim2.client;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Keeps the access token a client is using and takes care of renewing it. Renewals are single-flight: when several
+ * threads need a new token at the same time only one request is sent to the authorization server and the rest wait
+ * for its outcome.
+ * <p>If the token source is supplied upon construction, the token is refreshed in the background shortly before it
+ * expires (as reported by the {@code expires_in} value of the token response). The margin defaults to 30 seconds and
+ * can be changed by setting the system property {@code scim.token.refreshmargin} (in seconds).</p>
+ */
+class AccessTokenHolder {
+
+    private static final long REFRESH_MARGIN = Optional.ofNullable(System.getProperty("scim.token.refreshmargin"))
+            .map(prop -> {
+                try {
+                    return TimeUnit.SECONDS.toMillis(Long.parseLong(prop));
+                } catch (Exception e) {
+                    return null;
+                }
+            }).orElse(TimeUnit.SECONDS.toMillis(30));
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "scim-client-token-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private TokenSource source;
+
+    private volatile Token current;
+
+    private volatile ScheduledFuture<?> scheduledRefresh;
+
+    private AtomicReference<CompletableFuture<Token>> inFlight = new AtomicReference<>();
+
+    /**
+     * A means to obtain new tokens
+     */
+    @FunctionalInterface
+    interface TokenSource {
+        Token fetch() throws Exception;
+    }
+
+    /**
+     * An access token plus the instant at which it should be replaced
+     */
+    static class Token {
+
+        private String value;
+        private long refreshAt;
+
+        /**
+         * @param value Access token
+         * @param expiresIn Lifetime of the token in seconds. A null or non-positive value means it's unknown
+         */
+        Token(String value, Integer expiresIn) {
+
+            this.value = value;
+            if (expiresIn == null || expiresIn <= 0) {
+                refreshAt = Long.MAX_VALUE;
+            } else {
+                long lifetime = TimeUnit.SECONDS.toMillis(expiresIn);
+                //For very short-lived tokens the margin would be too big
+                refreshAt = System.currentTimeMillis() + lifetime - Math.min(REFRESH_MARGIN, lifetime / 2);
+            }
+
+        }
+
+        String getValue() {
+            return value;
+        }
+
+        boolean isDue() {
+            return System.currentTimeMillis() >= refreshAt;
+        }
+
+    }
+
+    /**
+     * Creates a holder whose tokens are renewed on demand only (see {@link #refresh(String, TokenSource)})
+     */
+    AccessTokenHolder() {
+    }
+
+    /**
+     * Creates a holder whose tokens are obtained from the source passed, and renewed in the background before they expire
+     * @param source Source of tokens
+     */
+    AccessTokenHolder(TokenSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns the current token. If a source was supplied and the token is about to expire (e.g. because a background
+     * refresh failed), a new one is requested first
+     * @return The current token value, or null if none has been obtained so far
+     */
+    String getValue() {
+
+        Token token = current;
+        if (source != null && (token == null || token.isDue())) {
+            try {
+                token = obtain(source);
+            } catch (Exception e) {
+                //Go ahead with the current token if any: the server will tell whether it is still valid
+                logger.error("Unable to refresh access token: {}", e.getMessage());
+                logger.trace(e.getMessage(), e);
+            }
+        }
+        return token == null ? null : token.getValue();
+
+    }
+
+    /**
+     * Obtains a new token from the source supplied upon construction
+     * @param staleValue Token known to be invalid (e.g. rejected by the server), or null
+     * @return The token value obtained
+     * @throws Exception If the token could not be obtained
+     */
+    String refresh(String staleValue) throws Exception {
+        return refresh(staleValue, source);
+    }
+
+    /**
+     * Obtains a new token. If another thread already replaced the stale token passed (or obtained one when the stale
+     * value is null), that replacement is returned instead of issuing another request, and if a request is already in
+     * course, its outcome is awaited
+     * @param staleValue Token known to be invalid (e.g. rejected by the server), or null if no token was used
+     * @param tokenSource Where to get a token from in case a request has to be made
+     * @return The token value obtained
+     * @throws Exception If the token could not be obtained
+     */
+    String refresh(String staleValue, TokenSource tokenSource) throws Exception {
+
+        Token token = current;
+        if (token != null && token.getValue() != null && !token.getValue().equals(staleValue) && !token.isDue()) {
+            return token.getValue();
+        }
+        return obtain(tokenSource).getValue();
+
+    }
+
+    /**
+     * Cancels any pending background refresh
+     */
+    void close() {
+        Optional.ofNullable(scheduledRefresh).ifPresent(f -> f.cancel(false));
+    }
+
+    private Token obtain(TokenSource tokenSource) throws Exception {
+
+        CompletableFuture<Token> mine = new CompletableFuture<>();
+        CompletableFuture<Token> running = inFlight.get();
+
+        while (running == null) {
+            if (inFlight.compareAndSet(null, mine)) {
+                return fetch(tokenSource, mine);
+            }
+            running = inFlight.get();
+        }
+        try {
+            logger.trace("Waiting for access token request in course");
+            return running.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+
+    }
+
+    private Token fetch(TokenSource tokenSource, CompletableFuture<Token> future) throws Exception {
+
+        try {
+            Token token = tokenSource.fetch();
+            current = token;
+            scheduleRefresh(token);
+
+            inFlight.set(null);
+            future.complete(token);
+            return token;
+        } catch (Exception e) {
+            inFlight.set(null);
+            future.completeExceptionally(e);
+            throw e;
+        }
+
+    }
+
+    private void scheduleRefresh(Token token) {
+
+        if (source != null && token.refreshAt != Long.MAX_VALUE) {
+            close();
+
+            long delay = Math.max(token.refreshAt - System.currentTimeMillis(), 0);
+            logger.trace("Access token will be refreshed in {} ms", delay);
+            scheduledRefresh = SCHEDULER.schedule(() -> {
+                try {
+                    refresh(token.getValue());
+                } catch (Exception e) {
+                    //getValue will retry
+                    logger.warn("Background refresh of access token failed: {}", e.getMessage());
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+    }
+
+}
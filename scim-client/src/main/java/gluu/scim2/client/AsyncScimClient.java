@@ -0,0 +1,380 @@
+package gluu.scim2.client;
+
+import java.io.Closeable;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpAsyncClient4Engine;
+
+import gluu.scim2.client.exception.ScimInitializationException;
+import gluu.scim2.client.rest.FreelyAccessible;
+import gluu.scim2.client.rest.provider.AuthorizationInjectionFilter;
+import gluu.scim2.client.rest.provider.ConditionalRequestFilter;
+import gluu.scim2.client.rest.provider.ListResponseProvider;
+import gluu.scim2.client.rest.provider.ScimResourceProvider;
+
+import static org.gluu.oxtrust.model.scim2.Constants.MEDIA_TYPE_SCIM_JSON;
+
+/**
+ * A non-blocking counterpart of the clients returned by {@link gluu.scim2.client.factory.ScimClientFactory ScimClientFactory}.
+ * Requests are issued on a NIO-based HTTP engine with a bounded connection pool, so a handful of threads can drive a
+ * large number of concurrent requests: when all connections to a host are in use, further requests wait in the pool
+ * queue without holding any thread.
+ * <p>Calls are expressed by means of the same interfaces used for synchronous clients, e.g.:</p>
+ * <pre>
+ * AsyncScimClient&lt;ClientSideService&gt; client = ScimClientFactory.getAsyncOAuthClient(...);
+ * CompletableFuture&lt;Response&gt; future = client.submit(service -&gt; service.getUserById(id, null, null));
+ * </pre>
+ * <p>Authorization is handled as in synchronous clients (including a second attempt when the service replies 401).
+ * Responses are fully buffered before futures are completed. Instances are thread-safe; call {@link #close()} to free
+ * the underlying resources.</p>
+ * <p><b>Note:</b> Do not instantiate this class in your code, use the corresponding methods of
+ * {@link gluu.scim2.client.factory.ScimClientFactory ScimClientFactory}.</p>
+ * @param <T> The interface that determines the service methods that can be invoked
+ */
+public class AsyncScimClient<T> implements Closeable {
+
+    private static final Map<Method, RequestTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    //Runs the (potentially blocking) renewal of tokens after a request is rejected
+    private static final ExecutorService AUTHORIZATION_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "scim-client-authorization");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private Class<T> serviceClass;
+
+    private AbstractScimClient<T> authzClient;
+
+    private ResteasyClient client;
+
+    private WebTarget target;
+
+    private ClientMap clientMap = ClientMap.instance();
+
+    /**
+     * Creates an asynchronous client
+     * @param serviceClass Interface whose methods will be invoked (see {@link #submit(Function)})
+     * @param domain The root URL of the SCIM service
+     * @param authzClient A (synchronous) client whose authorization logic will be reused
+     * @param maxConnections Maximum number of connections in the pool
+     * @param maxConnectionsPerHost Maximum number of concurrent connections per target host
+     */
+    public AsyncScimClient(Class<T> serviceClass, String domain, AbstractScimClient<T> authzClient, int maxConnections,
+                           int maxConnectionsPerHost) {
+
+        this.serviceClass = serviceClass;
+        this.authzClient = authzClient;
+
+        try {
+            PoolingNHttpClientConnectionManager cm = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+            cm.setMaxTotal(maxConnections);
+            cm.setDefaultMaxPerRoute(maxConnectionsPerHost);
+            logger.debug("Using non-blocking engine with maxTotalConnections={} and maxPerRouteConnections={}",
+                    maxConnections, maxConnectionsPerHost);
+
+            CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                    .setDefaultRequestConfig(RequestConfig.custom().setCookieSpec(CookieSpecs.STANDARD).build())
+                    .setConnectionManager(cm).build();
+            httpClient.start();
+
+            client = ((ResteasyClientBuilder) ResteasyClientBuilder.newBuilder())
+                    .httpEngine(new ApacheHttpAsyncClient4Engine(httpClient, true)).build();
+        } catch (IOReactorException e) {
+            throw new ScimInitializationException("Failed to initialize non-blocking HTTP engine", e);
+        }
+
+        target = client.target(domain);
+        target.register(ListResponseProvider.class);
+        target.register(AuthorizationInjectionFilter.class);
+        target.register(ScimResourceProvider.class);
+        target.register(ConditionalRequestFilter.class);
+
+        clientMap.update(client, null);
+
+    }
+
+    /**
+     * Issues a request to the service without blocking the calling thread
+     * @param call A function that invokes exactly one method of the service interface, e.g.
+     *             {@code service -> service.deleteUser(id)}. The function is only used to determine the request to
+     *             issue, thus it must not make use of the value returned by the invocation
+     * @return A future that completes with the (buffered) response to the request, or exceptionally if the request
+     * could not be sent
+     */
+    public CompletableFuture<Response> submit(Function<T, Response> call) {
+
+        Recorder recorder = new Recorder();
+        call.apply(serviceClass.cast(Proxy.newProxyInstance(serviceClass.getClassLoader(), new Class<?>[]{ serviceClass },
+                recorder)));
+
+        if (recorder.method == null) {
+            throw new IllegalArgumentException("No service method was invoked");
+        }
+        return submit(recorder.method, recorder.args);
+
+    }
+
+    private CompletableFuture<Response> submit(Method method, Object[] args) {
+
+        RequestTemplate template = TEMPLATES.computeIfAbsent(method, RequestTemplate::new);
+        if (template.unprotected) {
+            return send(template, args, null);
+        }
+
+        //The header sent is passed along so that authorize knows which token was rejected, whatever thread runs it
+        String header = authzClient.getAuthenticationHeader();
+        return send(template, args, header).thenCompose(response -> {
+            if (response.getStatus() == Response.Status.UNAUTHORIZED.getStatusCode()) {
+                //authorize may block (e.g. waiting for a token), so it runs neither in an I/O thread nor in the common pool
+                return CompletableFuture.supplyAsync(() -> authzClient.authorize(response, header), AUTHORIZATION_EXECUTOR)
+                        .thenCompose(authorized -> {
+                            if (authorized) {
+                                logger.trace("Trying second attempt of request (former received unauthorized response code)");
+                                return send(template, args, authzClient.getAuthenticationHeader());
+                            }
+                            logger.error("Could not get access token for current request: {}", method.getName());
+                            return CompletableFuture.completedFuture(response);
+                        });
+            }
+            return CompletableFuture.completedFuture(response);
+        });
+
+    }
+
+    private CompletableFuture<Response> send(RequestTemplate template, Object[] args, String authzHeader) {
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        try {
+            logger.trace("Sending asynchronous service request for method {}", template.name);
+            template.build(target, args, authzHeader).async().method(template.httpMethod, template.entity(args),
+                    new InvocationCallback<Response>() {
+
+                        public void completed(Response response) {
+                            try {
+                                //Mimic synchronous clients: the entity can be read any number of times
+                                response.bufferEntity();
+                            } catch (Exception e) {
+                                logger.trace(e.getMessage(), e);
+                            }
+                            logger.trace("Response status code was {}", response.getStatus());
+                            future.complete(response);
+                        }
+
+                        public void failed(Throwable throwable) {
+                            future.completeExceptionally(throwable);
+                        }
+
+                    });
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+
+    }
+
+    public void setCustomHeaders(MultivaluedMap<String, String> headers) {
+        logger.info("Setting custom headers");
+        clientMap.setCustomHeaders(client, headers);
+    }
+
+    /**
+     * Attaches a cache to this client (see {@link AbstractScimClient#setResourceCache(ResourceCache)})
+     * @param cache A ResourceCache instance or null
+     */
+    public void setResourceCache(ResourceCache cache) {
+        logger.info("Setting resource cache");
+        clientMap.setResourceCache(client, cache);
+    }
+
+    public void close() {
+        logger.info("Closing asynchronous RestEasy client");
+        clientMap.remove(client);
+        authzClient.close();
+    }
+
+    /**
+     * Captures the method invoked upon a proxy and its arguments
+     */
+    private static class Recorder implements java.lang.reflect.InvocationHandler {
+
+        private Method method;
+        private Object[] args;
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (this.method != null) {
+                throw new IllegalStateException("Only one service method can be invoked per request");
+            }
+            this.method = method;
+            this.args = args == null ? new Object[0] : args;
+            return null;
+        }
+
+    }
+
+    /**
+     * Translation of the JAX-RS annotations of a service method into the elements of a request, computed once per method
+     */
+    private static class RequestTemplate {
+
+        private String name;
+        private String httpMethod;
+        private String path;
+        private String mediaType = MEDIA_TYPE_SCIM_JSON;
+        private String[] accept = new String[0];
+        private boolean unprotected;
+
+        private List<Param> params = new ArrayList<>();
+        private int entityIndex = -1;
+
+        RequestTemplate(Method method) {
+
+            name = method.getName();
+            for (Annotation annotation : method.getAnnotations()) {
+                HttpMethod verb = annotation.annotationType().getAnnotation(HttpMethod.class);
+                if (verb != null) {
+                    httpMethod = verb.value();
+                }
+            }
+            if (httpMethod == null) {
+                throw new IllegalArgumentException(String.format("Method %s is not a service method", name));
+            }
+
+            Path classPath = method.getDeclaringClass().getAnnotation(Path.class);
+            Path methodPath = method.getAnnotation(Path.class);
+            path = (classPath == null ? "" : classPath.value()) + (methodPath == null ? "" : methodPath.value());
+
+            Consumes consumes = method.getAnnotation(Consumes.class);
+            if (consumes != null && consumes.value().length > 0) {
+                mediaType = consumes.value()[0];
+            }
+            Produces produces = method.getAnnotation(Produces.class);
+            if (produces != null) {
+                accept = produces.value();
+            }
+            unprotected = method.isAnnotationPresent(FreelyAccessible.class);
+
+            Annotation[][] annotations = method.getParameterAnnotations();
+            for (int i = 0; i < annotations.length; i++) {
+                Param param = new Param(i, annotations[i]);
+                if (param.kind == null) {
+                    entityIndex = i;
+                } else {
+                    params.add(param);
+                }
+            }
+
+        }
+
+        Invocation.Builder build(WebTarget root, Object[] args, String authzHeader) {
+
+            WebTarget webTarget = root.path(path);
+            for (Param param : params) {
+                Object value = param.valueFrom(args);
+                if (value != null) {
+                    if (param.kind.equals(PathParam.class)) {
+                        webTarget = webTarget.resolveTemplate(param.name, value);
+                    } else if (param.kind.equals(QueryParam.class)) {
+                        webTarget = webTarget.queryParam(param.name, value);
+                    }
+                }
+            }
+
+            Invocation.Builder builder = webTarget.request().accept(accept);
+            for (Param param : params) {
+                Object value = param.valueFrom(args);
+                if (value != null && param.kind.equals(HeaderParam.class)) {
+                    builder.header(param.name, value);
+                }
+            }
+            if (authzHeader != null) {
+                builder.header(HttpHeaders.AUTHORIZATION, authzHeader);
+            }
+            return builder;
+
+        }
+
+        Entity<?> entity(Object[] args) {
+            return entityIndex < 0 || args[entityIndex] == null ? null : Entity.entity(args[entityIndex], mediaType);
+        }
+
+    }
+
+    private static class Param {
+
+        private int index;
+        private Class<? extends Annotation> kind;
+        private String name;
+        private String defaultValue;
+
+        Param(int index, Annotation[] annotations) {
+
+            this.index = index;
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof PathParam) {
+                    kind = PathParam.class;
+                    name = ((PathParam) annotation).value();
+                } else if (annotation instanceof QueryParam) {
+                    kind = QueryParam.class;
+                    name = ((QueryParam) annotation).value();
+                } else if (annotation instanceof HeaderParam) {
+                    kind = HeaderParam.class;
+                    name = ((HeaderParam) annotation).value();
+                } else if (annotation instanceof DefaultValue) {
+                    defaultValue = ((DefaultValue) annotation).value();
+                }
+            }
+            if (kind == null && Arrays.stream(annotations).anyMatch(a -> !(a instanceof DefaultValue))) {
+                //e.g. @Context or any other unsupported kind of parameter: leave it out of requests
+                kind = Annotation.class;
+            }
+
+        }
+
+        Object valueFrom(Object[] args) {
+            return args[index] == null ? defaultValue : args[index];
+        }
+
+    }
+
+}
@@ -0,0 +1,364 @@
+package gluu.scim2.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gluu.oxtrust.model.scim2.bulk.BulkOperation;
+import org.gluu.oxtrust.model.scim2.bulk.BulkRequest;
+import org.gluu.oxtrust.model.scim2.bulk.BulkResponse;
+import org.gluu.oxtrust.model.scim2.provider.config.BulkConfig;
+import org.gluu.oxtrust.model.scim2.provider.config.ServiceProviderConfig;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import gluu.scim2.client.rest.ClientSideService;
+
+/**
+ * Sends an arbitrarily long sequence of bulk operations by packing them into as many bulk requests as needed. Every
+ * request stays under the {@code bulk.maxOperations} and {@code bulk.maxPayloadSize} limits of the service (the size of
+ * requests is computed from their serialized form), and up to a given number of requests (the window) are in course
+ * at the same time.
+ * <p>Operations may refer to resources created by operations sent in previous requests by means of the usual
+ * {@code bulkId:<id>} notation: these references are rewritten with the identifiers assigned by the server. An
+ * operation referring to a resource whose creation is still in course waits for it to finish. Apart from this, operations
+ * in different requests may be applied in any order; use a window of 1 if a strict ordering is needed. Operations
+ * supplied are modified when their references are rewritten.</p>
+ * <p>Example:</p>
+ * <pre>
+ * BulkPipeline pipeline = new BulkPipeline(client, 4);
+ * pipeline.process(users.stream().map(this::toPostOperation), result -&gt; ...);
+ * </pre>
+ */
+public class BulkPipeline {
+
+    private static final ExecutorService SENDER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "scim-client-bulk");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Pattern BULK_ID_REFERENCE = Pattern.compile("bulkId:(\\w+)");
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    private Function<BulkRequest, Response> bulk;
+
+    private int maxOperations;
+
+    private long maxPayloadSize;
+
+    private int window;
+
+    private Executor executor;
+
+    /**
+     * Creates a pipeline whose limits are taken from the service provider configuration of the service
+     * @param client A client object
+     * @param window Maximum number of bulk requests in course at the same time
+     * @throws WebApplicationException If the configuration could not be retrieved
+     */
+    public BulkPipeline(ClientSideService client, int window) {
+        this(client::processBulkOperations, bulkConfig(client), window);
+    }
+
+    /**
+     * Creates a pipeline
+     * @param bulk Function that sends a bulk request, normally {@code client::processBulkOperations}
+     * @param maxOperations Maximum number of operations per bulk request
+     * @param maxPayloadSize Maximum size of bulk requests in bytes
+     * @param window Maximum number of bulk requests in course at the same time
+     * @param executor Executor that sends the requests
+     */
+    public BulkPipeline(Function<BulkRequest, Response> bulk, int maxOperations, long maxPayloadSize, int window,
+                        Executor executor) {
+
+        if (maxOperations <= 0 || maxPayloadSize <= 0 || window <= 0) {
+            throw new IllegalArgumentException("Bulk limits and window must be positive");
+        }
+        this.bulk = bulk;
+        this.maxOperations = maxOperations;
+        this.maxPayloadSize = maxPayloadSize;
+        this.window = window;
+        this.executor = executor;
+
+    }
+
+    private BulkPipeline(Function<BulkRequest, Response> bulk, BulkConfig config, int window) {
+        this(bulk, config.getMaxOperations(), config.getMaxPayloadSize(), window, SENDER);
+    }
+
+    /**
+     * Sends all operations and collects their outcomes
+     * @param operations Operations to send
+     * @return The operations of all bulk responses obtained, in no particular order
+     * @throws WebApplicationException If the service rejected a bulk request as a whole (e.g. due to lack of
+     * authorization). Requests already in course are awaited and no further requests are sent
+     */
+    public List<BulkOperation> process(Stream<BulkOperation> operations) {
+
+        List<BulkOperation> results = new ArrayList<>();
+        process(operations, results::add);
+        return results;
+
+    }
+
+    /**
+     * Sends all operations handing their outcomes to a callback as soon as the corresponding bulk response arrives
+     * @param operations Operations to send
+     * @param results Callback receiving the operations of bulk responses. It is called from other threads, one call
+     *                at a time
+     * @throws WebApplicationException If the service rejected a bulk request as a whole (e.g. due to lack of
+     * authorization). Requests already in course are awaited and no further requests are sent
+     * @throws IllegalArgumentException If an operation is too big to fit in a bulk request
+     */
+    public void process(Stream<BulkOperation> operations, Consumer<BulkOperation> results) {
+
+        Run run = new Run(results);
+        Iterator<BulkOperation> iterator = operations.iterator();
+        try {
+            while (iterator.hasNext() && run.failure.get() == null) {
+                run.add(iterator.next());
+            }
+            if (run.failure.get() == null) {
+                run.dispatch();
+            }
+        } finally {
+            run.await();
+        }
+        Optional.ofNullable(run.failure.get()).ifPresent(e -> {
+            throw e;
+        });
+
+    }
+
+    private static BulkConfig bulkConfig(ClientSideService client) {
+
+        Response response = client.getServiceProviderConfig();
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new WebApplicationException("Unable to retrieve service provider configuration", response);
+        }
+        return response.readEntity(ServiceProviderConfig.class).getBulk();
+
+    }
+
+    /**
+     * A group of operations sent in the same bulk request
+     */
+    private static class Batch {
+
+        private List<BulkOperation> operations = new ArrayList<>();
+        private long size;
+        private CompletableFuture<Void> done = new CompletableFuture<>();
+
+    }
+
+    /**
+     * The state of a single call to process
+     */
+    private class Run {
+
+        private Consumer<BulkOperation> results;
+
+        private Semaphore permits = new Semaphore(window);
+
+        private AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        //bulkId -> batch where the resource is created
+        private Map<String, Batch> owners = new ConcurrentHashMap<>();
+
+        //bulkId -> id of the resource created
+        private Map<String, String> resolvedIds = new ConcurrentHashMap<>();
+
+        private long envelopeSize;
+
+        private Batch current = new Batch();
+
+        Run(Consumer<BulkOperation> results) {
+
+            this.results = results;
+            BulkRequest empty = new BulkRequest();
+            empty.setOperations(Collections.emptyList());
+            envelopeSize = sizeOf(empty);
+            current.size = envelopeSize;
+
+        }
+
+        void add(BulkOperation operation) {
+
+            if (current.operations.size() == maxOperations) {
+                dispatch();
+            }
+            resolveReferences(operation);
+            //Plus one for the separating comma
+            long size = sizeOf(operation) + 1;
+
+            if (current.size + size > maxPayloadSize && !current.operations.isEmpty()) {
+                dispatch();
+                //Resources created in the batch just dispatched are no longer local references
+                resolveReferences(operation);
+                size = sizeOf(operation) + 1;
+            }
+            if (current.size + size > maxPayloadSize) {
+                throw new IllegalArgumentException(String.format("Operation with path %s exceeds maximum payload size (%d bytes)",
+                        operation.getPath(), maxPayloadSize));
+            }
+
+            current.operations.add(operation);
+            current.size += size;
+            Optional.ofNullable(operation.getBulkId()).ifPresent(bulkId -> owners.put(bulkId, current));
+
+        }
+
+        void dispatch() {
+
+            if (current.operations.isEmpty()) {
+                return;
+            }
+            Batch batch = current;
+            current = new Batch();
+            current.size = envelopeSize;
+
+            permits.acquireUninterruptibly();
+            logger.debug("Sending bulk request with {} operations ({} bytes)", batch.operations.size(), batch.size);
+            try {
+                CompletableFuture.runAsync(() -> send(batch), executor).whenComplete((nothing, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        failure.compareAndSet(null, cause instanceof RuntimeException ? (RuntimeException) cause
+                                : new RuntimeException(cause));
+                    }
+                    permits.release();
+                    batch.done.complete(null);
+                });
+            } catch (RuntimeException e) {
+                //The executor refused the task
+                permits.release();
+                batch.done.complete(null);
+                throw e;
+            }
+
+        }
+
+        void await() {
+            permits.acquireUninterruptibly(window);
+            permits.release(window);
+        }
+
+        private void send(Batch batch) {
+
+            BulkRequest request = new BulkRequest();
+            request.setOperations(batch.operations);
+
+            Response response = bulk.apply(request);
+            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                throw new WebApplicationException("Bulk request was rejected", response);
+            }
+            List<BulkOperation> operations = Optional.ofNullable(response.readEntity(BulkResponse.class).getOperations())
+                    .orElse(Collections.emptyList());
+
+            for (BulkOperation operation : operations) {
+                String location = operation.getLocation();
+                if (operation.getBulkId() != null && "POST".equalsIgnoreCase(operation.getMethod()) && location != null) {
+                    resolvedIds.put(operation.getBulkId(), location.substring(location.lastIndexOf('/') + 1));
+                }
+            }
+            synchronized (this) {
+                operations.forEach(results);
+            }
+
+        }
+
+        /**
+         * Replaces references to resources created in other batches with their actual ids, waiting for the batches
+         * to be processed if needed
+         */
+        private void resolveReferences(BulkOperation operation) {
+
+            String path = rewrite(operation.getPath());
+            if (path != null) {
+                operation.setPath(path);
+            }
+            String data = rewrite(operation.getDataStr());
+            if (data != null) {
+                try {
+                    operation.setData(mapper.readValue(data, new TypeReference<Map<String, Object>>(){}));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(e.getMessage(), e);
+                }
+            }
+
+        }
+
+        private String rewrite(String str) {
+
+            if (str == null || !str.contains("bulkId:")) {
+                return null;
+            }
+
+            boolean changed = false;
+            Matcher m = BULK_ID_REFERENCE.matcher(str);
+            StringBuffer sb = new StringBuffer();
+
+            while (m.find()) {
+                String bulkId = m.group(1);
+                Batch owner = owners.get(bulkId);
+                String realId = null;
+
+                //References to resources created in the same batch are resolved by the server
+                if (owner != null && owner != current) {
+                    owner.done.join();
+                    realId = resolvedIds.get(bulkId);
+                }
+                if (realId == null) {
+                    //Unknown or failed bulkId: let the server report the problem
+                    m.appendReplacement(sb, Matcher.quoteReplacement(m.group()));
+                } else {
+                    logger.trace("Replacing bulkId {} with {}", bulkId, realId);
+                    m.appendReplacement(sb, Matcher.quoteReplacement(realId));
+                    changed = true;
+                }
+            }
+            m.appendTail(sb);
+            return changed ? sb.toString() : null;
+
+        }
+
+        private long sizeOf(Object object) {
+
+            try {
+                return mapper.writeValueAsBytes(object).length;
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+
+        }
+
+    }
+
+}
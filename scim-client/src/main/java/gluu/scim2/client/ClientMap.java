@@ -2,25 +2,34 @@ package gluu.scim2.client;
 
 import javax.ws.rs.client.Client;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.ws.rs.core.MultivaluedMap;
 
 /**
  * A singleton object that holds a mapping of the RestEasy clients used by objects that extend the
  * {@link AbstractScimClient AbstractScimClient} class and the access tokens they are using.
  * <p>The method {@link AbstractScimClient#invoke(Object, Method, Object[]) AbstractScimClient#invoke(Object, Method, Object[])}
- * takes charge of the maintenance of this map at every service invocation, while the class
+ * binds the authorization header of every service invocation to the thread issuing the request (see
+ * {@link #setRequestValue(String) setRequestValue}), while the class
  * {@link gluu.scim2.client.rest.provider.AuthorizationInjectionFilter AuthorizationInjectionFilter} makes use of this
- * object to properly inject access tokens in authorization headers.</p>
+ * object to properly inject access tokens in authorization headers. This way, a client instance can be shared by any
+ * number of threads: every request carries its own header and no locking is involved.</p>
+ * <p>All methods of this class are thread-safe.</p>
  */
 public class ClientMap {
 
     private static ClientMap map = new ClientMap();
 
-    private Map<Client, String> mappings = new HashMap<>();
+    //Concurrent maps do not admit null values, hence the Optional
+    private ConcurrentMap<Client, Optional<String>> mappings = new ConcurrentHashMap<>();
 
-    private Map<Client, MultivaluedMap<String, String>> customHeadersMap = new HashMap<>();
+    private ConcurrentMap<Client, MultivaluedMap<String, String>> customHeadersMap = new ConcurrentHashMap<>();
+
+    private ConcurrentMap<Client, ResourceCache> resourceCaches = new ConcurrentHashMap<>();
+
+    private ThreadLocal<String> requestValue = new ThreadLocal<>();
 
     private ClientMap() {
     }
@@ -28,7 +37,7 @@ public class ClientMap {
     public static ClientMap instance() {
         return map;
     }
-    
+
     /**
      * Puts a new client/value pair in the map. If client already exists, the value is replaced.
      *
@@ -36,7 +45,7 @@ public class ClientMap {
      * @param value  Value to associate to this client - normally an access token
      */
     public void update(Client client, String value) {
-        mappings.put(client, value);
+        mappings.put(client, Optional.ofNullable(value));
     }
 
     /**
@@ -48,6 +57,8 @@ public class ClientMap {
         //Frees the resources associated to this RestEasy client
         client.close();
         mappings.remove(client);
+        customHeadersMap.remove(client);
+        resourceCaches.remove(client);
     }
 
     /**
@@ -57,7 +68,34 @@ public class ClientMap {
      * @return A string value. If there is no entry for client in the map, returns null
      */
     public String getValue(Client client) {
-        return mappings.get(client);
+        return Optional.ofNullable(mappings.get(client)).flatMap(value -> value).orElse(null);
+    }
+
+    /**
+     * Associates a value (normally an authorization header) to the request about to be issued by the current thread.
+     * It takes precedence over the value associated to the client in use. Callers must invoke
+     * {@link #clearRequestValue() clearRequestValue} once the request has been sent.
+     *
+     * @param value Value to associate to the current request
+     */
+    public void setRequestValue(String value) {
+        requestValue.set(value);
+    }
+
+    /**
+     * Gets the value associated to the request being issued by the current thread, if any.
+     *
+     * @return A string value or null
+     */
+    public String getRequestValue() {
+        return requestValue.get();
+    }
+
+    /**
+     * Removes the value associated to the request being issued by the current thread.
+     */
+    public void clearRequestValue() {
+        requestValue.remove();
     }
 
     /**
@@ -66,6 +104,7 @@ public class ClientMap {
      */
     public void clean() {
         customHeadersMap.clear();
+        resourceCaches.clear();
         mappings.keySet().forEach(this::remove);
     }
 
@@ -74,7 +113,35 @@ public class ClientMap {
     }
 
     public void setCustomHeaders(Client client, MultivaluedMap<String, String> headersMap) {
-        customHeadersMap.put(client, headersMap);
+        if (headersMap == null) {
+            customHeadersMap.remove(client);
+        } else {
+            customHeadersMap.put(client, headersMap);
+        }
+    }
+
+    /**
+     * Gets the cache used to issue conditional requests with this client
+     *
+     * @param client RestEasy client
+     * @return A ResourceCache or null if the client has no cache attached
+     */
+    public ResourceCache getResourceCache(Client client) {
+        return resourceCaches.get(client);
+    }
+
+    /**
+     * Attaches a cache to this client so that it issues conditional requests (null detaches the current one)
+     *
+     * @param client RestEasy client
+     * @param cache Cache to use
+     */
+    public void setResourceCache(Client client, ResourceCache cache) {
+        if (cache == null) {
+            resourceCaches.remove(client);
+        } else {
+            resourceCaches.put(client, cache);
+        }
     }
 
 }
@@ -3,6 +3,7 @@ package gluu.scim2.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -47,7 +48,7 @@ public class OAuthScimClient<T> extends AbstractScimClient<T> {
 
     private Logger logger = LogManager.getLogger(getClass());
 
-    private String access_token;
+    private AccessTokenHolder tokenHolder = new AccessTokenHolder(this::requestToken);
     private String tokenEndpoint;   //Url of authorization's server token endpoint i.e. https://<host:port>/jans-auth/restv1/token
 
     private String clientId;
@@ -113,8 +114,14 @@ public class OAuthScimClient<T> extends AbstractScimClient<T> {
     }
     
     private void updateTokens() throws Exception {
-		access_token = getTokens().getAccessToken();
-		logger.debug("Got token: " + access_token);
+		String accessToken = tokenHolder.refresh(null);
+		logger.debug("Got token: " + accessToken);
+    }
+
+    private AccessTokenHolder.Token requestToken() throws Exception {
+        TokenResponse response = getTokens();
+        logger.trace("Obtained token expires in {} seconds", response.getExpiresIn());
+        return new AccessTokenHolder.Token(response.getAccessToken(), response.getExpiresIn());
     }
 
     private TokenResponse getTokens() throws Exception {
@@ -141,30 +148,32 @@ public class OAuthScimClient<T> extends AbstractScimClient<T> {
 
     /**
      * Builds a string suitable for being passed as an authorization header. It does so by
-     * prefixing the current access token this object has with the word "Bearer "
+     * prefixing the current access token this object has with the word "Bearer ". Tokens are renewed in the background
+     * shortly before they expire, so normally no request is rejected due to token expiration
      *
      * @return String built
      */
     @Override
     String getAuthenticationHeader() {
-        return "Bearer " + access_token;
+        return "Bearer " + tokenHolder.getValue();
     }
 
     /**
      * Gets a new access token from the authorization server
      *
      * @param response The type of clients represented by this class ignore this param 
+     * @param rejectedHeader Authorization header of the rejected request
      * @return A boolean value indicating the operation was successful
      */
     @Override
-    boolean authorize(Response response) {
+    boolean authorize(Response response, String rejectedHeader) {
         /*
         This method is called if the attempt to use the service returned unauthorized (status = 401), so here we
-        ask for another token, or else leave it that way (forbidden)
+        ask for another token, or else leave it that way (forbidden). When many threads receive 401 at once only one
+        token request is made (and if the token was already replaced, no request is made at all)
          */
         try {
-            updateTokens();
-            return access_token != null;
+            return tokenHolder.refresh(StringUtils.removeStart(rejectedHeader, "Bearer ")) != null;
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
             return false;   //do not make an additional attempt, e.g. getAuthenticationHeader is not called once more
@@ -172,4 +181,10 @@ public class OAuthScimClient<T> extends AbstractScimClient<T> {
 
     }
 
+    @Override
+    public void close() {
+        tokenHolder.close();
+        super.close();
+    }
+
 }
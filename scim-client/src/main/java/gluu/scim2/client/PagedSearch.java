@@ -0,0 +1,294 @@
+package gluu.scim2.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.ListResponse;
+import org.gluu.oxtrust.model.scim2.SearchRequest;
+import org.gluu.oxtrust.model.scim2.provider.config.ServiceProviderConfig;
+
+import gluu.scim2.client.rest.ClientSideService;
+
+/**
+ * Walks the whole result set of a search by issuing as many paged requests as needed. While the caller consumes a page,
+ * the next one is being retrieved in the background, so network latency overlaps with processing.
+ * <p>The search is expressed as a function that sends a {@link SearchRequest} by means of a client obtained from
+ * {@link gluu.scim2.client.factory.ScimClientFactory ScimClientFactory} (thus, authorization is handled as usual), e.g.:</p>
+ * <pre>
+ * SearchRequest request = new SearchRequest();
+ * request.setFilter("userName sw \"a\"");
+ * for (UserResource user : PagedSearch.of(client, client::searchUsersPost, request, UserResource.class, 100)) {
+ *     ...
+ * }
+ * </pre>
+ * <p>Use {@link #stream(boolean)} to consume results in parallel: every page fetched can be processed by a different
+ * thread. In the request supplied, {@code startIndex} (if any) is where the walk starts, and {@code count} (if any)
+ * limits the total number of results retrieved - not the page size. The request object is not modified.</p>
+ * <p>Instances are reusable: every call to {@link #iterator()} or {@link #stream(boolean)} runs the search again.</p>
+ * @param <T> Type of the resources retrieved. Use {@link BaseScimResource} for searches over several resource types
+ */
+public class PagedSearch<T extends BaseScimResource> implements Iterable<T> {
+
+    private static final ExecutorService PREFETCHER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "scim-client-search-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private Function<SearchRequest, Response> search;
+
+    private SearchRequest request;
+
+    private Class<T> resourceClass;
+
+    private int pageSize;
+
+    private Executor executor;
+
+    /**
+     * Creates a paged search that prefetches pages by means of a shared pool of daemon threads
+     * @param search Function that sends a search request, e.g. {@code client::searchGroupsPost} or
+     *               {@code sr -> client.searchDevicesPost(sr, userId)}
+     * @param request Parameters of the search
+     * @param resourceClass Class of the resources retrieved
+     * @param pageSize Number of results to request per page. This should not exceed the server's {@code filter.maxResults}
+     *                 (see {@link #of(ClientSideService, Function, SearchRequest, Class, int) of})
+     */
+    public PagedSearch(Function<SearchRequest, Response> search, SearchRequest request, Class<T> resourceClass, int pageSize) {
+        this(search, request, resourceClass, pageSize, PREFETCHER);
+    }
+
+    /**
+     * Creates a paged search
+     * @param search Function that sends a search request
+     * @param request Parameters of the search
+     * @param resourceClass Class of the resources retrieved
+     * @param pageSize Number of results to request per page
+     * @param executor Executor used to fetch pages in the background
+     */
+    public PagedSearch(Function<SearchRequest, Response> search, SearchRequest request, Class<T> resourceClass,
+                       int pageSize, Executor executor) {
+
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.search = search;
+        this.request = request;
+        this.resourceClass = resourceClass;
+        this.pageSize = pageSize;
+        this.executor = executor;
+
+    }
+
+    /**
+     * Creates a paged search whose pages do not exceed the maximum number of results the service returns in a single
+     * response (see {@link #maxResults(ClientSideService)}). Pages are prefetched by means of a shared pool of daemon
+     * threads
+     * @param client Client used to read the service provider configuration
+     * @param search Function that sends a search request, normally through the same client
+     * @param request Parameters of the search
+     * @param resourceClass Class of the resources retrieved
+     * @param pageSize Desired number of results per page. The service's {@code filter.maxResults} is used if smaller
+     * @param <T> Type of the resources retrieved
+     * @return A PagedSearch instance
+     * @throws WebApplicationException If the service provider configuration could not be retrieved
+     */
+    public static <T extends BaseScimResource> PagedSearch<T> of(ClientSideService client,
+            Function<SearchRequest, Response> search, SearchRequest request, Class<T> resourceClass, int pageSize) {
+        return new PagedSearch<>(search, request, resourceClass, Math.min(pageSize, maxResults(client)));
+    }
+
+    /**
+     * Obtains the maximum number of results the service returns in a single response, as advertised in the
+     * {@code filter.maxResults} attribute of its service provider configuration
+     * @param client A client object
+     * @return The value found
+     * @throws WebApplicationException If the configuration could not be retrieved
+     */
+    public static int maxResults(ClientSideService client) {
+
+        Response response = client.getServiceProviderConfig();
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new WebApplicationException("Unable to retrieve service provider configuration", response);
+        }
+        long maxResults = response.readEntity(ServiceProviderConfig.class).getFilter().getMaxResults();
+        return (int) Math.min(maxResults, Integer.MAX_VALUE);
+
+    }
+
+    /**
+     * Returns an iterator over the results. Network or service errors (i.e. a response other than 200) are thrown as
+     * {@link WebApplicationException}
+     * @return An iterator
+     */
+    public Iterator<T> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Returns a spliterator over the results. Splitting yields the (remaining) contents of the current page
+     * @return A spliterator
+     */
+    public Spliterator<T> spliterator() {
+        return new PageSpliterator();
+    }
+
+    /**
+     * Returns a stream over the results
+     * @param parallel Whether the stream returned is parallel
+     * @return A Stream
+     */
+    public Stream<T> stream(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    private ListResponse fetch(int startIndex, int count) {
+
+        SearchRequest page = new SearchRequest();
+        page.setSchemas(request.getSchemas());
+        page.setAttributes(request.getAttributes());
+        page.setExcludedAttributes(request.getExcludedAttributes());
+        page.setFilter(request.getFilter());
+        page.setSortBy(request.getSortBy());
+        page.setSortOrder(request.getSortOrder());
+        page.setStartIndex(startIndex);
+        page.setCount(count);
+
+        logger.trace("Fetching page of {} results starting at {}", count, startIndex);
+        Response response = search.apply(page);
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new WebApplicationException("Search request failed at index " + startIndex, response);
+        }
+        return response.readEntity(ListResponse.class);
+
+    }
+
+    /**
+     * Not thread-safe, as required by the Spliterator contract: splits are handed to other threads
+     */
+    private class PageSpliterator implements Spliterator<T> {
+
+        private int nextIndex = Optional.ofNullable(request.getStartIndex()).filter(i -> i > 0).orElse(1);
+
+        //Results still to request (the count of the original request), or -1 if unlimited
+        private long remaining = Optional.ofNullable(request.getCount()).map(Integer::longValue).orElse(-1L);
+
+        private long estimate = Long.MAX_VALUE;
+
+        private CompletableFuture<ListResponse> nextPage;
+
+        private List<T> current = Collections.emptyList();
+
+        private int position;
+
+        private boolean exhausted;
+
+        PageSpliterator() {
+            nextPage = prefetch();
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+
+            if (!ensureCurrent()) {
+                return false;
+            }
+            action.accept(current.get(position++));
+            return true;
+
+        }
+
+        public Spliterator<T> trySplit() {
+
+            if (!ensureCurrent()) {
+                return null;
+            }
+            List<T> batch = current.subList(position, current.size());
+            current = Collections.emptyList();
+            position = 0;
+            return Spliterators.spliterator(batch, ORDERED | NONNULL | IMMUTABLE);
+
+        }
+
+        public long estimateSize() {
+            return estimate;
+        }
+
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        private boolean ensureCurrent() {
+
+            while (position >= current.size()) {
+                if (nextPage == null) {
+                    return false;
+                }
+                ListResponse page;
+                try {
+                    page = nextPage.join();
+                } catch (CompletionException e) {
+                    nextPage = null;
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+                accept(page);
+            }
+            return true;
+
+        }
+
+        private void accept(ListResponse page) {
+
+            List<T> results = new ArrayList<>();
+            Optional.ofNullable(page.getResources()).ifPresent(list -> list.forEach(r -> results.add(resourceClass.cast(r))));
+
+            current = results;
+            position = 0;
+            nextIndex += results.size();
+            if (remaining > 0) {
+                remaining = Math.max(remaining - results.size(), 0);
+            }
+
+            //Nothing else to fetch if this page was empty or the end of the result set was reached
+            exhausted = results.isEmpty() || nextIndex > page.getTotalResults() || remaining == 0;
+            estimate = exhausted ? results.size() : Math.max(page.getTotalResults() - nextIndex + 1, 0) + results.size();
+            //Start retrieving the following page before the caller gets to process this one
+            nextPage = prefetch();
+
+        }
+
+        private CompletableFuture<ListResponse> prefetch() {
+
+            if (exhausted) {
+                return null;
+            }
+            int startIndex = nextIndex;
+            int count = remaining < 0 ? pageSize : (int) Math.min(remaining, pageSize);
+            return CompletableFuture.supplyAsync(() -> fetch(startIndex, count), executor);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,152 @@
+package gluu.scim2.client;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of resource representations used to issue conditional requests. When a client has a cache
+ * attached (see {@link AbstractScimClient#setResourceCache(ResourceCache) setResourceCache}), the representations
+ * retrieved by GET requests are stored here along with their ETags. Subsequent retrievals of the same URL carry an
+ * {@code If-None-Match} header, and if the service responds 304 (Not Modified), the cached representation is handed
+ * to the caller as if the service had sent it again with status 200.
+ * <p>Representations are stored in serialized form so that callers always get fresh objects from
+ * {@code readEntity} and can modify them freely. Entries are evicted in least-recently-used order. Successful
+ * modifications (PUT, PATCH, DELETE) issued through the same client evict the entries of the resource modified.</p>
+ * <p>All methods of this class are thread-safe. A cache can be shared by several clients.</p>
+ */
+public class ResourceCache {
+
+    private final int maxEntries;
+
+    private final Map<URI, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates an empty cache
+     * @param maxEntries Maximum number of representations held
+     */
+    public ResourceCache(int maxEntries) {
+
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<URI, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+                return size() > ResourceCache.this.maxEntries;
+            }
+        };
+
+    }
+
+    /**
+     * Gets the representation cached for a URL
+     * @param uri URL of the request (query parameters included)
+     * @return An Entry or null
+     */
+    public synchronized Entry get(URI uri) {
+        return entries.get(uri);
+    }
+
+    /**
+     * Stores a representation
+     * @param uri URL of the request (query parameters included)
+     * @param etag Entity tag sent by the service for the representation
+     * @param contentType Value of the Content-Type header of the response
+     * @param body Payload of the response
+     */
+    public synchronized void put(URI uri, String etag, String contentType, byte[] body) {
+        entries.put(uri, new Entry(etag, contentType, body));
+    }
+
+    /**
+     * Accounts for a retrieval the service answered with 304, i.e. served from this cache
+     */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Accounts for a retrieval whose response came from the service (any status other than 304)
+     */
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Removes the representations of a resource, i.e. those cached for its URL regardless of query parameters
+     * @param uri URL of the resource
+     */
+    public synchronized void invalidate(URI uri) {
+        String path = uri.getPath();
+        entries.keySet().removeIf(key -> key.getPath().equals(path));
+    }
+
+    /**
+     * Removes all entries
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Number of representations currently held
+     * @return An int value
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Number of 304 responses that were served from this cache
+     * @return A long value
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of retrievals that were not served from this cache: first retrievals, retrievals of representations
+     * evicted or modified, and responses other than 200 or 304
+     * @return A long value
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * A cached representation
+     */
+    public static class Entry {
+
+        private final String etag;
+        private final String contentType;
+        private final byte[] body;
+
+        Entry(String etag, String contentType, byte[] body) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+    }
+
+}
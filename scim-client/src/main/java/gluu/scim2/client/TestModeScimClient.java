@@ -177,10 +177,11 @@ public class TestModeScimClient<T> extends AbstractScimClient<T> {
      *
      * @param response This parameter is not used in practice: there is no need to inspect this value in a setting of
      *                 test mode
+     * @param rejectedHeader This parameter is not used either
      * @return A boolean value indicating the operation was successful
      */
     @Override
-    boolean authorize(Response response) {
+    boolean authorize(Response response, String rejectedHeader) {
         /*
         This method is called if the attempt to use the service returned unauthorized (status = 401), so here we check if
         client expired to generate a new one & ask for another token, or else leave it that way (forbidden)
@@ -1,5 +1,7 @@
 package gluu.scim2.client.rest;
 
+import gluu.scim2.client.ResourceCache;
+
 import javax.ws.rs.core.MultivaluedMap;
 
 @Deprecated
@@ -9,4 +11,6 @@ public interface CloseableClient {
 
     void setCustomHeaders(MultivaluedMap<String, String> headers);
 
+    void setResourceCache(ResourceCache cache);
+
 }
@@ -1,13 +1,8 @@
 package gluu.scim2.client.rest.provider;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.gluu.oxtrust.model.scim2.BaseScimResource;
 import org.gluu.oxtrust.model.scim2.ListResponse;
-import org.gluu.oxtrust.model.scim2.util.IntrospectUtil;
-import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.WebApplicationException;
@@ -18,11 +13,8 @@ import javax.ws.rs.ext.Provider;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.nio.charset.Charset;
-import java.util.*;
 
 import static org.gluu.oxtrust.model.scim2.Constants.*;
 
@@ -44,7 +36,7 @@ public class ListResponseProvider implements MessageBodyReader<ListResponse> {
 
     private Logger logger = LogManager.getLogger(getClass());
 
-    private ObjectMapper mapper=new ObjectMapper();
+    private ListResponseReader reader = new ListResponseReader();
 
     public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
     	//logger.info("ListResponseProvider in use.");
@@ -54,40 +46,8 @@ public class ListResponseProvider implements MessageBodyReader<ListResponse> {
     public ListResponse readFrom(Class type, Type genericType, Annotation[] annotations, MediaType mediaType,
                                  MultivaluedMap httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
 
-        InputStreamReader isr = new InputStreamReader(entityStream, Charset.forName("UTF-8"));
-        List<BaseScimResource> resources=null;
-
-        //we will get a LinkedHashMap here...
-        Map<String, Object> map=mapper.readValue(isr, new TypeReference<Map<String, Object>>(){});
-        //"remove" what came originally
-        Object branch=map.remove("Resources");
-
-        if (branch!=null) {
-
-            resources=new ArrayList<>();
-            //Here we assume everything is coming from the server correctly (that is, following the spec) and conversions succeed
-            for (Object resource : (Collection) branch){
-                Map<String, Object> resourceAsMap=IntrospectUtil.strObjMap(resource);
-                List<String> schemas=(List<String>) resourceAsMap.get("schemas");
-
-                //Guess the real class of the resource by inspecting the schemas in it
-                for (String schema : schemas) {
-                    for (Class<? extends BaseScimResource> cls : IntrospectUtil.allAttrs.keySet()) {
-                        if (ScimResourceUtil.getSchemaAnnotation(cls).id().equals(schema)) {
-                            //Create the object with the proper class
-                            resources.add(mapper.convertValue(resource, cls));
-                            logger.trace("Found resource of class {} in ListResponse", cls.getSimpleName());
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-
-        ListResponse response=mapper.convertValue(map, ListResponse.class);
-        response.setResources(resources);
-
-        return response;
+        //Resources are bound to their classes as they are parsed, see ListResponseReader
+        return reader.read(entityStream);
 
     }
 
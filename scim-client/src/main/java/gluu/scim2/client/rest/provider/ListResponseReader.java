@@ -0,0 +1,246 @@
+package gluu.scim2.client.rest.provider;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.ListResponse;
+import org.gluu.oxtrust.model.scim2.util.IntrospectUtil;
+import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reads {@link ListResponse ListResponse} payloads (e.g. search responses) incrementally. The {@code Resources} array
+ * is tokenized and every element is bound directly to the class that corresponds to its schema, so that at most one
+ * resource is held in raw (non-bound) form at any time.
+ * <p>Besides reading a whole {@link ListResponse ListResponse} (this is what {@link ListResponseProvider} does), resources
+ * can be handed to a callback one by one ({@link #read(InputStream, Consumer)}) or pulled from an iterator
+ * ({@link #iterator(InputStream)}), in which case they are never collected in a list. For instance:</p>
+ * <pre>
+ * Response response = client.searchUsers(filter, 1, 1000, null, null, null, null);
+ * ListResponse header = new ListResponseReader().read(response.readEntity(InputStream.class), resource -&gt; ...);
+ * </pre>
+ * <p>Instances of this class are thread-safe.</p>
+ */
+public class ListResponseReader {
+
+    private static final String RESOURCES_ATTRIBUTE = "Resources";
+
+    //Maps the core schema URN of every resource type to its class
+    private static final Map<String, Class<? extends BaseScimResource>> RESOURCE_CLASSES;
+
+    static {
+        Map<String, Class<? extends BaseScimResource>> map = new HashMap<>();
+        for (Class<? extends BaseScimResource> cls : IntrospectUtil.allAttrs.keySet()) {
+            map.put(ScimResourceUtil.getSchemaAnnotation(cls).id(), cls);
+        }
+        RESOURCE_CLASSES = Collections.unmodifiableMap(map);
+    }
+
+    private Logger logger = LogManager.getLogger(getClass());
+
+    private ObjectMapper mapper;
+
+    public ListResponseReader() {
+        this(new ObjectMapper());
+    }
+
+    public ListResponseReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Reads a whole {@link ListResponse ListResponse}
+     * @param entityStream Stream containing the JSON payload. It is closed upon return
+     * @return The object read. Its resources are instances of the proper subclasses of {@link BaseScimResource}. If the
+     * payload lacks a {@code Resources} attribute, {@code getResources} returns null
+     * @throws IOException If the payload is not a well-formed list response
+     */
+    public ListResponse read(InputStream entityStream) throws IOException {
+
+        List<BaseScimResource> resources = new ArrayList<>();
+        try (ResourceIterator iterator = iterator(entityStream)) {
+            iterator.forEachRemaining(resources::add);
+
+            ListResponse response = iterator.getListResponse();
+            response.setResources(iterator.hasResources() ? resources : null);
+            return response;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+    }
+
+    /**
+     * Reads a {@link ListResponse ListResponse} handing the resources found to a callback as soon as they are parsed
+     * @param entityStream Stream containing the JSON payload. It is closed upon return
+     * @param consumer Callback that receives the resources (in the order they appear in the payload)
+     * @return An object with the remaining attributes of the response ({@code totalResults}, {@code startIndex}, etc.).
+     * Its resources list is null
+     * @throws IOException If the payload is not a well-formed list response
+     */
+    public ListResponse read(InputStream entityStream, Consumer<? super BaseScimResource> consumer) throws IOException {
+
+        try (ResourceIterator iterator = iterator(entityStream)) {
+            iterator.forEachRemaining(consumer);
+            return iterator.getListResponse();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+    }
+
+    /**
+     * Creates an iterator over the resources contained in a {@link ListResponse ListResponse} payload. Callers should
+     * close the iterator if they stop iterating before reaching the end
+     * @param entityStream Stream containing the JSON payload
+     * @return An iterator. Parsing errors found while iterating are thrown as {@link UncheckedIOException}
+     * @throws IOException If the payload does not contain a JSON object
+     */
+    public ResourceIterator iterator(InputStream entityStream) throws IOException {
+        return new ResourceIterator(mapper.getFactory().createParser(entityStream));
+    }
+
+    /**
+     * An iterator over the resources of a list response that parses them lazily
+     */
+    public class ResourceIterator implements Iterator<BaseScimResource>, Closeable {
+
+        private JsonParser parser;
+        private Map<String, Object> attributes = new LinkedHashMap<>();
+
+        private boolean inResources;
+        private boolean resourcesFound;
+        private boolean finished;
+        private BaseScimResource next;
+
+        private ResourceIterator(JsonParser parser) throws IOException {
+
+            this.parser = parser;
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.close();
+                throw JsonMappingException.from(parser, "Expected a JSON object as list response");
+            }
+
+        }
+
+        public boolean hasNext() {
+
+            if (next == null && !finished) {
+                try {
+                    advance();
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+
+        }
+
+        public BaseScimResource next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BaseScimResource resource = next;
+            next = null;
+            return resource;
+
+        }
+
+        /**
+         * Builds a {@link ListResponse ListResponse} with the attributes found so far other than {@code Resources}. Since
+         * attributes may appear after the resources in the payload, call this once the iteration has finished
+         * @return A ListResponse object whose resources list is null
+         */
+        public ListResponse getListResponse() {
+            return mapper.convertValue(attributes, ListResponse.class);
+        }
+
+        /**
+         * Whether a {@code Resources} attribute has been found so far in the payload
+         * @return A boolean value
+         */
+        public boolean hasResources() {
+            return resourcesFound;
+        }
+
+        public void close() {
+
+            finished = true;
+            try {
+                parser.close();
+            } catch (IOException e) {
+                logger.trace(e.getMessage(), e);
+            }
+
+        }
+
+        private void advance() throws IOException {
+
+            while (next == null && !finished) {
+                JsonToken token = parser.nextToken();
+
+                if (inResources) {
+                    if (token == JsonToken.END_ARRAY) {
+                        inResources = false;
+                    } else if (token == JsonToken.START_OBJECT) {
+                        //Only the resource being parsed is held as a tree, its schemas may come after other attributes
+                        JsonNode node = mapper.readTree(parser);
+                        Class<? extends BaseScimResource> cls = resourceClass(node.get("schemas"));
+
+                        if (cls == null) {
+                            logger.trace("Skipping resource of unknown type in ListResponse");
+                        } else {
+                            logger.trace("Found resource of class {} in ListResponse", cls.getSimpleName());
+                            next = mapper.treeToValue(node, cls);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else if (token == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    token = parser.nextToken();
+
+                    if (RESOURCES_ATTRIBUTE.equals(name) && token == JsonToken.START_ARRAY) {
+                        inResources = true;
+                        resourcesFound = true;
+                    } else {
+                        attributes.put(name, mapper.readValue(parser, Object.class));
+                    }
+                } else {
+                    //End of the object (or premature end of input)
+                    close();
+                }
+            }
+
+        }
+
+        private Class<? extends BaseScimResource> resourceClass(JsonNode schemas) {
+
+            if (schemas != null) {
+                for (JsonNode schema : schemas) {
+                    Class<? extends BaseScimResource> cls = RESOURCE_CLASSES.get(schema.asText());
+                    if (cls != null) {
+                        return cls;
+                    }
+                }
+            }
+            return null;
+
+        }
+
+    }
+
+}
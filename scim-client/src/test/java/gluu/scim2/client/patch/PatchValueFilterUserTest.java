@@ -12,6 +12,7 @@ import org.testng.annotations.Test;
 
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import static javax.ws.rs.core.Response.Status.*;
@@ -83,11 +84,145 @@ public class PatchValueFilterUserTest extends UserBaseTest {
 
     }
 
-    @Test(dependsOnMethods = "objectPatch", alwaysRun = true)
+    @Test(dependsOnMethods = "objectPatch")
+    public void addItems(){
+
+        Address address = new Address();
+        address.setCountry("CO");
+        address.setPrimary(true);
+        address.setRegion("Antioquia");
+        address.setLocality("Medellin");
+        address.setPostalCode("050001");
+
+        //The second email lacks the primary subattribute and the third lacks display
+        patch(operation("add", "emails", Arrays.asList(
+                        email("a@gluu.org", "A", "work", true),
+                        email("b@acme.org", "B", "home", null),
+                        email("c@example.com", null, "other", false))),
+                operation("add", "addresses", Collections.singletonList(address)));
+
+        assertEquals(user.getEmails().size(), 3);
+        assertEquals(user.getAddresses().size(), 2);
+
+    }
+
+    @Test(dependsOnMethods = "addItems")
+    public void equalityAndContains(){
+
+        //Email values are not case exact
+        patch(operation("replace", "emails[value eq \"A@GLUU.ORG\"].display", "eq"),
+                operation("replace", "emails[value co \"acme\"].type", "hobby"));
+
+        assertEquals(findEmail("a@gluu.org").getDisplay(), "eq");
+        assertEquals(findEmail("b@acme.org").getType(), "hobby");
+        //Others untouched
+        assertEquals(findEmail("a@gluu.org").getType(), "work");
+        assertEquals(findEmail("b@acme.org").getDisplay(), "B");
+        assertNull(findEmail("c@example.com").getDisplay());
+
+    }
+
+    @Test(dependsOnMethods = "equalityAndContains")
+    public void presentAndNegated(){
+
+        //Operations are applied in sequence: the second sees the outcome of the first
+        patch(operation("replace", "emails[display pr].type", "pr"),
+                operation("replace", "emails[not(type eq \"pr\")].display", "not"));
+
+        assertEquals(findEmail("a@gluu.org").getType(), "pr");
+        assertEquals(findEmail("b@acme.org").getType(), "pr");
+        assertEquals(findEmail("c@example.com").getType(), "other");
+        assertEquals(findEmail("c@example.com").getDisplay(), "not");
+        assertEquals(findEmail("a@gluu.org").getDisplay(), "eq");
+
+    }
+
+    @Test(dependsOnMethods = "presentAndNegated")
+    public void absentBoolean(){
+
+        //An absent primary is neither true nor false (nor different from true), and it is only matched by negations
+        patch(operation("replace", "emails[primary eq false].type", "secondary"),
+                operation("replace", "emails[primary ne true].value", "c@example.org"),
+                operation("remove", "emails[not(primary eq true) and not(primary eq false)].display", null));
+
+        assertEquals(findEmail("c@example.org").getType(), "secondary");
+        assertEquals(findEmail("b@acme.org").getType(), "pr");
+        assertNull(findEmail("b@acme.org").getDisplay());
+        assertEquals(findEmail("a@gluu.org").getDisplay(), "eq");
+        assertEquals(findEmail("c@example.org").getDisplay(), "not");
+
+    }
+
+    @Test(dependsOnMethods = "absentBoolean")
+    public void nestedLogic(){
+
+        patch(operation("replace", "emails[(type eq \"pr\" or type eq \"secondary\") and not(value ew \".com\")]" +
+                        ".display", "nested"),
+                operation("replace", "addresses[(country eq \"EG\" and not(primary eq true)) or " +
+                        "(region sw \"Ant\" and postalCode eq \"000\")].locality", "Anywhere"),
+                operation("replace", "addresses[primary eq true and (locality co \"dell\" or formatted pr)]" +
+                        ".streetAddress", "Calle 10"));
+
+        //Every email qualifies: types are either pr or secondary and none ends with .com
+        assertTrue(user.getEmails().stream().allMatch(email -> email.getDisplay().equals("nested")));
+
+        Address egypt = findAddress("EG");
+        Address colombia = findAddress("CO");
+        assertEquals(egypt.getLocality(), "Anywhere");
+        assertEquals(egypt.getStreetAddress(), "59 Acacia avenue");
+        assertEquals(colombia.getLocality(), "Medellin");
+        assertEquals(colombia.getStreetAddress(), "Calle 10");
+
+    }
+
+    @Test(dependsOnMethods = "nestedLogic", alwaysRun = true)
     public void delete(){
         deleteUser(user);
     }
 
+    /**
+     * Applies the operations to the user and updates it with the resource returned
+     */
+    private void patch(PatchOperation ...operations){
+
+        PatchRequest request=new PatchRequest();
+        request.setOperations(Arrays.asList(operations));
+
+        Response response = client.patchUser(request, user.getId(), null, null);
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        user=response.readEntity(usrClass);
+
+    }
+
+    private PatchOperation operation(String op, String path, Object value){
+
+        PatchOperation operation=new PatchOperation();
+        operation.setOperation(op);
+        operation.setPath(path);
+        operation.setValue(value);
+        return operation;
+
+    }
+
+    private Email email(String value, String display, String type, Boolean primary){
+
+        Email email = new Email();
+        email.setValue(value);
+        email.setDisplay(display);
+        email.setType(type);
+        email.setPrimary(primary);
+        return email;
+
+    }
+
+    private Email findEmail(String value){
+        return user.getEmails().stream().filter(email -> email.getValue().equals(value)).findFirst().get();
+    }
+
+    private Address findAddress(String country){
+        return user.getAddresses().stream().filter(address -> address.getCountry().equals(country)).findFirst().get();
+    }
+
     private UserResource getDummyUser() {
 
         user = new UserResource();
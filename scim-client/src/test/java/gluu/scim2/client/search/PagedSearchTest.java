@@ -0,0 +1,158 @@
+package gluu.scim2.client.search;
+
+import gluu.scim2.client.PagedSearch;
+import gluu.scim2.client.UserBaseTest;
+import org.gluu.oxtrust.model.scim2.SearchRequest;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.Response;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static javax.ws.rs.core.Response.Status.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Walks result sets spanning several pages with {@link PagedSearch}, sequentially and in parallel
+ */
+public class PagedSearchTest extends UserBaseTest {
+
+    private static final int USERS = 7;
+    private static final int PAGE_SIZE = 2;
+
+    private String nickName = "Paged" + System.currentTimeMillis();
+    private List<UserResource> users = new ArrayList<>();
+
+    //Ids in the order a sequential walk visits them
+    private List<String> walked;
+
+    //Counts of the page requests sent, in the order they were sent
+    private List<Integer> counts = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void create() {
+
+        logger.debug("Creating {} users with nickName {}", USERS, nickName);
+        for (int i = 0; i < USERS; i++) {
+            UserResource dummy = new UserResource();
+            dummy.setUserName(nickName + "_" + i);
+            dummy.setNickName(nickName);
+
+            Response response = client.createUser(dummy, null, null);
+            assertEquals(response.getStatus(), CREATED.getStatusCode());
+            users.add(response.readEntity(usrClass));
+        }
+
+    }
+
+    @Test(dependsOnMethods = "create")
+    public void iterate() {
+
+        walked = new ArrayList<>();
+        for (UserResource user : search(request(), PAGE_SIZE)) {
+            walked.add(user.getId());
+        }
+
+        //All users were visited exactly once
+        assertEquals(walked.size(), USERS);
+        assertEquals(new HashSet<>(walked), users.stream().map(UserResource::getId).collect(Collectors.toSet()));
+        //ceil(USERS / PAGE_SIZE) pages
+        assertEquals(counts.size(), (USERS + PAGE_SIZE - 1) / PAGE_SIZE);
+        assertTrue(counts.stream().allMatch(count -> count == PAGE_SIZE), "Counts " + counts);
+
+    }
+
+    @Test(dependsOnMethods = "iterate")
+    public void startIndexAndCount() {
+
+        SearchRequest request = request();
+        request.setStartIndex(2);
+        request.setCount(3);
+
+        List<String> ids = search(request, PAGE_SIZE).stream(false).map(UserResource::getId).collect(Collectors.toList());
+        assertEquals(ids, walked.subList(1, 4));
+        //The last page only asks for the results still missing
+        assertEquals(counts, Arrays.asList(2, 1));
+
+    }
+
+    @Test(dependsOnMethods = "create")
+    public void pageSizeCapped() {
+
+        int maxResults = PagedSearch.maxResults(client);
+        PagedSearch<UserResource> search = PagedSearch.of(client, recorder(), request(), UserResource.class,
+                Integer.MAX_VALUE);
+
+        assertEquals(search.stream(false).count(), USERS);
+        assertFalse(counts.isEmpty());
+        assertTrue(counts.stream().allMatch(count -> count <= maxResults), "Counts " + counts);
+
+    }
+
+    @Test(dependsOnMethods = "create")
+    public void split() {
+
+        Spliterator<UserResource> spliterator = search(request(), PAGE_SIZE).spliterator();
+        Set<String> ids = new HashSet<>();
+
+        //Splits hand over the remainder of the current page
+        Spliterator<UserResource> page = spliterator.trySplit();
+        assertNotNull(page);
+        assertEquals(page.estimateSize(), PAGE_SIZE);
+        page.forEachRemaining(user -> assertTrue(ids.add(user.getId())));
+
+        spliterator.forEachRemaining(user -> assertTrue(ids.add(user.getId())));
+        assertEquals(ids, users.stream().map(UserResource::getId).collect(Collectors.toSet()));
+        assertNull(spliterator.trySplit());
+
+    }
+
+    @Test(dependsOnMethods = "iterate")
+    public void parallel() {
+
+        List<String> ids = search(request(), PAGE_SIZE).stream(true).map(UserResource::getId)
+                .collect(Collectors.toList());
+        //Encounter order is kept even when pages are processed by different threads
+        assertEquals(ids, walked);
+
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void delete() {
+        users.forEach(this::deleteUser);
+    }
+
+    private SearchRequest request() {
+
+        SearchRequest request = new SearchRequest();
+        request.setFilter("nickName eq \"" + nickName + "\"");
+        request.setSortBy("id");
+        request.setAttributes("id");
+        return request;
+
+    }
+
+    private PagedSearch<UserResource> search(SearchRequest request, int pageSize) {
+        return new PagedSearch<>(recorder(), request, UserResource.class, pageSize);
+    }
+
+    /**
+     * Sends search requests with the client, remembering their counts. Previous counts are forgotten
+     */
+    private Function<SearchRequest, Response> recorder() {
+
+        counts.clear();
+        return request -> {
+            counts.add(request.getCount());
+            return client.searchUsersPost(request);
+        };
+
+    }
+
+}
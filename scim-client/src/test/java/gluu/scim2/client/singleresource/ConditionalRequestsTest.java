@@ -0,0 +1,229 @@
+package gluu.scim2.client.singleresource;
+
+import gluu.scim2.client.ResourceCache;
+import gluu.scim2.client.UserBaseTest;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
+import org.gluu.oxtrust.model.scim2.group.Member;
+import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
+import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.testng.annotations.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import java.util.Collections;
+import java.util.function.Supplier;
+
+import static javax.ws.rs.core.Response.Status.*;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exercises the ETag, If-None-Match and If-Match headers supported by the /Users and /Groups endpoints
+ */
+public class ConditionalRequestsTest extends UserBaseTest {
+
+    private static final Class<GroupResource> groupClass = GroupResource.class;
+
+    private UserResource user;
+    private GroupResource group;
+
+    //Versions of the resources as they were created
+    private String userVersion;
+    private String groupVersion;
+
+    @Test
+    public void create() {
+
+        logger.debug("Creating user and group...");
+        UserResource dummy = new UserResource();
+        dummy.setUserName("" + System.currentTimeMillis());
+        dummy.setNickName("Etag");
+
+        Response response = client.createUser(dummy, null, null);
+        assertEquals(response.getStatus(), CREATED.getStatusCode());
+        user = response.readEntity(usrClass);
+        userVersion = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotNull(userVersion);
+        assertEquals(user.getMeta().getVersion(), userVersion);
+
+        GroupResource dummyGroup = new GroupResource();
+        dummyGroup.setDisplayName("Etag group");
+
+        response = client.createGroup(dummyGroup, null, null);
+        assertEquals(response.getStatus(), CREATED.getStatusCode());
+        group = response.readEntity(groupClass);
+        groupVersion = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotNull(groupVersion);
+        assertEquals(group.getMeta().getVersion(), groupVersion);
+
+    }
+
+    @Test(dependsOnMethods = "create")
+    public void notModified() {
+
+        Response response = withHeader(HttpHeaders.IF_NONE_MATCH, userVersion,
+                () -> client.getUserById(user.getId(), null, null));
+        assertEquals(response.getStatus(), NOT_MODIFIED.getStatusCode());
+        assertEquals(response.getHeaderString(HttpHeaders.ETAG), userVersion);
+
+        response = withHeader(HttpHeaders.IF_NONE_MATCH, groupVersion,
+                () -> client.getGroupById(group.getId(), null, null));
+        assertEquals(response.getStatus(), NOT_MODIFIED.getStatusCode());
+
+        //A version the server does not hold gets the full representation back
+        response = withHeader(HttpHeaders.IF_NONE_MATCH, "W/\"0\"",
+                () -> client.getUserById(user.getId(), null, null));
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        assertEquals(response.readEntity(usrClass).getId(), user.getId());
+
+    }
+
+    @Test(dependsOnMethods = "notModified")
+    public void staleIfMatch() {
+
+        //An update based on the current version succeeds and yields a new one
+        user.setNickName("Etag updated");
+        Response response = withHeader(HttpHeaders.IF_MATCH, userVersion,
+                () -> client.updateUser(user, user.getId(), null, null));
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        String version = response.getHeaderString(HttpHeaders.ETAG);
+        assertNotEquals(version, userVersion);
+
+        logger.debug("Issuing modifications based on outdated version {}", userVersion);
+        user.setNickName("Lost update");
+        response = withHeader(HttpHeaders.IF_MATCH, userVersion,
+                () -> client.updateUser(user, user.getId(), null, null));
+        assertEquals(response.getStatus(), PRECONDITION_FAILED.getStatusCode());
+
+        response = withHeader(HttpHeaders.IF_MATCH, userVersion,
+                () -> client.patchUser(nickNamePatch("Lost patch"), user.getId(), null, null));
+        assertEquals(response.getStatus(), PRECONDITION_FAILED.getStatusCode());
+
+        response = withHeader(HttpHeaders.IF_MATCH, userVersion, () -> client.deleteUser(user.getId()));
+        assertEquals(response.getStatus(), PRECONDITION_FAILED.getStatusCode());
+
+        //None of the above took effect
+        response = client.getUserById(user.getId(), null, null);
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        assertEquals(response.getHeaderString(HttpHeaders.ETAG), version);
+        user = response.readEntity(usrClass);
+        assertEquals(user.getNickName(), "Etag updated");
+        userVersion = version;
+
+    }
+
+    @Test(dependsOnMethods = "staleIfMatch")
+    public void membershipChangesVersion() {
+
+        Member member = new Member();
+        member.setValue(user.getId());
+
+        PatchOperation operation = new PatchOperation();
+        operation.setOperation("add");
+        operation.setPath("members");
+        operation.setValue(Collections.singletonList(member));
+
+        PatchRequest request = new PatchRequest();
+        request.setOperations(Collections.singletonList(operation));
+
+        logger.debug("Adding user {} to group {}", user.getId(), group.getId());
+        Response response = withHeader(HttpHeaders.IF_MATCH, groupVersion,
+                () -> client.patchGroup(request, group.getId(), null, null));
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        assertNotEquals(response.getHeaderString(HttpHeaders.ETAG), groupVersion);
+
+        //Membership is part of the user's representation (groups attribute) so its version changes too
+        response = withHeader(HttpHeaders.IF_NONE_MATCH, userVersion,
+                () -> client.getUserById(user.getId(), null, null));
+        assertEquals(response.getStatus(), OK.getStatusCode());
+        assertNotEquals(response.getHeaderString(HttpHeaders.ETAG), userVersion);
+
+        //The version the group was created with is no longer valid
+        response = withHeader(HttpHeaders.IF_MATCH, groupVersion, () -> client.deleteGroup(group.getId()));
+        assertEquals(response.getStatus(), PRECONDITION_FAILED.getStatusCode());
+
+    }
+
+    @Test(dependsOnMethods = "membershipChangesVersion")
+    public void clientCache() {
+
+        //A cache of one entry only, so that retrieving another resource evicts the previous one
+        ResourceCache cache = new ResourceCache(1);
+        client.setResourceCache(cache);
+        try {
+            //The second retrieval is answered with 304 and served from the cache
+            assertEquals(client.getUserById(user.getId(), null, null).getStatus(), OK.getStatusCode());
+            Response response = client.getUserById(user.getId(), null, null);
+            assertEquals(response.getStatus(), OK.getStatusCode());
+            assertEquals(response.readEntity(usrClass).getId(), user.getId());
+            assertEquals(cache.getHits(), 1);
+            assertEquals(cache.getMisses(), 1);
+
+            logger.debug("Evicting user {} from cache", user.getId());
+            assertEquals(client.getGroupById(group.getId(), null, null).getStatus(), OK.getStatusCode());
+            assertEquals(cache.size(), 1);
+            assertEquals(client.getUserById(user.getId(), null, null).getStatus(), OK.getStatusCode());
+            assertEquals(cache.getHits(), 1);
+            assertEquals(cache.getMisses(), 3);
+
+            //A modification issued through the client invalidates the representation cached
+            user.setNickName("Cached");
+            response = client.updateUser(user, user.getId(), null, null);
+            assertEquals(response.getStatus(), OK.getStatusCode());
+            assertEquals(cache.size(), 0);
+
+            response = client.getUserById(user.getId(), null, null);
+            assertEquals(response.getStatus(), OK.getStatusCode());
+            assertEquals(response.readEntity(usrClass).getNickName(), "Cached");
+            assertEquals(cache.getHits(), 1);
+            assertEquals(cache.getMisses(), 4);
+        } finally {
+            client.setResourceCache(null);
+        }
+
+    }
+
+    @Test(dependsOnMethods = "create", alwaysRun = true)
+    public void delete() {
+
+        client.setCustomHeaders(null);
+        Response response = client.deleteGroup(group.getId());
+        assertEquals(response.getStatus(), NO_CONTENT.getStatusCode());
+        deleteUser(user);
+
+    }
+
+    /**
+     * Issues a request carrying the header passed, subsequent requests do not carry it
+     */
+    private Response withHeader(String name, String value, Supplier<Response> request) {
+
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(name, value);
+        client.setCustomHeaders(headers);
+        try {
+            return request.get();
+        } finally {
+            client.setCustomHeaders(null);
+        }
+
+    }
+
+    private PatchRequest nickNamePatch(String nickName) {
+
+        PatchOperation operation = new PatchOperation();
+        operation.setOperation("replace");
+        operation.setPath("nickName");
+        operation.setValue(nickName);
+
+        PatchRequest request = new PatchRequest();
+        request.setOperations(Collections.singletonList(operation));
+        return request;
+
+    }
+
+}
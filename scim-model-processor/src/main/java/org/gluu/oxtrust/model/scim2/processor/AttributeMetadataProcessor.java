@@ -0,0 +1,425 @@
+/*
+ * oxTrust is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2017, Gluu
+ */
+package org.gluu.oxtrust.model.scim2.processor;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the class <code>org.gluu.oxtrust.model.scim2.util.GeneratedAttributeTables</code> while compiling the
+ * scim-model module. The class holds the metadata of every attribute (and sub-attribute) of the SCIM resources, that
+ * is, of the classes annotated with <code>@Schema</code>, as read from the <code>@Attribute</code>,
+ * <code>@Validator</code>, <code>@StoreReference</code> and <code>@JsonProperty</code> annotations of their fields.
+ * This spares <code>IntrospectUtil</code> from inspecting the resource classes upon loading.
+ * <p>Attributes are visited the same way <code>IntrospectUtil</code> does when the generated class is not available.
+ * Annotations are handled by name because this module cannot depend on scim-model.</p>
+ */
+@SupportedAnnotationTypes(AttributeMetadataProcessor.SCHEMA)
+public class AttributeMetadataProcessor extends AbstractProcessor {
+
+    static final String SCHEMA = "org.gluu.oxtrust.model.scim2.annotations.Schema";
+
+    private static final String ANNOTATIONS_PACKAGE = "org.gluu.oxtrust.model.scim2.annotations.";
+    private static final String ATTRIBUTE = ANNOTATIONS_PACKAGE + "Attribute";
+    private static final String VALIDATOR = ANNOTATIONS_PACKAGE + "Validator";
+    private static final String STORE_REFERENCE = ANNOTATIONS_PACKAGE + "StoreReference";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+
+    private static final String BASE_RESOURCE = "org.gluu.oxtrust.model.scim2.BaseScimResource";
+    private static final String ATTRIBUTE_DEFINITION = "org.gluu.oxtrust.model.scim2.AttributeDefinition";
+    private static final String NULL_TYPE = "javax.lang.model.type.NullType";
+
+    private static final String PACKAGE = "org.gluu.oxtrust.model.scim2.util";
+    private static final String CLASS_NAME = "GeneratedAttributeTables";
+
+    //Keeps generated methods well below the size limit of the class file format
+    private static final int ENTRIES_PER_METHOD = 50;
+
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+        if (generated || annotations.isEmpty()) {
+            return false;
+        }
+        TypeElement baseResource = processingEnv.getElementUtils().getTypeElement(BASE_RESOURCE);
+        if (baseResource == null) {
+            return false;
+        }
+
+        List<TypeElement> resources = new ArrayList<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotations.iterator().next())) {
+            if (element instanceof TypeElement
+                    && processingEnv.getTypeUtils().isSubtype(element.asType(), baseResource.asType())) {
+                resources.add((TypeElement) element);
+            }
+        }
+        resources.sort(Comparator.comparing(type -> type.getQualifiedName().toString()));
+
+        Map<TypeElement, List<Entry>> tables = new HashMap<>();
+        List<VariableElement> basicFields = ElementFilter.fieldsIn(baseResource.getEnclosedElements());
+        for (TypeElement resource : resources) {
+            List<Entry> entries = new ArrayList<>();
+            traverse(resource, resource, "", basicFields, false, new ArrayList<>(), new ArrayList<>(), entries);
+            tables.put(resource, entries);
+        }
+
+        try {
+            write(resources, tables);
+            generated = true;
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to generate " + PACKAGE + "." + CLASS_NAME + ": " + e.getMessage());
+        }
+        return false;
+
+    }
+
+    /**
+     * Counterpart of <code>IntrospectUtil#traverseClassForNames</code>: collects the attributes found in a class,
+     * descending into the classes of complex attributes
+     */
+    private void traverse(TypeElement resource, TypeElement type, String prefix, List<VariableElement> extraFields,
+                          boolean prune, List<TypeElement> owners, List<String> getters, List<Entry> entries) {
+
+        List<VariableElement> fields = new ArrayList<>(ElementFilter.fieldsIn(type.getEnclosedElements()));
+        fields.addAll(extraFields);
+
+        for (VariableElement field : fields) {
+            Map<String, Object> attribute = getAnnotation(field, ATTRIBUTE);
+            if (attribute != null) {
+
+                String fieldName = field.getSimpleName().toString();
+                List<TypeElement> fieldOwners = new ArrayList<>(owners);
+                fieldOwners.add(type);
+                List<String> fieldGetters = new ArrayList<>(getters);
+                fieldGetters.add(findGetter(type, fieldName));
+
+                Entry entry = new Entry();
+                entry.path = prefix.isEmpty() ? fieldName : prefix + "." + fieldName;
+                entry.attribute = attribute;
+                entry.field = field;
+                entry.owners = fieldOwners;
+                entry.getters = fieldGetters;
+                entry.storeRef = getStoreRef(resource, field);
+                entries.add(entry);
+
+                if (!prune && "COMPLEX".equals(attribute.get("type"))) {
+                    //Use <T> parameter of Collection if present
+                    TypeElement cls = (TypeElement) attribute.get("multiValueClass");
+                    if (cls.getQualifiedName().contentEquals(NULL_TYPE)) {
+                        cls = asTypeElement(field.asType());
+                    }
+                    if (type.equals(cls)) {
+                        //Prevent infinite loop
+                        prune = true;
+                    }
+                    if (cls != null) {
+                        traverse(resource, cls, entry.path, Collections.emptyList(), prune, fieldOwners, fieldGetters,
+                                entries);
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Finds the name of the getter of a property the way <code>java.beans.Introspector</code> does, or returns null
+     * (the getter is then looked up at runtime)
+     */
+    private String findGetter(TypeElement type, String property) {
+
+        String getter = null;
+        for (ExecutableElement method :
+                ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+
+            String name = method.getSimpleName().toString();
+            if (method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC)
+                    && method.getParameters().isEmpty()) {
+
+                if (name.startsWith("is") && name.length() > 2 && method.getReturnType().getKind() == TypeKind.BOOLEAN
+                        && Introspector.decapitalize(name.substring(2)).equals(property)) {
+                    //is-getters take precedence
+                    return name;
+                }
+                if (name.startsWith("get") && name.length() > 3
+                        && method.getReturnType().getKind() != TypeKind.VOID
+                        && Introspector.decapitalize(name.substring(3)).equals(property)) {
+                    getter = name;
+                }
+            }
+        }
+        if (getter == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No getter found for attribute " + property + " in " + type.getQualifiedName());
+        }
+        return getter;
+
+    }
+
+    /**
+     * Counterpart of the computation of <code>IntrospectUtil.storeRefs</code>
+     */
+    private String getStoreRef(TypeElement resource, VariableElement field) {
+
+        Map<String, Object> annotation = getAnnotation(field, STORE_REFERENCE);
+        String storeRef = null;
+        if (annotation != null) {
+            String ref = (String) annotation.get("ref");
+            if (!ref.isEmpty()) {
+                storeRef = ref;
+            } else {
+                List<?> resourceTypes = (List<?>) annotation.get("resourceType");
+                List<?> refs = (List<?>) annotation.get("refs");
+                int i = resourceTypes.indexOf(resource);
+                if (i >= 0 && i < refs.size()) {
+                    storeRef = (String) refs.get(i);
+                }
+            }
+        }
+        return storeRef;
+
+    }
+
+    /**
+     * Returns the elements of an annotation (including defaults) in plain form: strings, booleans, names of enum
+     * constants, type elements for classes, and lists of those for arrays
+     */
+    private Map<String, Object> getAnnotation(Element element, String annotationName) {
+
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+
+                Map<String, Object> values = new HashMap<>();
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value :
+                        processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+                    values.put(value.getKey().getSimpleName().toString(), toPlainValue(value.getValue().getValue()));
+                }
+                return values;
+            }
+        }
+        return null;
+
+    }
+
+    private Object toPlainValue(Object value) {
+
+        if (value instanceof VariableElement) {
+            return ((VariableElement) value).getSimpleName().toString();
+        }
+        if (value instanceof TypeMirror) {
+            return asTypeElement((TypeMirror) value);
+        }
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(toPlainValue(((AnnotationValue) item).getValue()));
+            }
+            return list;
+        }
+        return value;
+
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        return erasure instanceof DeclaredType ? (TypeElement) ((DeclaredType) erasure).asElement() : null;
+    }
+
+    private boolean isCollection(TypeMirror type) {
+
+        TypeElement collection = processingEnv.getElementUtils().getTypeElement("java.util.Collection");
+        return type.getKind() == TypeKind.DECLARED && processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(collection.asType()));
+
+    }
+
+    private void write(List<TypeElement> resources, Map<TypeElement, List<Entry>> tables) throws IOException {
+
+        String tableType = "java.util.Map<Class<? extends org.gluu.oxtrust.model.scim2.BaseScimResource>, "
+                + "java.util.List<AttributeMetadata>>";
+
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(PACKAGE + "." + CLASS_NAME, resources.toArray(new Element[0])).openWriter())) {
+
+            out.println("package " + PACKAGE + ";");
+            out.println();
+            out.println("/**");
+            out.println(" * Metadata of the attributes of SCIM resources. Generated by " + getClass().getName()
+                    + ", do not edit");
+            out.println(" */");
+            out.println("public final class " + CLASS_NAME + " implements java.util.function.Supplier<"
+                    + tableType + "> {");
+            out.println();
+            out.println("    public " + tableType + " get() {");
+            out.println("        " + tableType + " tables = new java.util.HashMap<>();");
+
+            List<String> methods = new ArrayList<>();
+            for (TypeElement resource : resources) {
+                String resourceClass = resource.getQualifiedName() + ".class";
+                out.println("        tables.put(" + resourceClass + ", new java.util.ArrayList<>());");
+
+                List<Entry> entries = tables.get(resource);
+                for (int i = 0; i < entries.size(); i += ENTRIES_PER_METHOD) {
+                    String method = "add" + resource.getSimpleName() + methods.size();
+                    out.println("        " + method + "(tables.get(" + resourceClass + "));");
+
+                    StringBuilder sb = new StringBuilder();
+                    sb.append("    private static void ").append(method)
+                            .append("(java.util.List<AttributeMetadata> list) {\n");
+                    for (Entry entry : entries.subList(i, Math.min(i + ENTRIES_PER_METHOD, entries.size()))) {
+                        sb.append("        list.add(").append(toSource(entry)).append(");\n");
+                    }
+                    sb.append("    }\n");
+                    methods.add(sb.toString());
+                }
+            }
+            out.println("        return tables;");
+            out.println("    }");
+
+            for (String method : methods) {
+                out.println();
+                out.print(method);
+            }
+            out.println();
+            out.println("}");
+        }
+
+    }
+
+    private String toSource(Entry entry) {
+
+        Map<String, Object> attribute = entry.attribute;
+        Map<String, Object> jsonProperty = getAnnotation(entry.field, JSON_PROPERTY);
+        String name = jsonProperty == null
+                ? entry.field.getSimpleName().toString() : (String) jsonProperty.get("value");
+        TypeElement multiValueClass = (TypeElement) attribute.get("multiValueClass");
+        boolean multiValued = !multiValueClass.getQualifiedName().contentEquals(NULL_TYPE)
+                || isCollection(entry.field.asType());
+
+        List<String> owners = new ArrayList<>();
+        for (TypeElement owner : entry.owners) {
+            owners.add(owner.getQualifiedName() + ".class");
+        }
+        List<String> getters = new ArrayList<>();
+        for (String getter : entry.getters) {
+            getters.add(literal(getter));
+        }
+
+        return "new AttributeMetadata(" + String.join(", ",
+                literal(entry.path),
+                literal(name),
+                enumConstant("Type", attribute.get("type")),
+                String.valueOf(multiValued),
+                literal((String) attribute.get("description")),
+                String.valueOf(attribute.get("isRequired")),
+                stringArray((List<?>) attribute.get("canonicalValues")),
+                String.valueOf(attribute.get("isCaseExact")),
+                enumConstant("Mutability", attribute.get("mutability")),
+                enumConstant("Returned", attribute.get("returned")),
+                enumConstant("Uniqueness", attribute.get("uniqueness")),
+                stringArray((List<?>) attribute.get("referenceTypes")),
+                String.valueOf(getAnnotation(entry.field, VALIDATOR) != null),
+                literal(entry.storeRef),
+                "new Class<?>[]{ " + String.join(", ", owners) + " }",
+                "new String[]{ " + String.join(", ", getters) + " }") + ")";
+
+    }
+
+    private String enumConstant(String enumName, Object constant) {
+        return ATTRIBUTE_DEFINITION + "." + enumName + "." + constant;
+    }
+
+    private String stringArray(List<?> values) {
+
+        List<String> literals = new ArrayList<>();
+        for (Object value : values) {
+            literals.add(literal((String) value));
+        }
+        return "new String[]{" + (literals.isEmpty() ? "" : " " + String.join(", ", literals) + " ") + "}";
+
+    }
+
+    private String literal(String value) {
+
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+
+    }
+
+    private static class Entry {
+
+        private String path;
+        private Map<String, Object> attribute;
+        private VariableElement field;
+        private List<TypeElement> owners;
+        private List<String> getters;
+        private String storeRef;
+
+    }
+
+}
@@ -101,6 +101,17 @@ public interface Constants {
 
     String GROUP_OVERHEAD_BYPASS_PARAM = "Group-Overhead-Bypass";
 
+    /**
+     * An HTTP query parameter (or header) used to specify how totalResults is computed in searches: "exact" or
+     * "capped" (matches are counted up to a limit only)
+     */
+    String TOTAL_RESULTS_MODE_PARAM = "Total-Results-Mode";
+
+    /**
+     * URN used to identify the schema used to extend the ServiceProviderConfig resource
+     */
+    String SPC_EXT_SCHEMA_ID = "urn:ietf:params:scim:schemas:extension:gluu:2.0:ServiceProviderConfig";
+
     int MAX_COUNT = 200;    //Do not remove till Gluu 4 release. This is used in SCIM-client project
 
     int MAX_BULK_OPERATIONS = 30;
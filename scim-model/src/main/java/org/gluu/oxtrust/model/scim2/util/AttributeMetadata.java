@@ -0,0 +1,151 @@
+/*
+ * oxTrust is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2017, Gluu
+ */
+package org.gluu.oxtrust.model.scim2.util;
+
+import org.gluu.oxtrust.model.scim2.AttributeDefinition;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes an attribute (or sub-attribute) of a SCIM resource as declared by the {@link
+ * org.gluu.oxtrust.model.scim2.annotations.Attribute Attribute}, {@link
+ * org.gluu.oxtrust.model.scim2.annotations.Validator Validator} and {@link
+ * org.gluu.oxtrust.model.scim2.annotations.StoreReference StoreReference} annotations of the field that backs it.
+ * <p>Instances are normally created by code generated at build time (see <code>scim-model-processor</code> module) so
+ * that annotations need not be inspected at runtime. See {@link IntrospectUtil#attributeMetadata}.</p>
+ */
+public final class AttributeMetadata {
+
+    private String path;
+    private String name;
+    private AttributeDefinition.Type type;
+    private boolean multiValued;
+    private String description;
+    private boolean required;
+    private List<String> canonicalValues;
+    private boolean caseExact;
+    private AttributeDefinition.Mutability mutability;
+    private AttributeDefinition.Returned returned;
+    private AttributeDefinition.Uniqueness uniqueness;
+    private List<String> referenceTypes;
+    private boolean validable;
+    private String storeRef;
+
+    //Class where the getter of every piece of the path is looked up, and the getter names (elements may be null)
+    private Class<?>[] segmentClasses;
+    private String[] getterNames;
+
+    AttributeMetadata(String path, String name, AttributeDefinition.Type type, boolean multiValued, String description,
+                      boolean required, String[] canonicalValues, boolean caseExact,
+                      AttributeDefinition.Mutability mutability, AttributeDefinition.Returned returned,
+                      AttributeDefinition.Uniqueness uniqueness, String[] referenceTypes, boolean validable,
+                      String storeRef, Class<?>[] segmentClasses, String[] getterNames) {
+
+        this.path = path;
+        this.name = name;
+        this.type = type;
+        this.multiValued = multiValued;
+        this.description = description;
+        this.required = required;
+        this.canonicalValues = Collections.unmodifiableList(Arrays.asList(canonicalValues));
+        this.caseExact = caseExact;
+        this.mutability = mutability;
+        this.returned = returned;
+        this.uniqueness = uniqueness;
+        this.referenceTypes = Collections.unmodifiableList(Arrays.asList(referenceTypes));
+        this.validable = validable;
+        this.storeRef = storeRef;
+        this.segmentClasses = segmentClasses;
+        this.getterNames = getterNames;
+
+    }
+
+    /**
+     * @return The path of the attribute in dot notation, e.g. <code>name.givenName</code>
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return The name of the attribute as it appears in JSON documents
+     */
+    public String getName() {
+        return name;
+    }
+
+    public AttributeDefinition.Type getType() {
+        return type;
+    }
+
+    public boolean isMultiValued() {
+        return multiValued;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    /**
+     * @return An unmodifiable list (empty if the attribute has no canonical values)
+     */
+    public List<String> getCanonicalValues() {
+        return canonicalValues;
+    }
+
+    public boolean isCaseExact() {
+        return caseExact;
+    }
+
+    public AttributeDefinition.Mutability getMutability() {
+        return mutability;
+    }
+
+    public AttributeDefinition.Returned getReturned() {
+        return returned;
+    }
+
+    public AttributeDefinition.Uniqueness getUniqueness() {
+        return uniqueness;
+    }
+
+    /**
+     * @return An unmodifiable list (empty if the attribute has no reference types)
+     */
+    public List<String> getReferenceTypes() {
+        return referenceTypes;
+    }
+
+    /**
+     * @return Whether the attribute is annotated with some {@link org.gluu.oxtrust.model.scim2.annotations.Validator
+     * validation}
+     */
+    public boolean isValidable() {
+        return validable;
+    }
+
+    /**
+     * @return The database attribute the SCIM attribute maps to for the resource type at hand, or null
+     */
+    public String getStoreRef() {
+        return storeRef;
+    }
+
+    Class<?>[] getSegmentClasses() {
+        return segmentClasses;
+    }
+
+    String[] getGetterNames() {
+        return getterNames;
+    }
+
+}
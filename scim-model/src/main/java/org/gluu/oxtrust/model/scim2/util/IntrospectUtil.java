@@ -22,13 +22,25 @@ import org.gluu.oxtrust.model.scim2.group.GroupResource;
 import org.gluu.oxtrust.model.scim2.provider.schema.SchemaResource;
 import org.gluu.oxtrust.model.scim2.user.UserResource;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import javax.lang.model.type.NullType;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 /**
  * Provides miscelaneous routines to query classes/objects properties using reflection mechanisms. Additionally, this
@@ -42,6 +54,25 @@ public class IntrospectUtil {
 
     private static Logger log = LogManager.getLogger(IntrospectUtil.class);
 
+    //Written by the annotation processor of the scim-model-processor module
+    private static final String GENERATED_TABLES = "org.gluu.oxtrust.model.scim2.util.GeneratedAttributeTables";
+
+    private static final List<Class<? extends BaseScimResource>> resourceClasses = Arrays.asList(UserResource.class,
+            GroupResource.class, FidoDeviceResource.class, Fido2DeviceResource.class, ServiceProviderConfig.class,
+            ResourceType.class, SchemaResource.class);
+
+    //Results of reflective lookups. Only successful lookups of fields are remembered since paths may come from requests
+    private static final Map<Class<?>, Map<String, Field>> pathFields = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_PATHS = 1024;
+    private static final Pattern EMPTY_PATH_PIECE = Pattern.compile("^\\.|\\.\\.|\\.$");
+    private static final Map<Class<?>, Map<String, PropertyDescriptor>> beanProperties = new ConcurrentHashMap<>();
+
+    private static final Map<Method, Function<Object, Object>> readAccessors = new ConcurrentHashMap<>();
+    private static final Map<Method, BiConsumer<Object, Object>> writeAccessors = new ConcurrentHashMap<>();
+
+    //Accessors for the getter lists of the xxxCoreAttrs maps, keyed by list instance. Filled upon class loading only
+    private static final Map<List<Method>, List<Function<Object, Object>>> pathAccessors = new IdentityHashMap<>();
+
     private IntrospectUtil() {}
 
     /**
@@ -84,6 +115,20 @@ public class IntrospectUtil {
      */
     public static Field findFieldFromPath(Class<?> initcls, String path){
 
+        Map<String, Field> fields = pathFields.computeIfAbsent(initcls, k -> new ConcurrentHashMap<>());
+        Field f = fields.get(path);
+        if (f == null) {
+            f = lookupFieldFromPath(initcls, path);
+            //Paths with empty pieces (e.g. "userName.") resolve too, but are not remembered: there are infinitely many
+            if (f != null && fields.size() < MAX_CACHED_PATHS && !EMPTY_PATH_PIECE.matcher(path).find())
+                fields.put(path, f);
+        }
+        return f;
+
+    }
+
+    private static Field lookupFieldFromPath(Class<?> initcls, String path){
+
         Class cls=initcls;
         Field f=null;
 
@@ -143,6 +188,8 @@ public class IntrospectUtil {
     public static List<Object> getAttributeValues(BaseScimResource bean, final List<Method> getters){
 
         final List<Object> results=new ArrayList<>();
+        List<Function<Object, Object>> found=pathAccessors.get(getters);
+        final List<Function<Object, Object>> accessors=found==null ? toReadAccessors(getters) : found;
 
         class traversalClass{
 
@@ -161,7 +208,7 @@ public class IntrospectUtil {
                             }
                         }
                         else {
-                            Object val=getters.get(index).invoke(value);
+                            Object val=accessors.get(index).apply(value);
                             traverse(val, index+1);
                         }
                     }
@@ -190,11 +237,8 @@ public class IntrospectUtil {
      * @throws Exception Upon introspection error
      */
     public static Method getSetter(String fieldName, Class clazz) throws Exception{
-        PropertyDescriptor[] props = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
-        for (PropertyDescriptor p : props)
-            if (p.getName().equals(fieldName))
-                return p.getWriteMethod();
-        return null;
+        PropertyDescriptor p = getProperty(fieldName, clazz);
+        return p == null ? null : p.getWriteMethod();
     }
 
     /**
@@ -206,11 +250,133 @@ public class IntrospectUtil {
      * @throws Exception Upon introspection error
      */
     public static Method getGetter(String fieldName, Class clazz) throws Exception{
-        PropertyDescriptor[] props = Introspector.getBeanInfo(clazz).getPropertyDescriptors();
-        for (PropertyDescriptor p : props)
-            if (p.getName().equals(fieldName))
-                return p.getReadMethod();
-        return null;
+        PropertyDescriptor p = getProperty(fieldName, clazz);
+        return p == null ? null : p.getReadMethod();
+    }
+
+    private static PropertyDescriptor getProperty(String fieldName, Class<?> clazz) throws Exception{
+
+        Map<String, PropertyDescriptor> props = beanProperties.get(clazz);
+        if (props == null) {
+            props = new HashMap<>();
+            for (PropertyDescriptor p : Introspector.getBeanInfo(clazz).getPropertyDescriptors())
+                props.put(p.getName(), p);
+            beanProperties.put(clazz, props);
+        }
+        return props.get(fieldName);
+
+    }
+
+    /**
+     * Returns a function that calls the getter passed. Unlike <code>Method.invoke</code>, the function does not incur
+     * reflection costs: it is generated once (per getter) by means of <code>LambdaMetafactory</code>
+     * @param getter A getter method (public, no parameters)
+     * @return A function that takes the target object and returns the value obtained from the getter
+     */
+    public static Function<Object, Object> getReadAccessor(Method getter){
+        return readAccessors.computeIfAbsent(getter, IntrospectUtil::createReadAccessor);
+    }
+
+    /**
+     * Returns a function that calls the setter passed. Unlike <code>Method.invoke</code>, the function does not incur
+     * reflection costs: it is generated once (per setter) by means of <code>LambdaMetafactory</code>
+     * @param setter A setter method (public, one parameter)
+     * @return A function that takes the target object and the value to set
+     */
+    public static BiConsumer<Object, Object> getWriteAccessor(Method setter){
+        return writeAccessors.computeIfAbsent(setter, IntrospectUtil::createWriteAccessor);
+    }
+
+    private static List<Function<Object, Object>> toReadAccessors(List<Method> getters){
+
+        List<Function<Object, Object>> accessors=new ArrayList<>();
+        for (Method getter : getters)
+            accessors.add(getReadAccessor(getter));
+        return accessors;
+
+    }
+
+    private static Function<Object, Object> createReadAccessor(Method getter){
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(getter);
+            try {
+                checkVisible(getter.getDeclaringClass(), getter.getReturnType());
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class), handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            }
+            catch (Throwable t) {
+                //e.g. the class declaring the getter is not visible from the class loader of this class
+                log.debug("Using method handle for {}: {}", getter, t.getMessage());
+                MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+                return target -> {
+                    try {
+                        return generic.invokeExact(target);
+                    }
+                    catch (RuntimeException | Error e) {
+                        throw e;
+                    }
+                    catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                };
+            }
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Getter not accessible: " + getter, e);
+        }
+
+    }
+
+    /**
+     * Generated accessors are linked against the class loader of this class, so the classes they refer to have to be
+     * visible from it
+     */
+    private static void checkVisible(Class<?>... classes) throws ClassNotFoundException{
+
+        for (Class<?> cls : classes) {
+            ClassLoader loader = IntrospectUtil.class.getClassLoader();
+            if (!cls.isPrimitive() && cls.getClassLoader() != null && cls.getClassLoader() != loader
+                    && Class.forName(cls.getName(), false, loader) != cls)
+                throw new ClassNotFoundException(cls.getName() + " is not visible from " + IntrospectUtil.class.getName());
+        }
+
+    }
+
+    private static BiConsumer<Object, Object> createWriteAccessor(Method setter){
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(setter);
+            try {
+                checkVisible(setter.getDeclaringClass(), setter.getParameterTypes()[0]);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class), handle,
+                        handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            }
+            catch (Throwable t) {
+                log.debug("Using method handle for {}: {}", setter, t.getMessage());
+                MethodHandle generic = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+                return (target, value) -> {
+                    try {
+                        generic.invokeExact(target, value);
+                    }
+                    catch (RuntimeException | Error e) {
+                        throw e;
+                    }
+                    catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                };
+            }
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Setter not accessible: " + setter, e);
+        }
+
     }
 
     /**
@@ -307,6 +473,13 @@ public class IntrospectUtil {
      */
     public static Map<Class <? extends BaseScimResource>, Map<String, String>> storeRefs;
 
+    /**
+     * An <b>unmodifiable</b> map that stores for every possible subclass of {@link BaseScimResource BaseScimResource} a
+     * <code>Map</code> of paths (as stored in {@link #allAttrs}) vs. the metadata of the corresponding attributes, as
+     * given by their annotations. When available, this information is generated at build time.
+     */
+    public static Map<Class <? extends BaseScimResource>, Map<String, AttributeMetadata>> attributeMetadata;
+
     private static Map<Class<? extends BaseScimResource>, Map<String, List<Method>>> newEmptyMap(){
         return new HashMap<>();
     }
@@ -332,6 +505,7 @@ public class IntrospectUtil {
 
         allAttrs=new HashMap<>();
         storeRefs=new HashMap<>();
+        attributeMetadata=new HashMap<>();
     }
 
     private static void freezeMaps(){
@@ -345,9 +519,12 @@ public class IntrospectUtil {
 
         allAttrs=Collections.unmodifiableMap(allAttrs);
         storeRefs=Collections.unmodifiableMap(storeRefs);
+        attributeMetadata=Collections.unmodifiableMap(attributeMetadata);
     }
 
-    private static void traverseClassForNames(Class clazz, String prefix, List<Field> extraFields, boolean prune) throws Exception{
+    private static void traverseClassForNames(Class<? extends BaseScimResource> resourceClass, Class clazz, String prefix,
+                                              List<Field> extraFields, boolean prune, List<Class<?>> owners,
+                                              List<AttributeMetadata> attributes) throws Exception{
 
         List<Field> fields=new ArrayList<>();
         fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
@@ -361,30 +538,9 @@ public class IntrospectUtil {
                 if (prefix.length()>0)
                     name=prefix + "." + name;
 
-                switch (attrAnnot.returned()){
-                    case ALWAYS:
-                        alwaysAttrsNames.add(name);
-                        break;
-                    case DEFAULT:
-                        defaultAttrsNames.add(name);
-                        break;
-                    case NEVER:
-                        neverAttrsNames.add(name);
-                        break;
-                    case REQUEST:
-                        requestAttrsNames.add(name);
-                        break;
-                }
-
-                if (attrAnnot.isRequired())
-                    requiredAttrsNames.add(name);
-
-                if (attrAnnot.canonicalValues().length>0)
-                    canonicalizedAttrsNames.add(name);
-
-                Validator vAnnot=f.getAnnotation(Validator.class);
-                if (vAnnot!=null)
-                    validableAttrsNames.add(name);
+                List<Class<?>> fieldOwners=new ArrayList<>(owners);
+                fieldOwners.add(clazz);
+                attributes.add(getMetadata(resourceClass, name, f, attrAnnot, fieldOwners));
 
                 if (!prune && attrAnnot.type().equals(AttributeDefinition.Type.COMPLEX)) {
                     Class cls = attrAnnot.multiValueClass();  //Use <T> parameter of Collection if present
@@ -396,88 +552,176 @@ public class IntrospectUtil {
                         prune = true;
                     }
 
-                    traverseClassForNames(cls, name, new ArrayList<>(), prune);
+                    traverseClassForNames(resourceClass, cls, name, new ArrayList<>(), prune, fieldOwners, attributes);
                 }
             }
         }
     }
 
-    private static Map<String, List<Method>> computeGettersMap(List<String> attrNames, Class baseClass) throws Exception{
+    private static AttributeMetadata getMetadata(Class<? extends BaseScimResource> resourceClass, String path, Field f,
+                                                 Attribute attrAnnot, List<Class<?>> owners){
+
+        //Storage reference (e.g. LDAP attribute) of the attribute for the resource at hand
+        String storeRef=null;
+        StoreReference annotation = f.getAnnotation(StoreReference.class);
+        if (annotation != null) {
+            if (StringUtils.isNotEmpty(annotation.ref()))
+                storeRef=annotation.ref();
+            else {
+                List<Class<? extends BaseScimResource>> clsList = Arrays.asList(annotation.resourceType());
+                int i = clsList.indexOf(resourceClass);
+                if (i>=0 && i<annotation.refs().length)
+                    storeRef=annotation.refs()[i];
+            }
+        }
+
+        JsonProperty jsonAnnot=f.getAnnotation(JsonProperty.class);
+        return new AttributeMetadata(path, jsonAnnot==null ? f.getName() : jsonAnnot.value(), attrAnnot.type(),
+                !attrAnnot.multiValueClass().equals(NullType.class) || isCollection(f.getType()),
+                attrAnnot.description(), attrAnnot.isRequired(), attrAnnot.canonicalValues(), attrAnnot.isCaseExact(),
+                attrAnnot.mutability(), attrAnnot.returned(), attrAnnot.uniqueness(), attrAnnot.referenceTypes(),
+                f.getAnnotation(Validator.class)!=null, storeRef, owners.toArray(new Class<?>[0]),
+                new String[owners.size()]);
+
+    }
+
+    /**
+     * Loads the metadata generated at build time by the <code>scim-model-processor</code> module
+     * @return A map of resource classes vs. their attributes, or null if the metadata is not available
+     */
+    static Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> loadGeneratedTables(){
+
+        try {
+            Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> tables =
+                    ((Supplier<Map<Class<? extends BaseScimResource>, List<AttributeMetadata>>>)
+                            Class.forName(GENERATED_TABLES).getDeclaredConstructor().newInstance()).get();
+
+            //Partial builds (e.g. incremental compilation in IDEs) may leave some resources out
+            if (tables.keySet().containsAll(resourceClasses))
+                return tables;
+            log.warn("Generated attribute metadata is incomplete");
+        }
+        catch (ClassNotFoundException e){
+            log.debug("{} not found", GENERATED_TABLES);
+        }
+        catch (Exception e){
+            log.warn("Unable to load generated attribute metadata: {}", e.getMessage());
+        }
+        return null;
+
+    }
+
+    /**
+     * Obtains the attribute metadata by inspecting the annotations of resource classes at runtime. This is the fallback
+     * used when no generated metadata is found, and must produce the same contents as the generated one
+     * @return A map of resource classes vs. their attributes. Getter names are not filled
+     * @throws Exception If inspection fails
+     */
+    static Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> scanResourceClasses() throws Exception{
+
+        List<Field> basicFields=Arrays.asList(BaseScimResource.class.getDeclaredFields());
+        Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> tables=new HashMap<>();
+
+        for (Class<? extends BaseScimResource> aClass : resourceClasses){
+            List<AttributeMetadata> attributes=new ArrayList<>();
+            traverseClassForNames(aClass, aClass, "", basicFields, false, new ArrayList<>(), attributes);
+            tables.put(aClass, attributes);
+        }
+        return tables;
+
+    }
+
+    private static Map<String, List<Method>> computeGettersMap(Collection<AttributeMetadata> attributes) throws Exception{
 
         Map<String, List<Method>> map=new HashMap<>();
 
-        for (String attrName : attrNames) {
+        for (AttributeMetadata attribute : attributes) {
             List<Method> list =new ArrayList<>();
-            Class clazz=baseClass;
+            String[] parts=attribute.getPath().split("\\.");
+            Class<?>[] classes=attribute.getSegmentClasses();
+            String[] getterNames=attribute.getGetterNames();
 
-            for (String prop : attrName.split("\\.")) {
-                Method method=getGetter(prop, clazz);
-                list.add(method);
-
-                if (isCollection(method.getReturnType())) {  //Use class of parameter in collection
-                    Field f=findField(clazz, prop);
-                    Attribute attrAnnot=f.getAnnotation(Attribute.class);
-                    if (attrAnnot!=null)
-                        clazz=attrAnnot.multiValueClass();
-                }
-                else
-                    clazz=method.getReturnType();
+            for (int i=0; i<parts.length; i++) {
+                //Getter names are not known in advance when metadata was not generated at build time
+                list.add(getterNames[i]==null ? getGetter(parts[i], classes[i]) : classes[i].getMethod(getterNames[i]));
             }
-            map.put(attrName, list);
+            map.put(attribute.getPath(), list);
+            pathAccessors.put(list, toReadAccessors(list));
         }
         return map;
 
     }
 
+    private static Map<String, List<Method>> selectGetters(List<String> attrNames, Map<String, List<Method>> getters){
+
+        Map<String, List<Method>> map=new HashMap<>();
+        for (String attrName : attrNames)
+            map.put(attrName, getters.get(attrName));
+        return map;
+
+    }
+
     static {
         try {
-            List<Field> basicFields=Arrays.asList(BaseScimResource.class.getDeclaredFields());
             resetMaps();
 
-            List<Class<? extends BaseScimResource>> resourceClasses=Arrays.asList(UserResource.class, GroupResource.class,
-                    FidoDeviceResource.class, Fido2DeviceResource.class, ServiceProviderConfig.class, ResourceType.class, SchemaResource.class);
+            Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> tables=loadGeneratedTables();
+            if (tables==null) {
+                log.info("Inspecting SCIM resource classes to obtain attribute metadata");
+                tables=scanResourceClasses();
+            }
 
             //Perform initializations needed for all resource types
             for (Class<? extends BaseScimResource> aClass : resourceClasses){
                 resetAttrNames();
+                Map<String, AttributeMetadata> metadata=new HashMap<>();
+                Map<String, String> map=new HashMap<>();
+
+                for (AttributeMetadata attribute : tables.get(aClass)) {
+                    String name=attribute.getPath();
+                    switch (attribute.getReturned()){
+                        case ALWAYS:
+                            alwaysAttrsNames.add(name);
+                            break;
+                        case DEFAULT:
+                            defaultAttrsNames.add(name);
+                            break;
+                        case NEVER:
+                            neverAttrsNames.add(name);
+                            break;
+                        case REQUEST:
+                            requestAttrsNames.add(name);
+                            break;
+                    }
 
-                traverseClassForNames(aClass, "", basicFields, false);
-                requiredCoreAttrs.put(aClass, computeGettersMap(requiredAttrsNames, aClass));
-                defaultCoreAttrs.put(aClass, computeGettersMap(defaultAttrsNames, aClass));
-                alwaysCoreAttrs.put(aClass, computeGettersMap(alwaysAttrsNames, aClass));
-                neverCoreAttrs.put(aClass, computeGettersMap(neverAttrsNames, aClass));
-                requestCoreAttrs.put(aClass, computeGettersMap(requestAttrsNames, aClass));
-                validableCoreAttrs.put(aClass, computeGettersMap(validableAttrsNames, aClass));
-                canonicalCoreAttrs.put(aClass, computeGettersMap(canonicalizedAttrsNames, aClass));
-
-                allAttrs.put(aClass, new TreeSet<>());
-                allAttrs.get(aClass).addAll(alwaysAttrsNames);
-                allAttrs.get(aClass).addAll(defaultAttrsNames);
-                allAttrs.get(aClass).addAll(neverAttrsNames);
-                allAttrs.get(aClass).addAll(requestAttrsNames);
-            }
+                    if (attribute.isRequired())
+                        requiredAttrsNames.add(name);
 
-            for (Class<? extends BaseScimResource> cls : resourceClasses) {
-                //This is a map from attributes to storage references (e.g. LDAP attributes)
-                Map<String, String> map = new HashMap<>();
-
-                for (String attrib : allAttrs.get(cls)) {
-                    Field field = findFieldFromPath(cls, attrib);
-                    if (field != null) {
-                        StoreReference annotation = field.getAnnotation(StoreReference.class);
-                        if (annotation != null) {
-                            if (StringUtils.isNotEmpty(annotation.ref()))
-                                map.put(attrib, annotation.ref());
-                            else {
-                                List<Class<? extends BaseScimResource>> clsList = Arrays.asList(annotation.resourceType());
-                                int i = clsList.indexOf(cls);
-                                if (i>=0 && i<annotation.refs().length)
-                                    map.put(attrib, annotation.refs()[i]);
-                            }
-                        }
-                    }
+                    if (!attribute.getCanonicalValues().isEmpty())
+                        canonicalizedAttrsNames.add(name);
+
+                    if (attribute.isValidable())
+                        validableAttrsNames.add(name);
+
+                    if (attribute.getStoreRef()!=null)
+                        map.putIfAbsent(name, attribute.getStoreRef());
+
+                    metadata.putIfAbsent(name, attribute);
                 }
-                storeRefs.put(cls, map);
+
+                //Getter lists are shared among the maps below
+                Map<String, List<Method>> getters=computeGettersMap(metadata.values());
+                requiredCoreAttrs.put(aClass, selectGetters(requiredAttrsNames, getters));
+                defaultCoreAttrs.put(aClass, selectGetters(defaultAttrsNames, getters));
+                alwaysCoreAttrs.put(aClass, selectGetters(alwaysAttrsNames, getters));
+                neverCoreAttrs.put(aClass, selectGetters(neverAttrsNames, getters));
+                requestCoreAttrs.put(aClass, selectGetters(requestAttrsNames, getters));
+                validableCoreAttrs.put(aClass, selectGetters(validableAttrsNames, getters));
+                canonicalCoreAttrs.put(aClass, selectGetters(canonicalizedAttrsNames, getters));
+
+                allAttrs.put(aClass, new TreeSet<>(metadata.keySet()));
+                storeRefs.put(aClass, map);
+                attributeMetadata.put(aClass, Collections.unmodifiableMap(metadata));
             }
             //Make them all unmodifiable
             freezeMaps();
@@ -487,4 +731,4 @@ public class IntrospectUtil {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,258 @@
+package org.gluu.oxtrust.model.scim2.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.gluu.oxtrust.model.scim2.annotations.Attribute;
+import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
+import org.gluu.oxtrust.model.scim2.patch.PatchOperationType;
+import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
+
+import java.util.*;
+
+import static org.gluu.oxtrust.model.scim2.AttributeDefinition.Mutability.READ_ONLY;
+
+/**
+ * Computes the differences between two versions of a SCIM resource in the form of a {@link PatchRequest PatchRequest}.
+ * Sending such request instead of a full replacement (PUT) makes payloads smaller and spares the service from
+ * processing attributes that did not change.
+ * <p>Read-only attributes (e.g. {@code id}, {@code meta}) are not taken into account. Attributes missing (or null) in
+ * the updated version are removed. When elements of multi-valued complex attributes (e.g. {@code emails}) carry a
+ * {@code value} sub-attribute that tells them apart, value filters are used to touch only the elements that changed,
+ * e.g. {@code emails[value eq "bjensen@example.com"].type}; a full replacement of the attribute is issued otherwise
+ * or when it results in a smaller request.</p>
+ */
+public class ResourceDiffUtil {
+
+    private static final String VALUE_SUBATTRIBUTE = "value";
+
+    private static final String PRIMARY_SUBATTRIBUTE = "primary";
+
+    private static ObjectMapper mapper = new ObjectMapper();
+
+    private ResourceDiffUtil() {
+    }
+
+    /**
+     * Builds the smallest patch request that transforms a resource into another
+     * @param original Resource as currently stored in the service
+     * @param updated Desired state of the resource. It must belong to the same class of <code>original</code>
+     * @return A PatchRequest object. Its list of operations is empty if no (mutable) attribute changed
+     */
+    public static PatchRequest diff(BaseScimResource original, BaseScimResource updated) {
+
+        if (!original.getClass().equals(updated.getClass())) {
+            throw new IllegalArgumentException("Resources compared must be of the same type");
+        }
+        Class<? extends BaseScimResource> cls = original.getClass();
+        Map<String, Object> before = toMap(original);
+        Map<String, Object> after = toMap(updated);
+
+        Set<String> extensions = new HashSet<>(original.getCustomAttributes().keySet());
+        extensions.addAll(updated.getCustomAttributes().keySet());
+
+        Set<String> keys = new LinkedHashSet<>(before.keySet());
+        keys.addAll(after.keySet());
+
+        List<PatchOperation> operations = new ArrayList<>();
+        for (String key : keys) {
+            if (key.equals("schemas")) {
+                //The service adjusts schemas itself when extension attributes are patched
+                continue;
+            }
+            if (extensions.contains(key)) {
+                diffExtension(key, before.get(key), after.get(key), operations);
+            } else if (isMutable(cls, key)) {
+                diffAttribute(cls, key, before.get(key), after.get(key), operations);
+            }
+        }
+
+        PatchRequest request = new PatchRequest();
+        request.setOperations(operations);
+        return request;
+
+    }
+
+    private static void diffAttribute(Class<? extends BaseScimResource> cls, String path, Object oldValue,
+                                      Object newValue, List<PatchOperation> operations) {
+
+        if (isEmpty(newValue)) {
+            if (!isEmpty(oldValue)) {
+                operations.add(operation(PatchOperationType.REMOVE, path, null));
+            }
+        } else if (isEmpty(oldValue)) {
+            operations.add(operation(PatchOperationType.REPLACE, path, newValue));
+        } else if (!oldValue.equals(newValue)) {
+
+            if (oldValue instanceof Map && newValue instanceof Map) {
+                //Replacing a complex attribute leaves unspecified sub-attributes untouched, so go one by one
+                Map<String, Object> oldMap = IntrospectUtil.strObjMap(oldValue);
+                Map<String, Object> newMap = IntrospectUtil.strObjMap(newValue);
+
+                for (String key : union(oldMap.keySet(), newMap.keySet())) {
+                    String subPath = path + "." + key;
+                    if (isMutable(cls, subPath)) {
+                        diffAttribute(cls, subPath, oldMap.get(key), newMap.get(key), operations);
+                    }
+                }
+            } else if (oldValue instanceof List && newValue instanceof List) {
+                operations.addAll(diffMultiValued(path, (List<?>) oldValue, (List<?>) newValue));
+            } else {
+                operations.add(operation(PatchOperationType.REPLACE, path, newValue));
+            }
+        }
+
+    }
+
+    private static List<PatchOperation> diffMultiValued(String path, List<?> oldList, List<?> newList) {
+
+        List<PatchOperation> replacement = Collections.singletonList(operation(PatchOperationType.REPLACE, path, newList));
+
+        Map<Object, Map<String, Object>> oldElements = indexByValue(oldList);
+        Map<Object, Map<String, Object>> newElements = indexByValue(newList);
+        if (oldElements == null || newElements == null) {
+            return replacement;
+        }
+
+        List<PatchOperation> removals = new ArrayList<>();
+        List<PatchOperation> demotions = new ArrayList<>();
+        List<PatchOperation> replacements = new ArrayList<>();
+        List<Object> additions = new ArrayList<>();
+
+        for (Map.Entry<Object, Map<String, Object>> entry : oldElements.entrySet()) {
+            String selector = path + "[value eq " + literal(entry.getKey()) + "]";
+            Map<String, Object> oldElement = entry.getValue();
+            Map<String, Object> newElement = newElements.get(entry.getKey());
+
+            if (newElement == null) {
+                removals.add(operation(PatchOperationType.REMOVE, selector, null));
+            } else if (!oldElement.equals(newElement)) {
+                for (String key : union(oldElement.keySet(), newElement.keySet())) {
+                    Object oldSub = oldElement.get(key);
+                    Object newSub = newElement.get(key);
+
+                    if (isEmpty(newSub)) {
+                        if (!isEmpty(oldSub)) {
+                            removals.add(operation(PatchOperationType.REMOVE, selector + "." + key, null));
+                        }
+                    } else if (!newSub.equals(oldSub)) {
+                        PatchOperation operation = operation(PatchOperationType.REPLACE, selector + "." + key, newSub);
+                        if (PRIMARY_SUBATTRIBUTE.equals(key) && Boolean.FALSE.equals(newSub)) {
+                            demotions.add(operation);
+                        } else {
+                            replacements.add(operation);
+                        }
+                    }
+                }
+            }
+        }
+        newElements.forEach((value, element) -> {
+            if (!oldElements.containsKey(value)) {
+                additions.add(element);
+            }
+        });
+
+        //Order matters: the former primary element must be demoted before another is promoted or added, no matter
+        //the position of the elements in the list
+        List<PatchOperation> operations = new ArrayList<>(removals);
+        operations.addAll(demotions);
+        operations.addAll(replacements);
+        if (!additions.isEmpty()) {
+            operations.add(operation(PatchOperationType.ADD, path, additions));
+        }
+        return size(operations) <= size(replacement) ? operations : replacement;
+
+    }
+
+    private static void diffExtension(String urn, Object oldValue, Object newValue, List<PatchOperation> operations) {
+
+        Map<String, Object> oldMap = isEmpty(oldValue) ? Collections.emptyMap() : IntrospectUtil.strObjMap(oldValue);
+        Map<String, Object> newMap = isEmpty(newValue) ? Collections.emptyMap() : IntrospectUtil.strObjMap(newValue);
+
+        for (String key : union(oldMap.keySet(), newMap.keySet())) {
+            Object oldSub = oldMap.get(key);
+            Object newSub = newMap.get(key);
+            String path = urn + ":" + key;
+
+            if (isEmpty(newSub)) {
+                if (!isEmpty(oldSub)) {
+                    operations.add(operation(PatchOperationType.REMOVE, path, null));
+                }
+            } else if (!newSub.equals(oldSub)) {
+                operations.add(operation(PatchOperationType.REPLACE, path, newSub));
+            }
+        }
+
+    }
+
+    /**
+     * Indexes the elements of a multi-valued complex attribute by their "value" sub-attribute
+     * @return The index built, or null if some element is not a complex value or lacks a (unique) "value"
+     */
+    private static Map<Object, Map<String, Object>> indexByValue(List<?> list) {
+
+        Map<Object, Map<String, Object>> index = new LinkedHashMap<>();
+        for (Object item : list) {
+            if (!(item instanceof Map)) {
+                return null;
+            }
+            Map<String, Object> element = IntrospectUtil.strObjMap(item);
+            Object value = element.get(VALUE_SUBATTRIBUTE);
+
+            if (literal(value) == null || index.put(value, element) != null) {
+                return null;
+            }
+        }
+        return index;
+
+    }
+
+    private static String literal(Object value) {
+
+        if (value instanceof String) {
+            return "\"" + value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return null;
+
+    }
+
+    private static boolean isMutable(Class<? extends BaseScimResource> cls, String path) {
+        Attribute attrAnnot = IntrospectUtil.getFieldAnnotation(path, cls, Attribute.class);
+        return attrAnnot != null && !attrAnnot.mutability().equals(READ_ONLY);
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || (value instanceof Collection && ((Collection<?>) value).isEmpty())
+                || (value instanceof Map && ((Map<?, ?>) value).isEmpty());
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> set = new LinkedHashSet<>(a);
+        set.addAll(b);
+        return set;
+    }
+
+    private static PatchOperation operation(PatchOperationType type, String path, Object value) {
+        PatchOperation operation = new PatchOperation();
+        operation.setOperation(type.name().toLowerCase());
+        operation.setPath(path);
+        operation.setValue(value);
+        return operation;
+    }
+
+    private static int size(List<PatchOperation> operations) {
+        try {
+            return mapper.writeValueAsString(operations).length();
+        } catch (JsonProcessingException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private static Map<String, Object> toMap(BaseScimResource resource) {
+        return mapper.convertValue(resource, new TypeReference<Map<String, Object>>(){});
+    }
+
+}
@@ -21,6 +21,8 @@ import javax.management.InvalidAttributeValueException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import static org.gluu.oxtrust.model.scim2.AttributeDefinition.Mutability.*;
 
@@ -472,16 +474,21 @@ public class ScimResourceUtil {
 
                             if (list!=null && list.size()>1) {  //Ensure is not empty or singleton
                                 Class clz = list.get(0).getClass();     //All items are supposed to belong to the same class
-                                //Find getter and setter of "primary" property
-                                Method setter = IntrospectUtil.getSetter(fragment.substring(1), clz);
-                                Method getter = IntrospectUtil.getGetter(fragment.substring(1), clz);
+                                //Find getter of "primary" property. The setter is only looked up if it is needed
+                                Function<Object, Object> getter = IntrospectUtil.getReadAccessor(
+                                        IntrospectUtil.getGetter(fragment.substring(1), clz));
+                                BiConsumer<Object, Object> setter = null;
                                 int trues = 0;
 
                                 for (Object item : list) {
-                                    Object primaryVal = getter.invoke(item);
+                                    Object primaryVal = getter.apply(item);
                                     trues += primaryVal != null && primaryVal.toString().equals("true") ? 1 : 0;
                                     if (trues > 1) {  //Revert to false
-                                        setter.invoke(item, false);
+                                        if (setter == null) {
+                                            setter = IntrospectUtil.getWriteAccessor(
+                                                    IntrospectUtil.getSetter(fragment.substring(1), clz));
+                                        }
+                                        setter.accept(item, false);
                                         log.info("adjustPrimarySubAttributes. Setting primary = false for an item (a previous one was already primary = true)");
                                     }
                                 }
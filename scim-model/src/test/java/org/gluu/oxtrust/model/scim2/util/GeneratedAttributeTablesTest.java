@@ -0,0 +1,79 @@
+package org.gluu.oxtrust.model.scim2.util;
+
+import org.gluu.oxtrust.model.scim2.BaseScimResource;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Checks that the attribute metadata generated at build time by <code>scim-model-processor</code> is the same
+ * {@link IntrospectUtil} would obtain by inspecting resource classes at runtime
+ */
+public class GeneratedAttributeTablesTest {
+
+    @Test
+    public void sameAsRuntimeInspection() throws Exception {
+
+        Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> generated = IntrospectUtil.loadGeneratedTables();
+        assertNotNull(generated, "Generated attribute metadata is missing or incomplete");
+
+        Map<Class<? extends BaseScimResource>, List<AttributeMetadata>> scanned = IntrospectUtil.scanResourceClasses();
+        assertEquals(generated.keySet(), scanned.keySet());
+
+        for (Class<? extends BaseScimResource> resourceClass : scanned.keySet()) {
+            Map<String, AttributeMetadata> expected = byPath(scanned.get(resourceClass));
+            Map<String, AttributeMetadata> actual = byPath(generated.get(resourceClass));
+
+            assertEquals(actual.keySet(), expected.keySet(), "Paths of " + resourceClass.getSimpleName());
+            for (String path : expected.keySet()) {
+                assertSameMetadata(actual.get(path), expected.get(path), resourceClass.getSimpleName() + " " + path);
+            }
+        }
+
+    }
+
+    private void assertSameMetadata(AttributeMetadata actual, AttributeMetadata expected, String message)
+            throws Exception {
+
+        assertEquals(actual.getName(), expected.getName(), message);
+        assertEquals(actual.getType(), expected.getType(), message);
+        assertEquals(actual.isMultiValued(), expected.isMultiValued(), message);
+        assertEquals(actual.getDescription(), expected.getDescription(), message);
+        assertEquals(actual.isRequired(), expected.isRequired(), message);
+        assertEquals(actual.getCanonicalValues(), expected.getCanonicalValues(), message);
+        assertEquals(actual.isCaseExact(), expected.isCaseExact(), message);
+        assertEquals(actual.getMutability(), expected.getMutability(), message);
+        assertEquals(actual.getReturned(), expected.getReturned(), message);
+        assertEquals(actual.getUniqueness(), expected.getUniqueness(), message);
+        assertEquals(actual.getReferenceTypes(), expected.getReferenceTypes(), message);
+        assertEquals(actual.isValidable(), expected.isValidable(), message);
+        assertEquals(actual.getStoreRef(), expected.getStoreRef(), message);
+        assertEquals(actual.getSegmentClasses(), expected.getSegmentClasses(), message);
+
+        //Runtime inspection does not know getter names in advance, they are looked up as IntrospectUtil does
+        String[] parts = expected.getPath().split("\\.");
+        String[] getterNames = actual.getGetterNames();
+        assertEquals(getterNames.length, parts.length, message);
+        for (int i = 0; i < parts.length; i++) {
+            assertEquals(getterNames[i], IntrospectUtil.getGetter(parts[i], expected.getSegmentClasses()[i]).getName(),
+                    message);
+        }
+
+    }
+
+    /**
+     * Indexes attributes by path. As in IntrospectUtil, the first occurrence of a path wins
+     */
+    private Map<String, AttributeMetadata> byPath(List<AttributeMetadata> attributes) {
+
+        Map<String, AttributeMetadata> map = new LinkedHashMap<>();
+        attributes.forEach(attribute -> map.putIfAbsent(attribute.getPath(), attribute));
+        return map;
+
+    }
+
+}
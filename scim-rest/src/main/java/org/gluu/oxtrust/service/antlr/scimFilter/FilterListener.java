@@ -22,7 +22,6 @@ import org.gluu.oxtrust.service.antlr.scimFilter.enums.ScimOperator;
 import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterUtil;
 import org.gluu.oxtrust.service.scim2.ExtensionService;
 import org.gluu.search.filter.Filter;
-import org.gluu.service.cdi.util.CdiUtil;
 import org.gluu.util.Pair;
 
 import javax.lang.model.type.NullType;
@@ -45,9 +44,10 @@ public class FilterListener extends ScimFilterBaseListener {
     private Map<String, GluuAttribute> attributesMap;
     private boolean ldapBackend;
 	
-    public FilterListener(Class<? extends BaseScimResource> resourceClass, Map<String, GluuAttribute> attributesMap, boolean ldapBackend) {
+    public FilterListener(Class<? extends BaseScimResource> resourceClass, Map<String, GluuAttribute> attributesMap,
+                          boolean ldapBackend, ExtensionService extService) {
         filter = new ArrayDeque<>();
-        extService = CdiUtil.bean(ExtensionService.class);
+        this.extService = extService;
         this.resourceClass = resourceClass;
         this.attributesMap = attributesMap;
         this.ldapBackend = ldapBackend;
@@ -6,6 +6,7 @@
 package org.gluu.oxtrust.service.antlr.scimFilter;
 
 import java.util.Map;
+import java.util.function.Predicate;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,42 +19,44 @@ import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterUtil;
 import org.gluu.oxtrust.service.antlr.scimFilter.util.SimpleExpression;
 
 /**
- * Created by jgomer on 2017-12-10.
+ * Turns the parse tree of a value filter (e.g. {@code type eq "work"} in {@code emails[type eq "work"]}) into a
+ * predicate over the items of a complex multi-valued attribute. The types of the subattributes involved are resolved
+ * and compare values are converted when the predicate is built, so testing an item only involves the comparisons
+ * themselves. Predicates are stateless and can be reused across threads.
+ * <p>Created by jgomer on 2017-12-10 (as MatchFilterVisitor).</p>
  */
-public class MatchFilterVisitor extends ScimFilterBaseVisitor<Boolean> {
+public class MatchFilterCompiler extends ScimFilterBaseVisitor<Predicate<Map<String, Object>>> {
 
     private Logger log = LogManager.getLogger(getClass());
-    private Map<String, Object> item;
     private String parentAttribute;
     private Class<? extends BaseScimResource> resourceClass;
 
-    public MatchFilterVisitor(Map<String, Object> item, String parentAttribute, Class<? extends BaseScimResource> resourceClass){
-        this.item=item;
+    public MatchFilterCompiler(String parentAttribute, Class<? extends BaseScimResource> resourceClass){
         this.resourceClass = resourceClass;
         this.parentAttribute = parentAttribute;
     }
 
     @Override
-    public Boolean visitNegatedFilter(ScimFilterParser.NegatedFilterContext ctx) {
-        Boolean val=visit(ctx.filter());
+    public Predicate<Map<String, Object>> visitNegatedFilter(ScimFilterParser.NegatedFilterContext ctx) {
+        Predicate<Map<String, Object>> val=visit(ctx.filter());
         log.trace("visitNegatedFilter. childs: {}, text: {}", ctx.getChildCount(), ctx.getText());
-        return ctx.getText().startsWith("not(") ? !val : val;
+        return ctx.getChild(0).getText().equals("not") ? val.negate() : val;
     }
 
     @Override
-    public Boolean visitOrFilter(ScimFilterParser.OrFilterContext ctx) {
+    public Predicate<Map<String, Object>> visitOrFilter(ScimFilterParser.OrFilterContext ctx) {
         log.trace("visitOrFilter. childs: {}, text: {}", ctx.getChildCount(), ctx.getText());
-        return visit(ctx.getChild(0)) || visit(ctx.getChild(2));
+        return visit(ctx.getChild(0)).or(visit(ctx.getChild(2)));
     }
 
     @Override
-    public Boolean visitAndFilter(ScimFilterParser.AndFilterContext ctx) {
+    public Predicate<Map<String, Object>> visitAndFilter(ScimFilterParser.AndFilterContext ctx) {
         log.trace("visitAndFilter. childs: {}, text: {}", ctx.getChildCount(), ctx.getText());
-        return visit(ctx.getChild(0)) && visit(ctx.getChild(2));
+        return visit(ctx.getChild(0)).and(visit(ctx.getChild(2)));
     }
 
     @Override
-    public Boolean visitAttrexp(ScimFilterParser.AttrexpContext ctx) {
+    public Predicate<Map<String, Object>> visitAttrexp(ScimFilterParser.AttrexpContext ctx) {
         log.trace("visitAttrexp. childs: {}, text: {}", ctx.getChildCount(), ctx.getText());
 
         String path=ctx.attrpath().getText();
@@ -81,7 +84,7 @@ public class MatchFilterVisitor extends ScimFilterBaseVisitor<Boolean> {
         SimpleExpression expr = new SimpleExpression(path, operator, valueType, value);
         expr.setParentAttribute(parentAttribute);
         expr.setResourceClass(resourceClass);
-        return expr.evaluate(item);
+        return expr.toPredicate();
 
     }
 
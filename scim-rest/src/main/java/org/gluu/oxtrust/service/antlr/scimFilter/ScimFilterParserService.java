@@ -6,16 +6,24 @@
 package org.gluu.oxtrust.service.antlr.scimFilter;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.commons.lang.StringUtils;
@@ -26,9 +34,11 @@ import org.gluu.oxtrust.model.scim2.BaseScimResource;
 import org.gluu.oxtrust.service.antlr.scimFilter.antlr4.ScimFilterBaseListener;
 import org.gluu.oxtrust.service.antlr.scimFilter.antlr4.ScimFilterLexer;
 import org.gluu.oxtrust.service.antlr.scimFilter.antlr4.ScimFilterParser;
+import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterOptimizer;
 import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterUtil;
 import org.gluu.persist.service.PersistanceFactoryService;
 import org.gluu.oxtrust.service.AttributeService;
+import org.gluu.oxtrust.service.scim2.ExtensionService;
 import org.gluu.search.filter.Filter;
 import org.slf4j.Logger;
 
@@ -39,6 +49,14 @@ import org.slf4j.Logger;
 @ApplicationScoped
 public class ScimFilterParserService {
 
+    //Interval (in number of filters parsed) between checks of the size of the DFA cache
+    private static final int DFA_CHECK_INTERVAL = 256;
+
+    private static final int MATCH_FILTERS_CACHE_SIZE = 512;
+
+    //Lexer and parser instances are not thread-safe, but can be reused for parsing filters one after another
+    private static final ThreadLocal<Recognizers> RECOGNIZERS = ThreadLocal.withInitial(Recognizers::new);
+
     @Inject
     private Logger log;
 
@@ -48,24 +66,91 @@ public class ScimFilterParserService {
     @Inject
     private AttributeService attrService;
 
+    @Inject
+    private ExtensionService extService;
+
     private boolean ldapBackend;
 
+    //Whether to simplify filters before they are sent to the database (opt-in via system property scim.filter.optimize)
+    private boolean optimizeFilters;
+
+    private int maxDfaStates = 20000;
+
+    private AtomicInteger parseCount = new AtomicInteger();
+
+    //Compiled value filters, most recently used last. Entries are never invalidated: value filters only refer to
+    //sub-attributes of core complex attributes, whose types come from annotations and not from ExtensionService
+    private Map<String, Predicate<Map<String, Object>>> matchFilters =
+            new LinkedHashMap<String, Predicate<Map<String, Object>>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Predicate<Map<String, Object>>> eldest) {
+                    return size() > MATCH_FILTERS_CACHE_SIZE;
+                }
+            };
+
     public boolean isLdapBackend() {
         return ldapBackend;
     }
 
     private ParseTree getParseTree(String filter, ScimFilterErrorListener errorListener){
 
-        ANTLRInputStream input = new ANTLRInputStream(filter);
-        ScimFilterLexer lexer = new ScimFilterLexer(input);
-        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        Recognizers recognizers = RECOGNIZERS.get();
+        recognizers.lexer.setInputStream(CharStreams.fromString(filter));
+        recognizers.tokens.setTokenSource(recognizers.lexer);
+        ScimFilterParser parser = recognizers.parser;
+        parser.setInputStream(recognizers.tokens);
+
+        ParseTree tree;
+        try {
+            //Stage 1: SLL prediction is much faster and suffices for virtually all valid filters
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            tree = parser.filter();
+        } catch (ParseCancellationException e) {
+            //Stage 2: the filter is either invalid or needs full LL prediction. Errors are reported only here
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.addErrorListener(errorListener);
+            try {
+                tree = parser.filter();
+            } finally {
+                parser.removeErrorListeners();
+            }
+        }
+
+        if (parseCount.incrementAndGet() % DFA_CHECK_INTERVAL == 0) {
+            trimDFACache(recognizers);
+        }
+        return tree;
+
+    }
+
+    /**
+     * ANTLR memoizes prediction decisions in DFA shared by all instances of the lexer and parser. They never shrink,
+     * so arbitrary input (filters are supplied by clients) could make them grow without limit. When the number of
+     * states exceeds system property {@code scim.filterParser.maxDfaStates} (default 20000) the DFA are discarded
+     */
+    private void trimDFACache(Recognizers recognizers) {
+
+        int states = countStates(recognizers.parser.getInterpreter().decisionToDFA)
+                + countStates(recognizers.lexer.getInterpreter().decisionToDFA);
+        if (states > maxDfaStates) {
+            log.info("Clearing filter parser DFA cache ({} states)", states);
+            recognizers.parser.getInterpreter().clearDFA();
+            recognizers.lexer.getInterpreter().clearDFA();
+        }
+
+    }
 
-        ScimFilterParser parser = new ScimFilterParser(tokens);
-        parser.setTrimParseTree(true);
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
+    private static int countStates(DFA[] dfas) {
+
+        int states = 0;
+        for (DFA dfa : dfas) {
+            states += dfa.states.size();
+        }
+        return states;
 
-        return parser.filter();
     }
 
     public ParseTree getParseTree(String filter) throws Exception {
@@ -105,12 +190,17 @@ public class ScimFilterParserService {
             else {
             	List<GluuAttribute> allAttributes = attrService.getAllAttributes();
             	Map<String, GluuAttribute> allAttributesMap = buildAttributesMap(allAttributes);
-                FilterListener filterListener = new FilterListener(clazz, allAttributesMap, ldapBackend);
+                FilterListener filterListener = new FilterListener(clazz, allAttributesMap, ldapBackend, extService);
                 walkTree(FilterUtil.preprocess(filter, clazz), filterListener);
                 ldapFilter = filterListener.getFilter();
 
                 if (ldapFilter == null)
                     throw new Exception("An error occurred when building LDAP filter: " + filterListener.getError());
+
+                if (optimizeFilters) {
+                    ldapFilter = FilterOptimizer.optimize(ldapFilter);
+                    log.trace("Optimized filter is: {}", ldapFilter);
+                }
             }
 
             return ldapFilter;
@@ -130,16 +220,65 @@ public class ScimFilterParserService {
     	return attributesMap;
 	}
 
-	public Boolean complexAttributeMatch(ParseTree parseTree, Map<String, Object> item, String parent, Class<? extends BaseScimResource> clazz) throws Exception {
+    /**
+     * Builds a predicate that tells whether an item of a complex multi-valued attribute matches a value filter, e.g.
+     * the {@code type eq "work"} of {@code emails[type eq "work"]}. Predicates are cached, so repeated filters are
+     * parsed only once. The cache is not cleared when custom attributes change since predicates do not depend on them
+     * @param filter Value filter (already preprocessed, see {@link FilterUtil#preprocess(String, Class)})
+     * @param parent Name of the multi-valued attribute, e.g. "emails"
+     * @param clazz Class of the resource the attribute belongs to
+     * @return A predicate over the items (as maps) of the attribute
+     * @throws SCIMException If the filter is invalid
+     */
+    public Predicate<Map<String, Object>> compileMatchFilter(String filter, String parent,
+                                                             Class<? extends BaseScimResource> clazz) throws SCIMException {
+
+        String key = clazz.getName() + "|" + parent + "|" + filter;
+        Predicate<Map<String, Object>> predicate;
+        synchronized (matchFilters) {
+            predicate = matchFilters.get(key);
+        }
+        if (predicate == null) {
+            ScimFilterErrorListener errorListener = new ScimFilterErrorListener();
+            ParseTree tree = getParseTree(filter, errorListener);
+            checkParsingErrors(errorListener);
+            predicate = new MatchFilterCompiler(parent, clazz).visit(tree);
+
+            synchronized (matchFilters) {
+                matchFilters.put(key, predicate);
+            }
+        }
+        return predicate;
+
+    }
 
-        MatchFilterVisitor matchVisitor=new MatchFilterVisitor(item, parent, clazz);
-        return matchVisitor.visit(parseTree);
+	public Boolean complexAttributeMatch(ParseTree parseTree, Map<String, Object> item, String parent, Class<? extends BaseScimResource> clazz) throws Exception {
+        return new MatchFilterCompiler(parent, clazz).visit(parseTree).test(item);
     }
 
     @PostConstruct
     private void init() {
         ldapBackend = persistenceFactoryService.getPersistenceEntryManagerFactory(
                 persistenceFactoryService.loadPersistenceConfiguration()).getPersistenceType().equals("ldap");
+        optimizeFilters = Boolean.parseBoolean(System.getProperty("scim.filter.optimize", "false"));
+        try {
+            maxDfaStates = Integer.parseInt(System.getProperty("scim.filterParser.maxDfaStates", "20000"));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value of scim.filterParser.maxDfaStates");
+        }
+    }
+
+    private static class Recognizers {
+
+        private ScimFilterLexer lexer = new ScimFilterLexer(CharStreams.fromString(""));
+        private CommonTokenStream tokens = new CommonTokenStream(lexer);
+        private ScimFilterParser parser = new ScimFilterParser(tokens);
+
+        private Recognizers() {
+            parser.setTrimParseTree(true);
+            parser.removeErrorListeners();
+        }
+
     }
 
 }
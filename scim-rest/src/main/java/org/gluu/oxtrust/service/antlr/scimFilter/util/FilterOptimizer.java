@@ -0,0 +1,267 @@
+package org.gluu.oxtrust.service.antlr.scimFilter.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gluu.search.filter.Filter;
+import org.gluu.search.filter.FilterType;
+
+/**
+ * Simplifies the backend filters obtained from SCIM filters before they are sent to the database. Filters built by
+ * {@link org.gluu.oxtrust.service.antlr.scimFilter.FilterListener} mirror the parse tree (e.g. {@code a and b and c}
+ * becomes a nested tree of binary ANDs), and machine-generated SCIM filters are commonly redundant. This class:
+ * <ul>
+ *     <li>Flattens nested ANDs (ORs) into a single n-ary AND (OR), removes double negations and unwraps single-operand
+ *     ANDs/ORs</li>
+ *     <li>Removes duplicate operands</li>
+ *     <li>Drops presence operands implied by other operands on the same attribute in an AND, and operands subsumed by a
+ *     presence operand in an OR</li>
+ *     <li>Reduces an AND that cannot match (e.g. it contains X and not X) to the contradicting operands only</li>
+ *     <li>Groups equalities on the same attribute inside an OR into their own OR, a form the Couchbase and SQL
+ *     persistence layers translate to an IN expression</li>
+ *     <li>Sorts the operands of ANDs so the most selective (e.g. equalities) come first</li>
+ * </ul>
+ * Every step preserves the semantics of the filter.
+ * <p>Optimization is disabled by default; set system property {@code scim.filter.optimize} to {@code true} to enable
+ * it (see {@link org.gluu.oxtrust.service.antlr.scimFilter.ScimFilterParserService}).</p>
+ */
+public class FilterOptimizer {
+
+    //Rough selectivity of the operands of an AND: lower goes first
+    private static final Comparator<Filter> SELECTIVITY = Comparator.comparingInt(FilterOptimizer::getSelectivityRank);
+
+    private FilterOptimizer() { }
+
+    /**
+     * Returns a simplified filter equivalent to the one passed
+     * @param filter A filter (may be null)
+     * @return The simplified filter. The original is not modified, although its leaves may be shared
+     */
+    public static Filter optimize(Filter filter) {
+
+        if (filter == null) {
+            return null;
+        }
+        switch (filter.getType()) {
+            case NOT:
+                Filter inner = optimize(filter.getFilters()[0]);
+                if (inner.getType() == FilterType.NOT) {
+                    return inner.getFilters()[0];
+                }
+                return inner == filter.getFilters()[0] ? filter : Filter.createNOTFilter(inner);
+            case AND:
+                return optimizeAnd(filter);
+            case OR:
+                return optimizeOr(filter);
+            default:
+                return filter;
+        }
+
+    }
+
+    private static Filter optimizeAnd(Filter filter) {
+
+        List<Filter> operands = removeDuplicates(flatten(filter, FilterType.AND));
+
+        List<Filter> contradiction = findContradiction(operands);
+        if (contradiction != null) {
+            return Filter.createANDFilter(contradiction.toArray(new Filter[0]));
+        }
+
+        //pr is implied by any other comparison on the same attribute
+        Set<String> compared = new HashSet<>();
+        for (Filter operand : operands) {
+            if (isComparison(operand)) {
+                compared.add(getAttributeKey(operand));
+            }
+        }
+        operands.removeIf(operand -> operand.getType() == FilterType.PRESENCE
+                && compared.contains(getAttributeKey(operand)));
+
+        operands.sort(SELECTIVITY);
+        return operands.size() == 1 ? operands.get(0) : Filter.createANDFilter(operands.toArray(new Filter[0]));
+
+    }
+
+    private static Filter optimizeOr(Filter filter) {
+
+        List<Filter> operands = removeDuplicates(flatten(filter, FilterType.OR));
+
+        //Any comparison on an attribute is subsumed by pr on the same attribute
+        Set<String> present = new HashSet<>();
+        for (Filter operand : operands) {
+            if (operand.getType() == FilterType.PRESENCE) {
+                present.add(getAttributeKey(operand));
+            }
+        }
+        operands.removeIf(operand -> isComparison(operand) && present.contains(getAttributeKey(operand)));
+
+        //Gather equalities per attribute keeping the position of the first one
+        Map<String, List<Filter>> groups = new LinkedHashMap<>();
+        for (Filter operand : operands) {
+            String key = operand.getType() == FilterType.EQUALITY ? getAttributeKey(operand) : null;
+            groups.computeIfAbsent(key == null ? "#" + groups.size() : key, k -> new ArrayList<>()).add(operand);
+        }
+
+        List<Filter> result = new ArrayList<>();
+        for (List<Filter> group : groups.values()) {
+            if (group.size() == 1 || groups.size() == 1) {
+                result.addAll(group);
+            } else {
+                result.add(Filter.createORFilter(group.toArray(new Filter[0])));
+            }
+        }
+        return result.size() == 1 ? result.get(0) : Filter.createORFilter(result.toArray(new Filter[0]));
+
+    }
+
+    /**
+     * Collects the (optimized) operands of a filter, pulling up the operands of nested filters of the same type
+     */
+    private static List<Filter> flatten(Filter filter, FilterType type) {
+
+        List<Filter> operands = new ArrayList<>();
+        for (Filter sub : filter.getFilters()) {
+            Filter optimized = optimize(sub);
+            if (optimized.getType() == type) {
+                operands.addAll(Arrays.asList(optimized.getFilters()));
+            } else {
+                operands.add(optimized);
+            }
+        }
+        return operands;
+
+    }
+
+    private static List<Filter> removeDuplicates(List<Filter> operands) {
+
+        Map<String, Filter> unique = new LinkedHashMap<>();
+        for (Filter operand : operands) {
+            unique.putIfAbsent(getKey(operand), operand);
+        }
+        return new ArrayList<>(unique.values());
+
+    }
+
+    /**
+     * Finds operands of an AND that cannot hold at the same time: X and not X, or equalities on a single-valued
+     * attribute with different values
+     * @return The contradicting operands, or null if none were found
+     */
+    private static List<Filter> findContradiction(List<Filter> operands) {
+
+        Map<String, Filter> byKey = new LinkedHashMap<>();
+        Map<String, Filter> equalities = new LinkedHashMap<>();
+
+        for (Filter operand : operands) {
+            byKey.put(getKey(operand), operand);
+
+            if (operand.getType() == FilterType.EQUALITY && Boolean.FALSE.equals(operand.getMultiValued())
+                    && operand.getAttributeName() != null && operand.getAssertionValue() instanceof String) {
+
+                String value = (String) operand.getAssertionValue();
+                Filter other = equalities.putIfAbsent(getAttributeKey(operand), operand);
+                //Matching of strings is usually case-insensitive, so only values differing beyond case contradict
+                if (other != null && !value.equalsIgnoreCase((String) other.getAssertionValue())) {
+                    return Arrays.asList(other, operand);
+                }
+            }
+        }
+        for (Filter operand : operands) {
+            if (operand.getType() == FilterType.NOT) {
+                Filter negated = byKey.get(getKey(operand.getFilters()[0]));
+                if (negated != null) {
+                    return Arrays.asList(negated, operand);
+                }
+            }
+        }
+        return null;
+
+    }
+
+    private static boolean isComparison(Filter filter) {
+
+        switch (filter.getType()) {
+            case EQUALITY:
+            case SUBSTRING:
+            case GREATER:
+            case LESS:
+                return filter.getAttributeName() != null;
+            default:
+                return false;
+        }
+
+    }
+
+    private static int getSelectivityRank(Filter filter) {
+
+        switch (filter.getType()) {
+            case EQUALITY:
+                return Boolean.FALSE.equals(filter.getMultiValued()) ? 0 : 1;
+            case SUBSTRING:
+                return filter.getSubInitial() == null ? 4 : 2;
+            case GREATER:
+            case LESS:
+                return 3;
+            case PRESENCE:
+                return 7;
+            case NOT:
+                return 8;
+            default:
+                //AND, OR and others
+                return 5;
+        }
+
+    }
+
+    /**
+     * Identifies the attribute a filter applies to, or null when it does not apply to a plain attribute (e.g. it
+     * applies to a lower-cased attribute)
+     */
+    private static String getAttributeKey(Filter filter) {
+        String name = filter.getAttributeName();
+        return name == null ? null : name.toLowerCase() + "|" + filter.getMultiValued();
+    }
+
+    /**
+     * Builds a string that identifies a filter structurally. Unlike {@link Filter#toString()} it accounts for the
+     * multi-valued flag, which affects how some backends evaluate a filter
+     */
+    private static String getKey(Filter filter) {
+
+        StringBuilder sb = new StringBuilder();
+        appendKey(filter, sb);
+        return sb.toString();
+
+    }
+
+    private static void appendKey(Filter filter, StringBuilder sb) {
+
+        sb.append('(').append(filter.getType()).append(' ').append(filter.getAttributeName())
+                .append(' ').append(filter.getMultiValued());
+        if (filter.getAssertionValue() != null) {
+            Object value = filter.getAssertionValue();
+            sb.append(' ').append(value.getClass().getSimpleName()).append(':').append(value);
+        }
+        if (filter.getType() == FilterType.SUBSTRING) {
+            sb.append(' ').append(filter.getSubInitial()).append(' ')
+                    .append(Arrays.toString(filter.getSubAny())).append(' ').append(filter.getSubFinal());
+        }
+        if (filter.getFilters() != null) {
+            for (Filter sub : filter.getFilters()) {
+                if (sub != null) {
+                    appendKey(sub, sb);
+                }
+            }
+        }
+        sb.append(')');
+
+    }
+
+}
@@ -93,10 +93,6 @@ public class FilterUtil {
 
     }
 
-    public static void logOperatorInconsistency(String operator, String type, String attrname){
-        log.error(getOperatorInconsistencyError(operator, type, attrname));
-    }
-
     public static String getOperatorInconsistencyError(String operator, String type, String attrname){
         return String.format("Operator '%s' is not consistent with type '%s' of attribute %s", operator, type, attrname);
     }
@@ -2,11 +2,14 @@ package org.gluu.oxtrust.service.antlr.scimFilter.util;
 
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
 import java.time.Instant;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.gluu.oxtrust.model.exception.SCIMException;
 import org.gluu.oxtrust.model.scim2.AttributeDefinition.Type;
 import org.gluu.oxtrust.model.scim2.BaseScimResource;
 import org.gluu.oxtrust.model.scim2.annotations.Attribute;
@@ -42,17 +45,23 @@ public class SimpleExpression {
         //extService= CdiUtil.bean(ExtensionService.class);
     }
 
-    public Boolean evaluate(Map<String, Object> item){
+    /**
+     * Builds a predicate that tells whether an item (the value of a complex attribute) satisfies this expression. The
+     * type of the attribute is resolved and the compare value converted once, here
+     * @return A predicate. It throws a {@link SCIMException} if an item holds a value not matching the attribute type
+     * @throws SCIMException If the type of the attribute cannot be determined or is not consistent with the operator
+     * or the compare value
+     */
+    public Predicate<Map<String, Object>> toPredicate() throws SCIMException {
         /*
         There are 3 categories for attribute operators:
         - eq, ne (applicable to all types)
         - co, sw, ew (applicable to STRING, REFERENCE)
         - gt, ge, lt, le (applicable to STRING, DECIMAL, REFERENCE, DATETIME)
          */
-        Boolean val=null;
         Type attrType=null;
 
-        log.trace("SimpleExpression.evaluate.");
+        log.trace("SimpleExpression.toPredicate.");
         String msg=String.format("%s%s",
                 StringUtils.isEmpty(parentAttribute) ? "" : (parentAttribute + "."), resourceClass.getSimpleName());
 
@@ -62,7 +71,7 @@ public class SimpleExpression {
                 ExtensionField field=extService.getFieldOfExtendedAttribute(resourceClass, attribute);
 
                 if (field == null)
-                    log.error("SimpleExpression.evaluate. Attribute '{}' is not recognized in {}", attribute, msg);
+                    log.error("SimpleExpression.toPredicate. Attribute '{}' is not recognized in {}", attribute, msg);
                 else
                     attrType = field.getAttributeDefinitionType();
             }
@@ -70,180 +79,172 @@ public class SimpleExpression {
         else
             attrType = attrAnnot.type();
 
-        if (attrType==null) {
-            log.error("SimpleExpression.evaluate. Could not determine type of attribute '{}' in {}", attribute, msg);
-        }
-        else {
-            String errMsg=FilterUtil.checkFilterConsistency(attribute, attrType, type, operator);
+        if (attrType==null)
+            throw new SCIMException(String.format("Could not determine type of attribute '%s' in %s", attribute, msg));
 
-            if (errMsg==null){
-                Object currentAttrValue=item.get(attribute);
+        String errMsg=FilterUtil.checkFilterConsistency(attribute, attrType, type, operator);
+        if (errMsg!=null)
+            throw new SCIMException(errMsg);
 
-                if (type.equals(CompValueType.NULL)) {   //implies attributeValue==null
-                    log.trace("SimpleExpression.evaluate. Using null as compare value");
-                    val=operator.equals(ScimOperator.EQUAL) ? currentAttrValue==null : currentAttrValue!=null;
-                }
-                else
-                if (currentAttrValue==null){
-                    //If value is absent, filter won't match against anything (only when comparing with null as in previous case)
-                    log.trace("SimpleExpression.evaluate. Attribute \"{}\" is absent in resource data", attribute);
-                    val=false;
-                }
-                else
-                if (Type.STRING.equals(attrType) || Type.REFERENCE.equals(attrType))    //check it's a string or reference
-                    val = evaluateStringAttribute(attrAnnot!=null && attrAnnot.isCaseExact(), currentAttrValue);
-                else
-                if (Type.INTEGER.equals(attrType) || Type.DECIMAL.equals(attrType))
-                    val = evaluateNumericAttribute(attrType, currentAttrValue);
-                else
-                if (Type.BOOLEAN.equals(attrType))
-                    val = evaluateBooleanAttribute(attrType, currentAttrValue);
-                else
-                if (Type.DATETIME.equals(attrType))
-                    val = evaluateDateTimeAttribute(attrType, currentAttrValue);
-            }
-            else
-                log.error("SimpleExpression.evaluate. {}", errMsg);
+        if (type.equals(CompValueType.NULL)) {   //implies attributeValue==null
+            boolean equal=operator.equals(ScimOperator.EQUAL);
+            return item -> equal == (item.get(attribute)==null);
         }
-        return val;
+
+        Predicate<Object> test;
+        if (Type.STRING.equals(attrType) || Type.REFERENCE.equals(attrType))    //check it's a string or reference
+            test = stringTest(attrAnnot!=null && attrAnnot.isCaseExact());
+        else
+        if (Type.INTEGER.equals(attrType) || Type.DECIMAL.equals(attrType))
+            test = numericTest(attrType);
+        else
+        if (Type.BOOLEAN.equals(attrType))
+            test = booleanTest(attrType);
+        else
+        if (Type.DATETIME.equals(attrType))
+            test = dateTimeTest(attrType);
+        else
+            throw new SCIMException(FilterUtil.getOperatorInconsistencyError(operator.getValue(), attrType.toString(), attribute));
+
+        //If value is absent, filter won't match against anything (only when comparing with null as in previous case)
+        return item -> {
+            Object currentAttrValue=item.get(attribute);
+            return currentAttrValue!=null && test.test(currentAttrValue);
+        };
 
     }
 
-    private Boolean evaluateDateTimeAttribute(Type attrType, Object valueInItemObj){
-
-        Boolean val=null;
-        log.trace("SimpleExpression.evaluateDateTimeAttribute");
-
-        try{
-            long valueInItem = Instant.parse(valueInItemObj.toString()).toEpochMilli();
-            long compareAgainst = Instant.parse(attributeValue).toEpochMilli();
-
-            switch (operator){
-                case EQUAL:
-                    val=valueInItem==compareAgainst;
-                    break;
-                case NOT_EQUAL:
-                    val=valueInItem!=compareAgainst;
-                    break;
-                case GREATER_THAN:
-                    val=valueInItem>compareAgainst;
-                    break;
-                case GREATER_THAN_OR_EQUAL:
-                    val=valueInItem>=compareAgainst;
-                    break;
-                case LESS_THAN:
-                    val=valueInItem<compareAgainst;
-                    break;
-                case LESS_THAN_OR_EQUAL:
-                    val=valueInItem<=compareAgainst;
-                    break;
-                default:
-                    FilterUtil.logOperatorInconsistency(operator.getValue(), attrType.toString(), attribute);
-            }
+    private Predicate<Object> dateTimeTest(Type attrType){
+
+        long compareAgainst;
+        try {
+            compareAgainst = Instant.parse(attributeValue).toEpochMilli();
         }
         catch (Exception e){
-            log.error("SimpleExpression.evaluate. Date not in ISO format");
+            throw new SCIMException("Date not in ISO format: " + attributeValue);
         }
-        return val;
 
-    }
+        LongPredicate comparison;
+        switch (operator){
+            case EQUAL:
+                comparison = valueInItem -> valueInItem==compareAgainst;
+                break;
+            case NOT_EQUAL:
+                comparison = valueInItem -> valueInItem!=compareAgainst;
+                break;
+            case GREATER_THAN:
+                comparison = valueInItem -> valueInItem>compareAgainst;
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                comparison = valueInItem -> valueInItem>=compareAgainst;
+                break;
+            case LESS_THAN:
+                comparison = valueInItem -> valueInItem<compareAgainst;
+                break;
+            case LESS_THAN_OR_EQUAL:
+                comparison = valueInItem -> valueInItem<=compareAgainst;
+                break;
+            default:
+                throw new SCIMException(FilterUtil.getOperatorInconsistencyError(operator.getValue(), attrType.toString(), attribute));
+        }
 
-    private Boolean evaluateBooleanAttribute(Type attrType, Object valueInItemObj){
+        return valueInItemObj -> {
+            long valueInItem;
+            try {
+                valueInItem = Instant.parse(valueInItemObj.toString()).toEpochMilli();
+            }
+            catch (Exception e){
+                throw new SCIMException("Date not in ISO format: " + valueInItemObj);
+            }
+            return comparison.test(valueInItem);
+        };
+
+    }
 
-        Boolean val=null;
-        log.trace("SimpleExpression.evaluateBooleanAttribute");
+    private Predicate<Object> booleanTest(Type attrType){
 
-        boolean valueInItem=Boolean.valueOf(valueInItemObj.toString());
         boolean compareAgainst=Boolean.valueOf(attributeValue);
 
         if (operator.equals(ScimOperator.EQUAL))
-            val=valueInItem==compareAgainst;
+            return valueInItemObj -> Boolean.valueOf(valueInItemObj.toString())==compareAgainst;
         else
         if (operator.equals(ScimOperator.NOT_EQUAL))
-            val=valueInItem!=compareAgainst;
+            return valueInItemObj -> Boolean.valueOf(valueInItemObj.toString())!=compareAgainst;
         else
-            FilterUtil.logOperatorInconsistency(operator.getValue(), attrType.toString(), attribute);
-
-        return val;
+            throw new SCIMException(FilterUtil.getOperatorInconsistencyError(operator.getValue(), attrType.toString(), attribute));
 
     }
 
-    private Boolean evaluateNumericAttribute(Type attrType, Object valueInItemObj){
-
-        Boolean val=null;
-        log.trace("SimpleExpression.evaluateNumericAttribute");
+    private Predicate<Object> numericTest(Type attrType){
 
-        BigDecimal valueInItem=new BigDecimal(valueInItemObj.toString());
         BigDecimal compareAgainst=new BigDecimal(attributeValue);
+        Predicate<BigDecimal> comparison;
 
         switch (operator) {
             case EQUAL:
-                val=valueInItem.equals(compareAgainst);
+                comparison = valueInItem -> valueInItem.equals(compareAgainst);
                 break;
             case NOT_EQUAL:
-                val=!valueInItem.equals(compareAgainst);
+                comparison = valueInItem -> !valueInItem.equals(compareAgainst);
                 break;
             case GREATER_THAN:
-                val=valueInItem.compareTo(compareAgainst)>0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)>0;
                 break;
             case GREATER_THAN_OR_EQUAL:
-                val=valueInItem.equals(compareAgainst) || valueInItem.compareTo(compareAgainst)>0;
+                comparison = valueInItem -> valueInItem.equals(compareAgainst) || valueInItem.compareTo(compareAgainst)>0;
                 break;
             case LESS_THAN:
-                val=valueInItem.compareTo(compareAgainst)<0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)<0;
                 break;
             case LESS_THAN_OR_EQUAL:
-                val=valueInItem.equals(compareAgainst) || valueInItem.compareTo(compareAgainst)<0;
+                comparison = valueInItem -> valueInItem.equals(compareAgainst) || valueInItem.compareTo(compareAgainst)<0;
                 break;
             default:
-                FilterUtil.logOperatorInconsistency(operator.getValue(), attrType.toString(), attribute);
+                throw new SCIMException(FilterUtil.getOperatorInconsistencyError(operator.getValue(), attrType.toString(), attribute));
         }
-        return val;
+        return valueInItemObj -> comparison.test(new BigDecimal(valueInItemObj.toString()));
 
     }
 
-    private Boolean evaluateStringAttribute(boolean caseExact, Object valueInItemObj) {
+    private Predicate<Object> stringTest(boolean caseExact) {
 
         //Here attributeValue is never null
-        Boolean val=null;
-        log.trace("SimpleExpression.evaluateStringAttribute");
-
-        String valueInItem=valueInItemObj.toString();
+        String compareAgainst=caseExact ? attributeValue : attributeValue.toLowerCase();
+        Predicate<String> comparison;
 
-        if (!caseExact){
-            valueInItem=valueInItem.toLowerCase();
-            attributeValue=attributeValue.toLowerCase();
-        }
         switch (operator){
             case EQUAL:
-                val=valueInItem.equals(attributeValue);
+                comparison = valueInItem -> valueInItem.equals(compareAgainst);
                 break;
             case NOT_EQUAL:
-                val=!valueInItem.equals(attributeValue);
+                comparison = valueInItem -> !valueInItem.equals(compareAgainst);
                 break;
             case CONTAINS:
-                val=valueInItem.contains(attributeValue);
+                comparison = valueInItem -> valueInItem.contains(compareAgainst);
                 break;
             case STARTS_WITH:
-                val=valueInItem.startsWith(attributeValue);
+                comparison = valueInItem -> valueInItem.startsWith(compareAgainst);
                 break;
             case ENDS_WITH:
-                val=valueInItem.endsWith(attributeValue);
+                comparison = valueInItem -> valueInItem.endsWith(compareAgainst);
                 break;
             case GREATER_THAN:
-                val=valueInItem.compareTo(attributeValue)>0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)>0;
                 break;
             case GREATER_THAN_OR_EQUAL:
-                val=valueInItem.equals(attributeValue) || valueInItem.compareTo(attributeValue)>0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)>=0;
                 break;
             case LESS_THAN:
-                val=valueInItem.compareTo(attributeValue)<0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)<0;
                 break;
             case LESS_THAN_OR_EQUAL:
-                val=valueInItem.equals(attributeValue) || valueInItem.compareTo(attributeValue)<0;
+                comparison = valueInItem -> valueInItem.compareTo(compareAgainst)<=0;
                 break;
+            default:
+                throw new SCIMException(FilterUtil.getOperatorInconsistencyError(operator.getValue(), Type.STRING.toString(), attribute));
         }
-        return val;
+        return caseExact ? valueInItemObj -> comparison.test(valueInItemObj.toString())
+                : valueInItemObj -> comparison.test(valueInItemObj.toString().toLowerCase());
 
     }
 
@@ -0,0 +1,163 @@
+package org.gluu.oxtrust.service.scim2;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.control.RequestContextController;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+
+import org.gluu.oxtrust.ws.rs.scim2.BaseScimWebService;
+import org.slf4j.Logger;
+
+/**
+ * Runs the processing of requests to {@link org.gluu.oxtrust.service.scim2.interceptor.AsyncExecution AsyncExecution}
+ * web methods, which are suspended beforehand by {@link org.gluu.oxtrust.service.scim2.interceptor.AsyncExecutionFilter
+ * AsyncExecutionFilter}. When enabled, the container thread that received a request is released right away and the
+ * (blocking) work takes place in a bounded pool of threads, so slow backend episodes do not exhaust the servlet
+ * container's pool.
+ * <p>This mode is opt-in and driven by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.async.enabled}: Whether to use the pool at all (default false). When disabled, requests are
+ *     processed in the container thread as usual</li>
+ *     <li>{@code scim.async.threads}: Size of the pool (default 64)</li>
+ *     <li>{@code scim.async.maxConcurrency}: Maximum number of requests in course per endpoint (default: the size of
+ *     the pool). It can be overridden for a specific endpoint, e.g. {@code scim.async.maxConcurrency.Bulk}. Requests
+ *     exceeding the limit are answered with status 503 at once</li>
+ *     <li>{@code scim.async.timeout}: Time in milliseconds a request may take, waiting for a thread of the pool included,
+ *     before status 503 is returned (default 60000)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class AsyncExecutionService {
+
+    private static final String PROPERTY_PREFIX = "scim.async.";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private Instance<RequestContextController> contextControllers;
+
+    private boolean enabled;
+
+    private int defaultMaxConcurrency;
+
+    private long timeout;
+
+    private ExecutorService executor;
+
+    private ConcurrentMap<String, Semaphore> limits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init() {
+
+        enabled = Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "enabled"));
+        if (enabled) {
+            int threads = getIntProperty("threads").orElse(64);
+            defaultMaxConcurrency = getIntProperty("maxConcurrency").orElse(threads);
+            timeout = getIntProperty("timeout").orElse(60000);
+
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "scim-async-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("Asynchronous execution of requests enabled with {} threads and {} ms timeout", threads, timeout);
+        }
+
+    }
+
+    @PreDestroy
+    private void destroy() {
+        Optional.ofNullable(executor).ifPresent(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Whether requests are processed in the pool of this service or in the container thread
+     * @return A boolean value
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Hands the processing of a request over to the pool
+     * @param endpoint Name of the endpoint the request belongs to, e.g. "Users". Concurrency limits apply per endpoint
+     * @param asyncResponse The suspended request. If no response was sent when the timeout elapses, it is resumed
+     *                      with status 503
+     * @param work Processing of the request, including the writing of the response
+     * @param reject Receives the response to send instead when the request cannot be processed
+     */
+    public void submit(String endpoint, AsyncResponse asyncResponse, Runnable work, Consumer<Response> reject) {
+
+        Semaphore permits = limits.computeIfAbsent(endpoint, key -> new Semaphore(
+                getIntProperty("maxConcurrency." + key).orElse(defaultMaxConcurrency)));
+        if (!permits.tryAcquire()) {
+            log.warn("Concurrency limit of {} endpoint reached", endpoint);
+            reject.accept(BaseScimWebService.getErrorResponse(Response.Status.SERVICE_UNAVAILABLE,
+                    "Too many requests in course, try again later"));
+            return;
+        }
+
+        //Applies while the request waits for a thread and while it is processed (e.g. a hung backend call)
+        asyncResponse.setTimeoutHandler(ar -> {
+            log.warn("Request to {} endpoint timed out", endpoint);
+            ar.resume(BaseScimWebService.getErrorResponse(Response.Status.SERVICE_UNAVAILABLE,
+                    "Request could not be processed in time"));
+        });
+        asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+
+        try {
+            executor.execute(() -> {
+                RequestContextController controller = contextControllers.get();
+                controller.activate();
+                try {
+                    //There is no point in processing a request already answered due to timeout
+                    if (!asyncResponse.isDone()) {
+                        work.run();
+                    }
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                } finally {
+                    controller.deactivate();
+                    contextControllers.destroy(controller);
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            reject.accept(BaseScimWebService.getErrorResponse(Response.Status.SERVICE_UNAVAILABLE,
+                    "Service is shutting down"));
+        }
+
+    }
+
+    private Optional<Integer> getIntProperty(String name) {
+
+        return Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + name)).map(prop -> {
+            try {
+                return Integer.valueOf(prop);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value of {}{}: {}", PROPERTY_PREFIX, name, prop);
+                return null;
+            }
+        });
+
+    }
+
+}
@@ -0,0 +1,225 @@
+package org.gluu.oxtrust.service.scim2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.gluu.oxtrust.model.scim2.ErrorScimType;
+import org.gluu.oxtrust.service.scim2.IndexMetadataService.IndexType;
+import org.gluu.search.filter.Filter;
+import org.slf4j.Logger;
+
+/**
+ * Estimates the cost of search filters based on the indexes of the database (see {@link IndexMetadataService}) and
+ * keeps filters that require a scan of the whole people or groups branch from tying up the database. A filter is
+ * classified as:
+ * <ul>
+ *     <li>{@link Cost#INDEXED}: every comparison can be resolved with an index</li>
+ *     <li>{@link Cost#PARTIALLY_INDEXED}: indexes narrow the candidate entries, which are then checked against the
+ *     remaining comparisons (e.g. an AND where only one operand is indexed)</li>
+ *     <li>{@link Cost#FULL_SCAN}: every entry has to be visited, e.g. a negation, or an OR with an unindexed
+ *     operand</li>
+ * </ul>
+ * <p>The treatment of full scans is governed by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.filterGuard.mode}: One of "off" (default, filters are not inspected), "log" (full scans are
+ *     logged), "cap" (full scans are served with a capped totalResults, see {@link TotalResultsService}, so the number
+ *     of entries returned and counted is bounded. This does not bound the scan cost: the backend may still walk the
+ *     whole tree to evaluate an unindexed filter. Sorted full scans are rejected with a tooMany error since sorting
+ *     needs all matches) or "reject" (full scans are rejected with an invalidFilter error)</li>
+ *     <li>{@code scim.filterGuard.maxScansPerMinute}: Maximum number of full scans admitted per minute in "log" and
+ *     "cap" modes. Further scans are rejected with a tooMany error. A value of 0 (default) means no limit</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class FilterCostGuard {
+
+    public enum Cost { INDEXED, PARTIALLY_INDEXED, FULL_SCAN }
+
+    private enum Mode { OFF, LOG, CAP, REJECT }
+
+    private static final String PROPERTY_PREFIX = "scim.filterGuard.";
+
+    private static final long WINDOW_LENGTH = 60000;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private IndexMetadataService indexMetadataService;
+
+    @Inject
+    private TotalResultsService totalResultsService;
+
+    private Mode mode;
+
+    private int maxScansPerMinute;
+
+    private long windowStart;
+
+    private int scansInWindow;
+
+    @PostConstruct
+    private void init() {
+
+        String value = System.getProperty(PROPERTY_PREFIX + "mode", Mode.OFF.name());
+        try {
+            mode = Mode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring invalid value of {}mode: {}", PROPERTY_PREFIX, value);
+            mode = Mode.OFF;
+        }
+        value = System.getProperty(PROPERTY_PREFIX + "maxScansPerMinute", "0");
+        try {
+            maxScansPerMinute = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value of {}maxScansPerMinute: {}", PROPERTY_PREFIX, value);
+        }
+
+        if (mode != Mode.OFF) {
+            log.info("Search filter guard enabled in {} mode (full scans per minute limit: {})",
+                    mode.name().toLowerCase(), maxScansPerMinute > 0 ? maxScansPerMinute : "none");
+        }
+
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    /**
+     * Decides whether a search can be executed
+     * @param filter The database filter of the search
+     * @param sorted Whether the search is sorted
+     * @param startIndex The 1-based index of the first result requested
+     * @return true if the search must be executed with a capped totalResults, false if it can run as requested
+     * @throws RejectedSearchException If the search must not be executed
+     */
+    public boolean admit(Filter filter, boolean sorted, int startIndex) throws RejectedSearchException {
+
+        if (mode == Mode.OFF) {
+            return false;
+        }
+        List<String> reasons = new ArrayList<>();
+        Cost cost = classify(filter, reasons);
+        log.debug("Cost of filter {} is {}", filter, cost);
+
+        if (cost != Cost.FULL_SCAN) {
+            return false;
+        }
+        String detail = String.join("; ", reasons);
+        log.warn("Filter {} requires a full scan: {}", filter, detail);
+
+        if (mode == Mode.REJECT) {
+            throw new RejectedSearchException(ErrorScimType.INVALID_FILTER,
+                    "Filter requires a full scan of the directory and is not allowed: " + detail);
+        }
+        if (mode == Mode.CAP && sorted) {
+            throw new RejectedSearchException(ErrorScimType.TOO_MANY,
+                    "Sorting is not supported with filters that require a full scan of the directory: " + detail);
+        }
+        if (mode == Mode.CAP && startIndex > totalResultsService.getCap()) {
+            //Matches past the cap are never retrieved, see TotalResultsService#findPagedEntries
+            throw new RejectedSearchException(ErrorScimType.TOO_MANY, String.format("startIndex cannot exceed %d " +
+                    "with filters that require a full scan of the directory: %s", totalResultsService.getCap(), detail));
+        }
+        if (!acquireScan()) {
+            throw new RejectedSearchException(ErrorScimType.TOO_MANY,
+                    "Too many searches requiring a full scan of the directory. Try again later or narrow the filter");
+        }
+        return mode == Mode.CAP;
+
+    }
+
+    /**
+     * Estimates the cost of a filter
+     * @param filter A database filter
+     * @return A {@link Cost} value
+     */
+    public Cost classify(Filter filter) {
+        return classify(filter, new ArrayList<>());
+    }
+
+    private Cost classify(Filter filter, List<String> reasons) {
+
+        switch (filter.getType()) {
+            case AND:
+                //Indexed operands narrow the entries the remaining ones are checked against
+                boolean allIndexed = true;
+                boolean anyIndexed = false;
+                List<String> andReasons = new ArrayList<>();
+                for (Filter sub : filter.getFilters()) {
+                    Cost cost = classify(sub, andReasons);
+                    allIndexed &= cost == Cost.INDEXED;
+                    anyIndexed |= cost != Cost.FULL_SCAN;
+                }
+                if (!anyIndexed) {
+                    reasons.addAll(andReasons);
+                }
+                return allIndexed ? Cost.INDEXED : (anyIndexed ? Cost.PARTIALLY_INDEXED : Cost.FULL_SCAN);
+            case OR:
+                //Every operand has to be resolved on its own
+                Cost worst = Cost.INDEXED;
+                for (Filter sub : filter.getFilters()) {
+                    Cost cost = classify(sub, reasons);
+                    worst = cost.compareTo(worst) > 0 ? cost : worst;
+                }
+                return worst;
+            case NOT:
+                reasons.add("negations cannot be resolved with indexes");
+                return Cost.FULL_SCAN;
+            case EQUALITY:
+                return checkIndex(filter, IndexType.EQ, "equality", reasons);
+            case PRESENCE:
+                return checkIndex(filter, IndexType.PRES, "presence", reasons);
+            case SUBSTRING:
+                return checkIndex(filter, IndexType.SUB, "substring", reasons);
+            case GREATER:
+            case LESS:
+                return checkIndex(filter, IndexType.ORD, "ordering", reasons);
+            default:
+                reasons.add("unsupported comparison " + filter);
+                return Cost.FULL_SCAN;
+        }
+
+    }
+
+    private Cost checkIndex(Filter filter, IndexType type, String matching, List<String> reasons) {
+
+        String attribute = filter.getAttributeName();
+        if (attribute == null && filter.getFilters() != null && filter.getFilters().length > 0) {
+            //Comparison applied to a function of the attribute, e.g. lower-casing
+            attribute = filter.getFilters()[0].getAttributeName();
+        }
+        Set<IndexType> types = indexMetadataService.getIndexTypes(attribute);
+        if (types.contains(type)) {
+            return Cost.INDEXED;
+        }
+        reasons.add(String.format("attribute '%s' is not indexed for %s matching", attribute, matching));
+        return Cost.FULL_SCAN;
+
+    }
+
+    private synchronized boolean acquireScan() {
+
+        if (maxScansPerMinute <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= WINDOW_LENGTH) {
+            windowStart = now;
+            scansInWindow = 0;
+        }
+        if (scansInWindow < maxScansPerMinute) {
+            scansInWindow++;
+            return true;
+        }
+        return false;
+
+    }
+
+}
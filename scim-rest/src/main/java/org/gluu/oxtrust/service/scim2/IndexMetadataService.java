@@ -0,0 +1,88 @@
+package org.gluu.oxtrust.service.scim2;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+
+/**
+ * Tells which attributes of people and groups are indexed in the database and for which kinds of matching. This is
+ * used by {@link FilterCostGuard} to estimate the cost of search filters.
+ * <p>The indexes can be declared by means of the system property {@code scim.filterGuard.indexes}, whose value is a
+ * semicolon-separated list of {@code attribute:types} items, where types is a comma-separated list of {@link IndexType}
+ * names in lower case, e.g. {@code uid:eq,sub;mail:eq,sub;gluuStatus:eq}. Attribute names are those of the database
+ * (not the SCIM ones). When the property is not set, the indexes created by a default Gluu Server installation are
+ * assumed.</p>
+ */
+@ApplicationScoped
+public class IndexMetadataService {
+
+    public enum IndexType {
+        /** Equality matching */
+        EQ,
+        /** Presence (pr operator) */
+        PRES,
+        /** Substring matching (co, sw and ew operators) */
+        SUB,
+        /** Ordering (gt, ge, lt, le operators) */
+        ORD
+    }
+
+    private static final String PROPERTY = "scim.filterGuard.indexes";
+
+    private static final String DEFAULT_INDEXES = "objectClass:eq,pres;inum:eq,pres;uid:eq,sub;mail:eq,sub;"
+            + "displayName:eq,sub;givenName:eq,sub;sn:eq,sub;cn:eq,sub;member:eq;memberOf:eq;gluuStatus:eq;"
+            + "oxExternalUid:eq";
+
+    @Inject
+    private Logger log;
+
+    private Map<String, Set<IndexType>> indexes;
+
+    @PostConstruct
+    private void init() {
+        indexes = parse(System.getProperty(PROPERTY, DEFAULT_INDEXES));
+    }
+
+    /**
+     * Returns the kinds of index an attribute has
+     * @param attribute Name of the attribute in the database (case-insensitive)
+     * @return A set, empty if the attribute is not indexed
+     */
+    public Set<IndexType> getIndexTypes(String attribute) {
+        return attribute == null ? Collections.emptySet()
+                : indexes.getOrDefault(attribute.toLowerCase(), Collections.emptySet());
+    }
+
+    private Map<String, Set<IndexType>> parse(String value) {
+
+        Map<String, Set<IndexType>> map = new HashMap<>();
+        for (String item : StringUtils.split(value, ';')) {
+            String[] parts = StringUtils.split(item, ':');
+            if (parts.length != 2) {
+                log.warn("Ignoring malformed index declaration '{}' in {}", item, PROPERTY);
+                continue;
+            }
+            Set<IndexType> types = EnumSet.noneOf(IndexType.class);
+            for (String type : StringUtils.split(parts[1], ',')) {
+                try {
+                    types.add(IndexType.valueOf(type.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring unknown index type '{}' of attribute {}", type, parts[0]);
+                }
+            }
+            map.put(parts[0].trim().toLowerCase(), types);
+        }
+        return map;
+
+    }
+
+}
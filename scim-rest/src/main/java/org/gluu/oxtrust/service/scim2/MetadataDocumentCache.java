@@ -0,0 +1,118 @@
+package org.gluu.oxtrust.service.scim2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.gluu.config.oxtrust.AppConfiguration;
+import org.gluu.config.oxtrust.ScimProperties;
+import org.gluu.oxtrust.model.scim2.extensions.Extension;
+import org.gluu.oxtrust.model.scim2.extensions.ExtensionField;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
+import org.slf4j.Logger;
+
+/**
+ * Holds the rendered (serialized) form of the documents served by discovery endpoints (/Schemas, /ResourceTypes, and
+ * /ServiceProviderConfig). Building these documents involves lots of reflection and serialization while their contents
+ * only depend on the SCIM properties of the configuration and the extension attributes defined. Thus, every document is
+ * rendered once and served as is until any of the former change.
+ */
+@ApplicationScoped
+public class MetadataDocumentCache {
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private AppConfiguration appConfiguration;
+
+    @Inject
+    private ExtensionService extService;
+
+    private ConcurrentMap<String, Document> documents = new ConcurrentHashMap<>();
+
+    /**
+     * Gets a rendered document, rendering it if it is not in the cache or the configuration it was built upon changed
+     * @param key Identifier of the document (e.g. the path of the endpoint that serves it)
+     * @param renderer Builds and serializes the document
+     * @return The document
+     * @throws Exception If rendering failed
+     */
+    public Document getDocument(String key, Callable<String> renderer) throws Exception {
+
+        String fingerprint = configurationFingerprint();
+        Document document = documents.get(key);
+
+        if (document == null || !document.fingerprint.equals(fingerprint)) {
+            log.debug("Rendering document {}", key);
+            document = new Document(renderer.call(), fingerprint);
+            documents.put(key, document);
+        }
+        return document;
+
+    }
+
+    /**
+     * Summarizes all configuration data that the documents depend upon
+     */
+    private String configurationFingerprint() {
+
+        ScimProperties props = appConfiguration.getScimProperties();
+        StringBuilder sb = new StringBuilder(appConfiguration.getBaseEndpoint())
+                .append('|').append(props.getMaxCount())
+                .append('|').append(props.getBulkMaxOperations())
+                .append('|').append(props.getBulkMaxPayloadSize())
+                .append('|').append(props.getProtectionMode())
+                .append('|').append(props.getUserExtensionSchemaURI());
+
+        for (Extension extension : extService.getResourceExtensions(UserResource.class)) {
+            sb.append('|').append(extension.getUrn()).append(':').append(extension.getName())
+                    .append(':').append(extension.getDescription());
+
+            //Sorted so that the order in which attributes are retrieved does not matter
+            Map<String, ExtensionField> fields = new TreeMap<>(extension.getFields());
+            for (ExtensionField field : fields.values()) {
+                sb.append('|').append(field.getName()).append(':').append(field.getType())
+                        .append(':').append(field.isMultiValued()).append(':').append(field.getDescription());
+            }
+        }
+        return sb.toString();
+
+    }
+
+    /**
+     * A rendered document and its entity tag
+     */
+    public static class Document {
+
+        private byte[] bytes;
+        private String etag;
+        private String fingerprint;
+
+        private Document(String json, String fingerprint) {
+            bytes = json.getBytes(StandardCharsets.UTF_8);
+            this.fingerprint = fingerprint;
+            etag = ResourceVersionUtil.version(json, null);
+        }
+
+        /**
+         * UTF-8 encoded payload, ready to be written to responses
+         * @return An array of bytes. Callers must not modify it
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+    }
+
+}
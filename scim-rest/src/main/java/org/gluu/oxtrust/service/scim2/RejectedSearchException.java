@@ -0,0 +1,25 @@
+package org.gluu.oxtrust.service.scim2;
+
+import org.gluu.oxtrust.model.exception.SCIMException;
+import org.gluu.oxtrust.model.scim2.ErrorScimType;
+
+/**
+ * Signals that a search was refused because of its expected cost. The <code>scimType</code> of the error response is
+ * carried along with the message.
+ */
+public class RejectedSearchException extends SCIMException {
+
+    private static final long serialVersionUID = -3104552817467380512L;
+
+    private final ErrorScimType scimType;
+
+    public RejectedSearchException(ErrorScimType scimType, String message) {
+        super(message);
+        this.scimType = scimType;
+    }
+
+    public ErrorScimType getScimType() {
+        return scimType;
+    }
+
+}
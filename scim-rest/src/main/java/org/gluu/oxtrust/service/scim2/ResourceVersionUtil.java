@@ -0,0 +1,79 @@
+package org.gluu.oxtrust.service.scim2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Computes the versions (ETags) of resources. Versions are derived from data already present in the entries (the
+ * last modification time plus the values of relationship attributes that can change without the entry's timestamp
+ * being touched), so they can be obtained without building nor serializing resources.
+ * <p>Versions are weak entity tags (section 3.14 of RFC 7644) because different projections of the same version of a
+ * resource are not byte-for-byte identical.</p>
+ */
+public class ResourceVersionUtil {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ResourceVersionUtil() {
+    }
+
+    /**
+     * Computes a version
+     * @param lastModified Last modification timestamp of the entry (may be null)
+     * @param related Values of a multi-valued attribute to account for (may be null). Their ordering is irrelevant
+     * @return A weak entity tag, e.g. {@code W/"3f2a0c9d41b7e865"}
+     */
+    public static String version(String lastModified, Collection<String> related) {
+
+        long hash = hash(FNV_OFFSET_BASIS, lastModified);
+        if (related != null) {
+            long sum = 0;
+            for (String value : related) {
+                //Sum is commutative so stores returning values in different order yield the same version
+                sum += hash(FNV_OFFSET_BASIS, value);
+            }
+            hash = (hash ^ sum) * FNV_PRIME;
+            hash = (hash ^ related.size()) * FNV_PRIME;
+        }
+        return "W/\"" + String.format("%016x", hash) + "\"";
+
+    }
+
+    /**
+     * Determines whether the version of a resource matches any of the entity tags in an {@code If-Match} or
+     * {@code If-None-Match} header. Weak comparison is used
+     * @param header Header value: a comma-separated list of entity tags or "*"
+     * @param version Current version of the resource
+     * @return A boolean value
+     */
+    public static boolean matches(String header, String version) {
+
+        String opaqueVersion = opaqueTag(version);
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaqueVersion)) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long hash(long seed, String value) {
+
+        long hash = seed;
+        if (value != null) {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+            }
+        }
+        return hash;
+
+    }
+
+}
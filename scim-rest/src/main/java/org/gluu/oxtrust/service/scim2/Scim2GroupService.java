@@ -26,13 +26,14 @@ import org.gluu.oxtrust.model.scim2.group.GroupResource;
 import org.gluu.oxtrust.model.scim2.group.Member;
 import org.gluu.oxtrust.model.scim2.user.UserResource;
 import org.gluu.oxtrust.model.scim2.util.DateUtil;
+import org.gluu.oxtrust.model.scim.ScimCustomPerson;
 import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
 import org.gluu.oxtrust.service.IGroupService;
 import org.gluu.oxtrust.service.IPersonService;
 import org.gluu.oxtrust.service.OrganizationService;
 import org.gluu.oxtrust.service.antlr.scimFilter.ScimFilterParserService;
 import org.gluu.oxtrust.service.external.ExternalScimService;
-import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.oxtrust.service.scim2.cache.EntityCache;
 import org.gluu.persist.model.PagedResult;
 import org.gluu.persist.model.SortOrder;
 import org.gluu.search.filter.Filter;
@@ -66,11 +67,17 @@ public class Scim2GroupService implements Serializable {
 	private ScimFilterParserService scimFilterParserService;
 
 	@Inject
-	private PersistenceEntryManager ldapEntryManager;
+	private TotalResultsService totalResultsService;
+
+	@Inject
+	private FilterCostGuard filterCostGuard;
 
     @Inject
     private UserPersistenceHelper userPersistenceHelper;
 
+    @Inject
+    private EntityCache entityCache;
+
     /**
      * Takes two GroupResource objects and attempts to fill the members' display names
      * in the second object when missing based on the data existing in the first object.
@@ -133,7 +140,8 @@ public class Scim2GroupService implements Serializable {
                                 //so data is not considered trusty. In this case
                                 //we make database lookups
                                 if (!skipMembersValidation && !groupMembers.contains(inum)) {
-                                    person = personService.getPersonByInum(inum);
+                                    person = userPersistenceHelper.getGluuPersonByDn(
+                                            personService.getDnForPerson(inum));
                                     
                                     if (person != null && fillMembersDisplay) {
                                         member.setDisplay(person.getDisplayName());
@@ -188,6 +196,7 @@ public class Scim2GroupService implements Serializable {
 		meta.setCreated(StringHelper.toString(gluuGroup.getAttribute("oxTrustMetaCreated")));
 		meta.setLastModified(StringHelper.toString(gluuGroup.getAttribute("oxTrustMetaLastModified")));
 		meta.setLocation(StringHelper.toString(gluuGroup.getAttribute("oxTrustMetaLocation")));
+		meta.setVersion(getVersion(gluuGroup));
 		if (meta.getLocation() == null)
 			meta.setLocation(groupsUrl + "/" + gluuGroup.getInum());
 
@@ -200,19 +209,18 @@ public class Scim2GroupService implements Serializable {
 			Set<Member> members = new HashSet<>();
 
 			for (String dn : memberDNs) {
-				GluuCustomPerson person = null;
+				ScimCustomPerson person = null;
                                 
                                 if (fillMembersDisplay) {
-                                    try {                                    
-					person = personService.getPersonByDn(dn);
-                                    } catch (Exception e) {
+                                    person = userPersistenceHelper.getCachedPersonByDn(dn);
+                                    if (person == null) {
                                         log.warn("Wrong member entry {} found in group {}",
                                                 dn, gluuGroup.getDisplayName());
                                     }
                                 }
                                 
                                 if (person == null) {
-                                    person = new GluuCustomPerson();
+                                    person = new ScimCustomPerson();
                                     person.setInum(userPersistenceHelper.getUserInumFromDN(dn));
                                 }
                                 
@@ -269,6 +277,7 @@ public class Scim2GroupService implements Serializable {
 						Status.PRECONDITION_FAILED);
 			}
 			groupService.addGroup(gluuGroup);
+			entityCache.invalidate(gluuGroup.getDn());
 			syncMemberAttributeInPerson(gluuGroup.getDn(), Collections.emptySet(),
                                 memberIDsSet(gluuGroup));
 
@@ -278,7 +287,9 @@ public class Scim2GroupService implements Serializable {
 			externalScimService.executeScimPostCreateGroupMethods(gluuGroup);
 		} else {
 			groupService.addGroup(gluuGroup);
+			entityCache.invalidate(gluuGroup.getDn());
 			group.getMeta().setLocation(location);
+			group.getMeta().setVersion(getVersion(gluuGroup));
 			// We are ignoring the id value received (group.getId())
 			group.setId(gluuGroup.getInum());
 			syncMemberAttributeInPerson(gluuGroup.getDn(), Collections.emptySet(),
@@ -335,6 +346,9 @@ public class Scim2GroupService implements Serializable {
 			}
 		}
 		groupService.removeGroup(gluuGroup);
+		//Removal also updates the memberOf attribute of members
+		entityCache.invalidate(gluuGroup.getDn());
+		memberIDsSet(gluuGroup).forEach(entityCache::invalidate);
 
 		if (externalScimService.isEnabled())
 			externalScimService.executeScimPostDeleteGroupMethods(gluuGroup);
@@ -358,6 +372,7 @@ public class Scim2GroupService implements Serializable {
 			}
 
 			groupService.updateGroup(gluuGroup);
+			entityCache.invalidate(gluuGroup.getDn());
 			syncMemberAttributeInPerson(gluuGroup.getDn(), olderMembers,
                                 memberIDsSet(gluuGroup));
 
@@ -367,21 +382,50 @@ public class Scim2GroupService implements Serializable {
 			externalScimService.executeScimPostUpdateGroupMethods(gluuGroup);
 		} else {
 			groupService.updateGroup(gluuGroup);
+			entityCache.invalidate(gluuGroup.getDn());
 			syncMemberAttributeInPerson(gluuGroup.getDn(), olderMembers,
                                 memberIDsSet(gluuGroup));
+			group.getMeta().setVersion(getVersion(gluuGroup));
 		}
 
 	}
 
+	/**
+	 * Computes the current version of a group based on its last modification time and members
+	 * @param gluuGroup Entry of the group
+	 * @return A weak entity tag
+	 */
+	public String getVersion(GluuGroup gluuGroup) {
+		return ResourceVersionUtil.version(StringHelper.toString(gluuGroup.getAttribute("oxTrustMetaLastModified")),
+				gluuGroup.getMembers());
+	}
+
 	public PagedResult<BaseScimResource> searchGroups(String filter, String sortBy, SortOrder sortOrder, int startIndex,
-			int count, String groupsUrl, String usersUrl, int maxCount, boolean fillMembersDisplay) throws Exception {
+			int count, String groupsUrl, String usersUrl, int maxCount, boolean fillMembersDisplay,
+			String totalResultsMode) throws Exception {
 
 		Filter ldapFilter = scimFilterParserService.createFilter(filter, Filter.createPresenceFilter("inum"), GroupResource.class);
+		if (StringHelper.isNotEmpty(filter) && filterCostGuard.admit(ldapFilter, sortBy != null, startIndex)) {
+			//The filter requires a full scan: bound the number of entries visited
+			totalResultsMode = TotalResultsService.CAPPED;
+		}
 		log.info("Executing search for groups using: ldapfilter '{}', sortBy '{}', sortOrder '{}', startIndex '{}', count '{}'",
 				ldapFilter.toString(), sortBy, sortOrder.getValue(), startIndex, count);
 
-		PagedResult<GluuGroup> list = ldapEntryManager.findPagedEntries(groupService.getDnForGroup(null),
-				GluuGroup.class, ldapFilter, null, sortBy, sortOrder, startIndex - 1, count, maxCount);
+		if (count == 0 && !externalScimService.isEnabled()) {
+			//Only totalResults is needed: let the backend count matches without retrieving any entry
+			int total = totalResultsService.countEntries(groupService.getDnForGroup(null), GluuGroup.class, ldapFilter,
+					totalResultsMode);
+			log.info("Found {} matching entries (count only)", total);
+
+			PagedResult<BaseScimResource> result = new PagedResult<>();
+			result.setEntries(new ArrayList<>());
+			result.setTotalEntriesCount(total);
+			return result;
+		}
+
+		PagedResult<GluuGroup> list = totalResultsService.findPagedEntries(groupService.getDnForGroup(null),
+				GluuGroup.class, ldapFilter, sortBy, sortOrder, startIndex - 1, count, maxCount, totalResultsMode);
 		List<BaseScimResource> resources = new ArrayList<>();
 
 		if (externalScimService.isEnabled() && !externalScimService.executeScimPostSearchGroupsMethods(list)) {
@@ -425,7 +469,7 @@ public class Scim2GroupService implements Serializable {
 		for (String dn : before) {
 			if (!after.contains(dn)) {
 				try {
-					GluuCustomPerson gluuPerson = personService.getPersonByDn(dn);
+					GluuCustomPerson gluuPerson = userPersistenceHelper.getGluuPersonByDn(dn);
 
 					List<String> memberOf = new ArrayList<>();
 					memberOf.addAll(gluuPerson.getMemberOf());
@@ -433,6 +477,7 @@ public class Scim2GroupService implements Serializable {
 
 					gluuPerson.setMemberOf(memberOf);
 					personService.updatePerson(gluuPerson);
+					entityCache.invalidate(dn);
 				} catch (Exception e) {
 					log.error("An error occurred while removing group {} from user {}", groupDn, dn);
 					log.error(e.getMessage(), e);
@@ -444,7 +489,7 @@ public class Scim2GroupService implements Serializable {
 		for (String dn : after) {
 			if (!before.contains(dn)) {
 				try {
-					GluuCustomPerson gluuPerson = personService.getPersonByDn(dn);
+					GluuCustomPerson gluuPerson = userPersistenceHelper.getGluuPersonByDn(dn);
 
 					List<String> memberOf = new ArrayList<>();
 					memberOf.add(groupDn);
@@ -454,6 +499,7 @@ public class Scim2GroupService implements Serializable {
 
 					gluuPerson.setMemberOf(memberOf);
 					personService.updatePerson(gluuPerson);
+					entityCache.invalidate(dn);
 				} catch (Exception e) {
 					log.error("An error occurred while adding group {} to user {}", groupDn, dn);
 					log.error(e.getMessage(), e);
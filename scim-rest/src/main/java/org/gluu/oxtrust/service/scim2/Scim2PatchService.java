@@ -24,7 +24,6 @@ import javax.management.InvalidAttributeValueException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import org.antlr.v4.runtime.tree.ParseTree;
 import org.apache.commons.lang.StringUtils;
 
 import org.gluu.oxtrust.model.exception.SCIMException;
@@ -191,11 +190,11 @@ public class Scim2PatchService {
         } else {
             try {
                 valSelFilter = FilterUtil.preprocess(valSelFilter, cls);
-                ParseTree parseTree = filterService.getParseTree(valSelFilter);
+                Predicate<Map<String, Object>> matcher = filterService.compileMatchFilter(valSelFilter, attribute, cls);
 
                 List<Integer> matchingIndexes = new ArrayList<>();
                 for (int i = 0; i < list.size(); i++) {
-                    if (filterService.complexAttributeMatch(parseTree, list.get(i), attribute, cls)) {
+                    if (matcher.test(list.get(i))) {
                         matchingIndexes.add(0, i);  //Important: add so that resulting list is reverse-ordered
                     }
                 }
@@ -100,6 +100,12 @@ public class Scim2UserService implements Serializable {
 	@Inject
 	private PersistenceEntryManager ldapEntryManager;
 
+	@Inject
+	private TotalResultsService totalResultsService;
+
+	@Inject
+	private FilterCostGuard filterCostGuard;
+
 	@Inject
     AppConfiguration appConfiguration;
 
@@ -286,6 +292,8 @@ public class Scim2UserService implements Serializable {
 			meta.setLastModified(date == null ? null : DateUtil.millisToISOString(date.getTime()));
 		}
 
+		meta.setVersion(getVersion(person));
+
 		meta.setLocation(person.getAttribute("oxTrustMetaLocation"));
 		if (meta.getLocation() == null) {
             meta.setLocation(url + "/" + person.getInum());
@@ -350,7 +358,7 @@ public class Scim2UserService implements Serializable {
 
 			for (String groupDN : listOfGroups) {
 				try {
-					GluuGroup gluuGroup = groupService.getGroupByDn(groupDN);
+					GluuGroup gluuGroup = userPersistenceHelper.getCachedGroupByDn(groupDN);
 
 					Group group = new Group();
 					group.setValue(gluuGroup.getInum());
@@ -492,6 +500,7 @@ public class Scim2UserService implements Serializable {
 		} else {
             userPersistenceHelper.addPerson(gluuPerson);
 			user.getMeta().setLocation(location);
+			user.getMeta().setVersion(getVersion(gluuPerson));
 			// We are ignoring the id value received (user.getId())
 			user.setId(gluuPerson.getInum());
 		}
@@ -546,7 +555,24 @@ public class Scim2UserService implements Serializable {
 			externalScimService.executeScimPostUpdateUserMethods(gluuPerson);
 		} else {
             userPersistenceHelper.updatePerson(gluuPerson);
+			user.getMeta().setVersion(getVersion(gluuPerson));
+		}
+
+	}
+
+	/**
+	 * Computes the current version of a user. Besides the last modification time, the groups the user belongs to
+	 * are accounted since membership changes are not reflected in the timestamp of the user entry
+	 * @param person Entry of the user
+	 * @return A weak entity tag
+	 */
+	public String getVersion(ScimCustomPerson person) {
+
+		String lastModified = person.getAttribute("oxTrustMetaLastModified");
+		if (lastModified == null && person.getUpdatedAt() != null) {
+			lastModified = String.valueOf(person.getUpdatedAt().getTime());
 		}
+		return ResourceVersionUtil.version(lastModified, person.getMemberOf());
 
 	}
 
@@ -574,14 +600,30 @@ public class Scim2UserService implements Serializable {
 	}
 
 	public PagedResult<BaseScimResource> searchUsers(String filter, String sortBy, SortOrder sortOrder, int startIndex,
-			int count, String url, int maxCount) throws Exception {
+			int count, String url, int maxCount, String totalResultsMode) throws Exception {
 
 		Filter ldapFilter = scimFilterParserService.createFilter(filter, Filter.createPresenceFilter("inum"), UserResource.class);
+		if (StringUtils.isNotEmpty(filter) && filterCostGuard.admit(ldapFilter, sortBy != null, startIndex)) {
+			//The filter requires a full scan: bound the number of entries visited
+			totalResultsMode = TotalResultsService.CAPPED;
+		}
 		log.info("Executing search for users using: ldapfilter '{}', sortBy '{}', sortOrder '{}', startIndex '{}', count '{}'",
 				ldapFilter.toString(), sortBy, sortOrder.getValue(), startIndex, count);
 
-		PagedResult<ScimCustomPerson> list = ldapEntryManager.findPagedEntries(personService.getDnForPerson(null),
-				ScimCustomPerson.class, ldapFilter, null, sortBy, sortOrder, startIndex - 1, count, maxCount);
+		if (count == 0 && !externalScimService.isEnabled()) {
+			//Only totalResults is needed: let the backend count matches without retrieving any entry
+			int total = totalResultsService.countEntries(personService.getDnForPerson(null), ScimCustomPerson.class,
+					ldapFilter, totalResultsMode);
+			log.info("Found {} matching entries (count only)", total);
+
+			PagedResult<BaseScimResource> result = new PagedResult<>();
+			result.setEntries(new ArrayList<>());
+			result.setTotalEntriesCount(total);
+			return result;
+		}
+
+		PagedResult<ScimCustomPerson> list = totalResultsService.findPagedEntries(personService.getDnForPerson(null),
+				ScimCustomPerson.class, ldapFilter, sortBy, sortOrder, startIndex - 1, count, maxCount, totalResultsMode);
 		List<BaseScimResource> resources = new ArrayList<>();
 		
 		if (externalScimService.isEnabled() && !externalScimService.executeScimPostSearchUsersMethods(list)) {
@@ -0,0 +1,196 @@
+package org.gluu.oxtrust.service.scim2;
+
+import static org.gluu.oxtrust.model.scim2.Constants.TOTAL_RESULTS_MODE_PARAM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.gluu.persist.PersistenceEntryManager;
+import org.gluu.persist.model.PagedResult;
+import org.gluu.persist.model.SearchScope;
+import org.gluu.persist.model.SortOrder;
+import org.gluu.search.filter.Filter;
+import org.slf4j.Logger;
+
+/**
+ * Determines how the totalResults of user and group searches is computed. An exact total requires the backend to
+ * visit every matching entry, and this dominates the latency of searches with broad filters in large directories.
+ * In "capped" mode matches are only counted up to a limit, so totalResults is a lower bound ("at least N") when the
+ * limit is reached. Paging stays usable: a page is never reported as the last one if more matches exist.
+ * <p>The mode can be chosen per request by means of the {@code Total-Results-Mode} query param or header (values
+ * {@link #EXACT} or {@link #CAPPED}). Deployment defaults are governed by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.totalResults.mode}: Mode used when the request does not specify one (default "exact")</li>
+ *     <li>{@code scim.totalResults.cap}: Maximum number of matches counted in capped mode (default 1000)</li>
+ * </ul>
+ * <p>Sorted searches are always exact because the backend has to collect all matches to sort them anyway.</p>
+ */
+@ApplicationScoped
+public class TotalResultsService {
+
+    public static final String EXACT = "exact";
+
+    public static final String CAPPED = "capped";
+
+    private static final String PROPERTY_PREFIX = "scim.totalResults.";
+
+    //An attribute every user and group entry has. Counting only needs entries to be found, not their contents
+    private static final String[] COUNT_ATTRIBUTES = new String[]{ "inum" };
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private PersistenceEntryManager ldapEntryManager;
+
+    private String defaultMode;
+
+    private int cap;
+
+    @PostConstruct
+    private void init() {
+
+        defaultMode = Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + "mode")).map(this::parseMode)
+                .orElse(EXACT);
+        cap = Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + "cap")).map(prop -> {
+            try {
+                return Integer.valueOf(prop);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value of {}cap: {}", PROPERTY_PREFIX, prop);
+                return null;
+            }
+        }).filter(i -> i > 0).orElse(1000);
+
+        if (CAPPED.equals(defaultMode)) {
+            log.info("totalResults of searches are capped at {} by default", cap);
+        }
+
+    }
+
+    public String getDefaultMode() {
+        return defaultMode;
+    }
+
+    public int getCap() {
+        return cap;
+    }
+
+    /**
+     * Tells whether the total of a search must be capped
+     * @param requestedMode Mode supplied in the request (may be null)
+     * @return A boolean value
+     */
+    public boolean isCapped(String requestedMode) {
+        return CAPPED.equals(Optional.ofNullable(requestedMode).map(this::parseMode).orElse(defaultMode));
+    }
+
+    /**
+     * Counts the entries matching a filter
+     * @param baseDn Base DN of the search
+     * @param entryClass Class of the entries
+     * @param filter Search filter
+     * @param requestedMode Mode supplied in the request (may be null)
+     * @param <T> Type of the entries
+     * @return The exact number of matches, or at most {@link #getCap()} when the total is capped
+     */
+    public <T> int countEntries(String baseDn, Class<T> entryClass, Filter filter, String requestedMode) {
+
+        if (isCapped(requestedMode)) {
+            return countUpToCap(baseDn, entryClass, filter);
+        }
+        return ldapEntryManager.countEntries(baseDn, entryClass, filter);
+
+    }
+
+    /**
+     * Retrieves a page of the entries matching a filter. When the total is capped and no sorting is requested, only the
+     * entries of the page are retrieved (with an offset search) instead of running a paged search, which counts all
+     * matches. Matches are then counted up to the cap retrieving no attributes, unless the page was not filled. Pages
+     * starting past the cap are empty
+     * @param baseDn Base DN of the search
+     * @param entryClass Class of the entries
+     * @param filter Search filter
+     * @param sortBy Attribute to sort by (may be null)
+     * @param sortOrder Sort order
+     * @param start Zero-based index of the first entry of the page
+     * @param count Maximum number of entries in the page
+     * @param chunkSize Size of the chunks used in paged searches
+     * @param requestedMode Mode supplied in the request (may be null)
+     * @param <T> Type of the entries
+     * @return A PagedResult object
+     */
+    public <T> PagedResult<T> findPagedEntries(String baseDn, Class<T> entryClass, Filter filter, String sortBy,
+                                               SortOrder sortOrder, int start, int count, int chunkSize,
+                                               String requestedMode) {
+
+        if (sortBy != null || !isCapped(requestedMode)) {
+            return ldapEntryManager.findPagedEntries(baseDn, entryClass, filter, null, sortBy, sortOrder, start,
+                    count, chunkSize);
+        }
+
+        //Matches past the cap cannot be paged through in capped mode
+        int first = Math.min(start, cap);
+        int size = Math.min(start + count, cap) - first;
+        List<T> entries = size > 0 ? ldapEntryManager.findEntries(baseDn, entryClass, filter, SearchScope.SUB, null,
+                null, first, size, chunkSize) : new ArrayList<>();
+
+        int total;
+        if (entries.size() < size && (first == 0 || !entries.isEmpty())) {
+            //The page was not filled: every match has been visited already
+            total = first + entries.size();
+        } else {
+            total = countUpToCap(baseDn, entryClass, filter);
+        }
+        log.debug("Total of matches capped at {} (got {})", cap, total);
+
+        PagedResult<T> result = new PagedResult<>();
+        result.setStart(start);
+        result.setEntries(entries);
+        result.setEntriesCount(entries.size());
+        result.setTotalEntriesCount(total);
+        return result;
+
+    }
+
+    /**
+     * Builds the contents of the ServiceProviderConfig extension that advertises the modes supported
+     * @return A map
+     */
+    public Map<String, Object> getCapabilities() {
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("supportedModes", Arrays.asList(EXACT, CAPPED));
+        map.put("defaultMode", defaultMode);
+        map.put("cap", cap);
+        map.put("parameter", TOTAL_RESULTS_MODE_PARAM);
+
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("totalResults", map);
+        return capabilities;
+
+    }
+
+    private <T> int countUpToCap(String baseDn, Class<T> entryClass, Filter filter) {
+        return ldapEntryManager.findEntries(baseDn, entryClass, filter, COUNT_ATTRIBUTES, cap).size();
+    }
+
+    private String parseMode(String mode) {
+
+        String value = mode.trim().toLowerCase();
+        if (!value.equals(EXACT) && !value.equals(CAPPED)) {
+            log.warn("Unknown totalResults mode '{}' - using default", mode);
+            return null;
+        }
+        return value;
+
+    }
+
+}
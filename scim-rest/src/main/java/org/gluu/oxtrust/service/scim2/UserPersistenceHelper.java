@@ -3,6 +3,7 @@ package org.gluu.oxtrust.service.scim2;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.gluu.persist.model.base.CustomObjectAttribute;
+import org.gluu.oxtrust.model.GluuCustomPerson;
 import org.gluu.oxtrust.model.GluuGroup;
 import org.gluu.oxtrust.model.scim.ScimCustomPerson;
 import org.gluu.oxtrust.model.scim2.user.Email;
@@ -10,6 +11,9 @@ import org.gluu.oxtrust.model.scim2.util.DateUtil;
 import org.gluu.oxtrust.service.AttributeService;
 import org.gluu.oxtrust.service.IGroupService;
 import org.gluu.oxtrust.service.IPersonService;
+import org.gluu.oxtrust.service.external.ExternalScimService;
+import org.gluu.oxtrust.service.scim2.cache.EntityCache;
+import org.gluu.oxtrust.service.scim2.cache.RequestEntityMap;
 import org.gluu.oxtrust.util.ServiceUtil;
 import org.gluu.model.GluuAttribute;
 import org.gluu.persist.ldap.impl.LdapEntryManagerFactory;
@@ -41,6 +45,15 @@ public class UserPersistenceHelper {
 
     @Inject
     private IGroupService groupService;
+
+    @Inject
+    private ExternalScimService externalScimService;
+
+    @Inject
+    private EntityCache entityCache;
+
+    @Inject
+    private RequestEntityMap requestEntityMap;
     
     private Map<String, GluuAttribute> attributesMap;
     
@@ -64,20 +77,137 @@ public class UserPersistenceHelper {
         person.setCreationDate(new Date());
         applyMultiValued(person.getTypedCustomAttributes());
         persistenceEntryManager.persist(person);
+        entityCache.invalidate(person.getDn());
     }
 
+    /**
+     * Retrieves a person. The object returned belongs to the current request (see {@link RequestEntityMap}), so it
+     * can be modified
+     * @param inum Identifier of the person
+     * @return The person or null if it does not exist
+     */
     public ScimCustomPerson getPersonByInum(String inum) {
+        return findPerson(personService.getDnForPerson(inum));
+    }
+
+    /**
+     * Retrieves a person in the form used by {@link IPersonService}. The object returned belongs to the current
+     * request (see {@link RequestEntityMap}), so it can be modified
+     * @param dn DN of the person
+     * @return The person or null if it does not exist
+     */
+    public GluuCustomPerson getGluuPersonByDn(String dn) {
+
+        return requestEntityMap.get(dn, GluuCustomPerson.class, key -> {
+            try {
+                return personService.getPersonByDn(key);
+            } catch (Exception e) {
+                log.warn("Failed to find Person {}", key);
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * Retrieves a person for read-only purposes, i.e. the object returned must not be modified. The person may be
+     * served from the {@link EntityCache entity cache} unless SCIM custom scripts are enabled (they may alter entries)
+     * @param inum Identifier of the person
+     * @return The person or null if it does not exist
+     */
+    public ScimCustomPerson getCachedPersonByInum(String inum) {
+
+        String dn = personService.getDnForPerson(inum);
+        return externalScimService.isEnabled() ? findPerson(dn) : getCachedPersonByDn(dn);
+
+    }
+
+    /**
+     * Retrieves a person for read-only purposes (e.g. to display data of the members of a group). The object returned
+     * must not be modified
+     * @param dn DN of the person
+     * @return The person or null if it does not exist
+     */
+    public ScimCustomPerson getCachedPersonByDn(String dn) {
+        //Objects of the entity cache are shared among requests, so they cannot be part of a request's identity map
+        return entityCache.isEnabled() ? entityCache.get(dn, ScimCustomPerson.class, this::loadPerson) : findPerson(dn);
+    }
+
+    /**
+     * Retrieves a group. The object returned belongs to the current request (see {@link RequestEntityMap}), so it can
+     * be modified
+     * @param inum Identifier of the group
+     * @return The group or null if it does not exist
+     */
+    public GluuGroup getGroupByInum(String inum) {
+        return findGroup(groupService.getDnForGroup(inum));
+    }
+
+    /**
+     * Retrieves a group. The object returned belongs to the current request (see {@link RequestEntityMap}), so it can
+     * be modified
+     * @param dn DN of the group
+     * @return The group or null if it does not exist
+     */
+    public GluuGroup getGroupByDn(String dn) {
+        return findGroup(dn);
+    }
+
+    /**
+     * Retrieves a group for read-only purposes, i.e. the object returned must not be modified. The group may be served
+     * from the {@link EntityCache entity cache} unless SCIM custom scripts are enabled (they may alter entries)
+     * @param inum Identifier of the group
+     * @return The group or null if it does not exist
+     */
+    public GluuGroup getCachedGroupByInum(String inum) {
+
+        String dn = groupService.getDnForGroup(inum);
+        return externalScimService.isEnabled() ? findGroup(dn) : getCachedGroupByDn(dn);
+
+    }
+
+    /**
+     * Retrieves a group for read-only purposes (e.g. to display the groups a user belongs to). The object returned
+     * must not be modified
+     * @param dn DN of the group
+     * @return The group or null if it does not exist
+     */
+    public GluuGroup getCachedGroupByDn(String dn) {
+        return entityCache.isEnabled() ? entityCache.get(dn, GluuGroup.class, this::loadGroup) : findGroup(dn);
+    }
+
+    private ScimCustomPerson findPerson(String dn) {
+        return requestEntityMap.get(dn, ScimCustomPerson.class, this::loadPerson);
+    }
+
+    private GluuGroup findGroup(String dn) {
+        return requestEntityMap.get(dn, GluuGroup.class, this::loadGroup);
+    }
+
+    private ScimCustomPerson loadPerson(String dn) {
 
         ScimCustomPerson person = null;
         try {
-            person = persistenceEntryManager.find(ScimCustomPerson.class, personService.getDnForPerson(inum));
+            person = persistenceEntryManager.find(ScimCustomPerson.class, dn);
         } catch (Exception e) {
-            log.warn("Failed to find Person by Inum {}", inum);
+            log.warn("Failed to find Person {}", dn);
         }
         return person;
 
     }
 
+    private GluuGroup loadGroup(String dn) {
+
+        GluuGroup group = null;
+        try {
+            group = groupService.getGroupByDn(dn);
+        } catch (Exception e) {
+            log.warn("Failed to find Group {}", dn);
+        }
+        return group;
+
+    }
+
     public void updatePerson(ScimCustomPerson person) {
 
         Date updateDate = new Date();
@@ -87,6 +217,7 @@ public class UserPersistenceHelper {
         }
         applyMultiValued(person.getTypedCustomAttributes());
         persistenceEntryManager.merge(person);
+        entityCache.invalidate(person.getDn());
 
     }
 
@@ -102,8 +233,8 @@ public class UserPersistenceHelper {
         
         for (String oneGroup : groups) {
             try {
-                GluuGroup aGroup = groupService.getGroupByDn(oneGroup);
-                List<String> groupMembers = aGroup.getMembers();
+                GluuGroup aGroup = getGroupByDn(oneGroup);
+                List<String> groupMembers = Optional.ofNullable(aGroup).map(GluuGroup::getMembers).orElse(null);
                 int idx = Optional.ofNullable(groupMembers).map(l -> l.indexOf(dn)).orElse(-1);
                 
                 if (idx >= 0) {
@@ -113,6 +244,7 @@ public class UserPersistenceHelper {
                     
                     aGroup.setMembers(newMembers.isEmpty() ? null : newMembers);
                     groupService.updateGroup(aGroup);
+                    entityCache.invalidate(oneGroup);
                 }
             } catch (Exception e) {
                 log.error(e.getMessage());
@@ -161,6 +293,7 @@ public class UserPersistenceHelper {
 
     public void removePerson(ScimCustomPerson person) {
         persistenceEntryManager.removeRecursively(person.getDn(), person.getClass());
+        entityCache.invalidate(person.getDn());
     }
 
     @PostConstruct
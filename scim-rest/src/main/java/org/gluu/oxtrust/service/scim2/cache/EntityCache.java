@@ -0,0 +1,206 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * A bounded read-through cache of database entries (people and groups) keyed by DN. Entries expire after a fixed time
+ * and are evicted in least-recently-used order when the maximum size is reached. Write paths must call
+ * {@link #invalidate(String)} for every entry they modify; invalidations are also propagated to other nodes through
+ * the {@link InvalidationChannel} in use.
+ * <p>Objects returned by this cache are shared among requests, so callers must not modify them. Code that alters
+ * entries has to retrieve them directly from the database.</p>
+ * <p>The cache is disabled by default. It is governed by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.entityCache.ttl}: Time in milliseconds an entry remains valid. A value of 0 (default) disables
+ *     the cache</li>
+ *     <li>{@code scim.entityCache.maxSize}: Maximum number of entries held (default 10000)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class EntityCache {
+
+    private static final String PROPERTY_PREFIX = "scim.entityCache.";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private InvalidationChannel invalidationChannel;
+
+    @Inject
+    private RequestEntityMap requestEntityMap;
+
+    private long ttl;
+
+    private int maxSize;
+
+    private Map<String, CachedEntry> entries;
+
+    private AtomicLong hits = new AtomicLong();
+
+    private AtomicLong misses = new AtomicLong();
+
+    //Incremented upon every invalidation. Allows to detect whether a value being loaded may be stale already
+    private AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    private void init() {
+
+        ttl = getLongProperty("ttl").orElse(0L);
+        maxSize = getLongProperty("maxSize").orElse(10000L).intValue();
+
+        entries = new LinkedHashMap<String, CachedEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        invalidationChannel.subscribe(this::evict);
+
+        if (isEnabled()) {
+            log.info("Entity cache enabled with {} ms TTL and {} entries max", ttl, maxSize);
+        }
+
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (isEnabled()) {
+            log.info("Entity cache statistics: {} hits, {} misses (hit ratio {})", hits.get(), misses.get(),
+                    getHitRatio());
+        }
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 && maxSize > 0;
+    }
+
+    /**
+     * Gets an entry from cache, loading (and caching) it if not present or expired
+     * @param dn DN of the entry
+     * @param cls Class of the entry. If the value cached for the DN is not of this type, the entry is loaded
+     * @param loader Retrieves the entry from the database. It may return null if the entry does not exist (null values
+     *               are not cached)
+     * @param <T> Type of the entry
+     * @return The entry or null
+     */
+    public <T> T get(String dn, Class<T> cls, Function<String, T> loader) {
+
+        if (!isEnabled()) {
+            return loader.apply(dn);
+        }
+
+        long now = System.currentTimeMillis();
+        CachedEntry cached;
+        synchronized (entries) {
+            cached = entries.get(dn);
+        }
+        if (cached != null && cached.expiration > now && cls.isInstance(cached.value)) {
+            hits.incrementAndGet();
+            return cls.cast(cached.value);
+        }
+
+        misses.incrementAndGet();
+        long generation = invalidations.get();
+        T value = loader.apply(dn);
+
+        if (value != null) {
+            synchronized (entries) {
+                //Do not cache if the entry was invalidated while loading
+                if (generation == invalidations.get()) {
+                    entries.put(dn, new CachedEntry(value, now + ttl));
+                }
+            }
+        }
+        return value;
+
+    }
+
+    /**
+     * Removes an entry from the cache of this and other nodes, as well as from the {@link RequestEntityMap} of the
+     * current request. Must be called whenever an entry is modified or removed
+     * @param dn DN of the entry
+     */
+    public void invalidate(String dn) {
+
+        if (dn != null) {
+            requestEntityMap.evict(dn);
+            if (isEnabled()) {
+                evict(dn);
+                invalidationChannel.publish(dn);
+            }
+        }
+
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Fraction of lookups that were served from the cache
+     * @return A number between 0 and 1
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evict(String dn) {
+
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(dn);
+        }
+        log.trace("Entry {} evicted from cache", dn);
+
+    }
+
+    private Optional<Long> getLongProperty(String name) {
+
+        return Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + name)).map(prop -> {
+            try {
+                return Long.valueOf(prop);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value of {}{}: {}", PROPERTY_PREFIX, name, prop);
+                return null;
+            }
+        });
+
+    }
+
+    private static class CachedEntry {
+
+        private Object value;
+        private long expiration;
+
+        private CachedEntry(Object value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+    }
+
+}
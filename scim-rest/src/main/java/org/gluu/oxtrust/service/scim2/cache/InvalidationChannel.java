@@ -0,0 +1,27 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Conveys invalidations of cached entries among the SCIM nodes of a deployment, so that a modification made through
+ * one node does not leave stale data in the caches of the others.
+ * <p>The default implementation ({@link LoopbackInvalidationChannel}) only reaches the current node. Clustered
+ * deployments can plug a different implementation (e.g. one backed by a message broker) by means of a CDI bean that
+ * implements this interface and is annotated with {@code @Alternative} and {@code @Priority}.</p>
+ */
+public interface InvalidationChannel {
+
+    /**
+     * Notifies all nodes that the entry with the given DN has changed. Implementations are not required to deliver
+     * the message back to the node that published it
+     * @param dn DN of the entry
+     */
+    void publish(String dn);
+
+    /**
+     * Registers a listener that will be called with the DN of every entry whose invalidation is received
+     * @param listener Receiver of messages
+     */
+    void subscribe(Consumer<String> listener);
+
+}
@@ -0,0 +1,26 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * An {@link InvalidationChannel} whose messages are delivered to the listeners of the current node only (synchronously
+ * in the publisher's thread). Suitable for single-node deployments and tests.
+ */
+@ApplicationScoped
+public class LoopbackInvalidationChannel implements InvalidationChannel {
+
+    private List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public void publish(String dn) {
+        listeners.forEach(listener -> listener.accept(dn));
+    }
+
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+}
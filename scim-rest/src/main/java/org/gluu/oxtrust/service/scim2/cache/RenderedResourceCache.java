@@ -0,0 +1,284 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.gluu.oxtrust.service.external.ExternalScimService;
+import org.slf4j.Logger;
+
+/**
+ * Holds the final (serialized) representations of resources retrieved by id, so that frequent retrievals of the same
+ * resources skip building, filtering and serializing them. Representations are keyed by resource type, id, version
+ * (see {@link org.gluu.oxtrust.service.scim2.ResourceVersionUtil}) and projection (attributes and excludedAttributes
+ * query params). When the version of a resource changes, all its representations are discarded.
+ * <p>Versions account for the entry of the resource only, but representations also carry data borrowed from related
+ * entries: the display names of the groups a user belongs to, and those of the members of a group. When such data
+ * changes, the representations of the whole related resource type are discarded at once (see {@link #invalidateAll})
+ * by means of a generation counter per type, as in {@link SearchResultCache}. Representations are not cached when
+ * SCIM custom scripts are enabled, since scripts may alter resources upon retrieval.</p>
+ * <p>The cache is disabled by default. It is governed by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.renderCache.ttl}: Time in milliseconds a representation remains valid. A value of 0 (default)
+ *     disables the cache</li>
+ *     <li>{@code scim.renderCache.maxSize}: Maximum number of resources whose representations are held (default
+ *     5000)</li>
+ *     <li>{@code scim.renderCache.offHeap}: Whether to store representations in direct buffers, outside of the Java
+ *     heap (default false)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class RenderedResourceCache {
+
+    private static final String PROPERTY_PREFIX = "scim.renderCache.";
+
+    //Maximum number of projections held per resource
+    private static final int MAX_PROJECTIONS = 8;
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ExternalScimService externalScimService;
+
+    private long ttl;
+
+    private int maxSize;
+
+    private boolean offHeap;
+
+    private Map<String, Bucket> buckets;
+
+    //Incremented upon every invalidation of a resource type as a whole
+    private ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private AtomicLong hits = new AtomicLong();
+
+    private AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    private void init() {
+
+        ttl = getLongProperty("ttl").orElse(0L);
+        maxSize = getLongProperty("maxSize").orElse(5000L).intValue();
+        offHeap = Boolean.parseBoolean(System.getProperty(PROPERTY_PREFIX + "offHeap"));
+
+        buckets = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        if (isEnabled()) {
+            log.info("Rendered resource cache enabled with {} ms TTL, {} resources max (off-heap: {})",
+                    ttl, maxSize, offHeap);
+        }
+
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 && maxSize > 0;
+    }
+
+    /**
+     * Gets the representation of a resource, rendering (and caching) it if not present
+     * @param resourceType Type of resource, e.g. "User"
+     * @param id Identifier of the resource
+     * @param version Current version of the resource
+     * @param attrsList Value of the attributes query param (may be null)
+     * @param excludedAttrsList Value of the excludedAttributes query param (may be null)
+     * @param renderer Builds and serializes the resource
+     * @return The representation
+     * @throws Exception If rendering failed
+     */
+    public Representation get(String resourceType, String id, String version, String attrsList,
+                              String excludedAttrsList, Callable<Representation> renderer) throws Exception {
+
+        if (!isEnabled() || externalScimService.isEnabled()) {
+            return renderer.call();
+        }
+
+        String key = resourceType + "/" + id;
+        String projection = attrsList + "|" + excludedAttrsList;
+        long now = System.currentTimeMillis();
+        long generation = getGeneration(resourceType).get();
+
+        Representation representation = null;
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(key);
+            if (bucket != null && bucket.isValid(version, generation, now)) {
+                representation = bucket.projections.get(projection);
+            }
+        }
+        if (representation != null) {
+            hits.incrementAndGet();
+            return representation;
+        }
+
+        misses.incrementAndGet();
+        representation = renderer.call();
+        if (offHeap) {
+            representation = representation.toDirect();
+        }
+
+        synchronized (buckets) {
+            //Do not cache if related data changed while rendering
+            if (generation != getGeneration(resourceType).get()) {
+                return representation;
+            }
+            Bucket bucket = buckets.get(key);
+            if (bucket == null || !bucket.isValid(version, generation, now)) {
+                bucket = new Bucket(version, generation, now + ttl);
+                buckets.put(key, bucket);
+            }
+            if (bucket.projections.size() < MAX_PROJECTIONS) {
+                bucket.projections.put(projection, representation);
+            }
+        }
+        return representation;
+
+    }
+
+    /**
+     * Discards all representations of a resource. Called when the resource is modified or removed
+     * @param resourceType Type of resource, e.g. "User"
+     * @param id Identifier of the resource
+     */
+    public void invalidate(String resourceType, String id) {
+
+        if (isEnabled()) {
+            synchronized (buckets) {
+                buckets.remove(resourceType + "/" + id);
+            }
+        }
+
+    }
+
+    /**
+     * Discards the representations of all resources of the given types. Must be called whenever a change affects data
+     * these resources borrow from others, i.e. the display name of a user or group, or group membership
+     * @param resourceTypes Types of resource, e.g. "User"
+     */
+    public void invalidateAll(String... resourceTypes) {
+
+        if (isEnabled()) {
+            for (String resourceType : resourceTypes) {
+                getGeneration(resourceType).incrementAndGet();
+            }
+        }
+
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private AtomicLong getGeneration(String resourceType) {
+        return generations.computeIfAbsent(resourceType, type -> new AtomicLong());
+    }
+
+    private Optional<Long> getLongProperty(String name) {
+
+        return Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + name)).map(prop -> {
+            try {
+                return Long.valueOf(prop);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value of {}{}: {}", PROPERTY_PREFIX, name, prop);
+                return null;
+            }
+        });
+
+    }
+
+    /**
+     * The serialized form of a resource plus its location
+     */
+    public static class Representation {
+
+        private byte[] bytes;
+        private ByteBuffer buffer;
+        private String location;
+
+        /**
+         * Creates a representation
+         * @param json Serialized resource
+         * @param location Value of the resource's meta.location
+         */
+        public Representation(String json, String location) {
+            bytes = json.getBytes(StandardCharsets.UTF_8);
+            this.location = location;
+        }
+
+        private Representation(ByteBuffer buffer, String location) {
+            this.buffer = buffer;
+            this.location = location;
+        }
+
+        /**
+         * Content suitable for the entity of a response: an array of bytes (UTF-8) or a {@link StreamingOutput} when
+         * the representation lives outside of the heap
+         * @return An object
+         */
+        public Object getEntity() {
+
+            if (buffer == null) {
+                return bytes;
+            }
+            //Every response needs its own view of the buffer (position is not shared)
+            ByteBuffer view = buffer.duplicate();
+            return (StreamingOutput) out -> Channels.newChannel(out).write(view);
+
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        private Representation toDirect() {
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            return new Representation(direct.asReadOnlyBuffer(), location);
+
+        }
+
+    }
+
+    private static class Bucket {
+
+        private String version;
+        private long generation;
+        private long expiration;
+        private Map<String, Representation> projections = new HashMap<>();
+
+        private Bucket(String version, long generation, long expiration) {
+            this.version = version;
+            this.generation = generation;
+            this.expiration = expiration;
+        }
+
+        private boolean isValid(String version, long generation, long now) {
+            return this.version.equals(version) && this.generation == generation && expiration > now;
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * An identity map of the database entries (people and groups) read while serving a request, so that a given entry is
+ * retrieved from the database at most once per request and all code involved works on the same object. This applies
+ * to bulk requests as a whole, i.e. operations of a bulk request share the map.
+ * <p>Unlike {@link EntityCache}, objects held here belong to the current request only, so callers may modify them.
+ * Entries are evicted when they are written (see {@link EntityCache#invalidate(String)}). Code that modifies an object
+ * but does not manage to persist it must call {@link #clear()}, so that later lookups do not see unsaved changes.</p>
+ * <p>Requests are served by one thread at a time, thus this class is not thread-safe.</p>
+ */
+@RequestScoped
+public class RequestEntityMap {
+
+    private Map<String, Map<Class<?>, Optional<Object>>> entries = new HashMap<>();
+
+    /**
+     * Gets an entry, loading it if it was not read in the current request yet
+     * @param dn DN of the entry
+     * @param cls Class of the entry. Different classes mapping the same DN are held separately
+     * @param loader Retrieves the entry from the database. It may return null if the entry does not exist (this
+     *               outcome is remembered as well)
+     * @param <T> Type of the entry
+     * @return The entry or null
+     */
+    public <T> T get(String dn, Class<T> cls, Function<String, T> loader) {
+
+        Map<Class<?>, Optional<Object>> byClass = entries.computeIfAbsent(dn, key -> new HashMap<>());
+        Optional<Object> value = byClass.get(cls);
+        if (value == null) {
+            value = Optional.ofNullable(loader.apply(dn));
+            byClass.put(cls, value);
+        }
+        return value.map(cls::cast).orElse(null);
+
+    }
+
+    /**
+     * Forgets an entry, so that it is retrieved from the database next time it is needed
+     * @param dn DN of the entry
+     */
+    public void evict(String dn) {
+        entries.remove(dn);
+    }
+
+    /**
+     * Forgets all entries read so far
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.gluu.oxtrust.service.scim2.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.gluu.oxtrust.model.scim2.SearchRequest;
+import org.gluu.oxtrust.service.external.ExternalScimService;
+import org.slf4j.Logger;
+
+/**
+ * Holds the serialized responses of recent searches so that identical searches issued within a short time (e.g. the
+ * same page requested again by an admin UI, or repeated counts of a sync agent) do not hit the database. Responses are
+ * keyed by resource type plus the normalized filter, sorting, page window and projection of the search. Since the key
+ * is computed after {@link org.gluu.oxtrust.service.scim2.ExternalConstraintsService#applySearchCheck} takes place, it
+ * also accounts for the search constraints of the caller.
+ * <p>Invalidation is coarse: any write to a resource type discards all responses of the type. Invalidations are not
+ * propagated to other nodes, so a short time to live should be used in clustered deployments. Responses are not
+ * cached when SCIM custom scripts are enabled, since post-search scripts may alter or filter the results.</p>
+ * <p>The cache is disabled by default. It is governed by the following system properties:</p>
+ * <ul>
+ *     <li>{@code scim.searchCache.ttl}: Time in milliseconds a response remains valid. A value of 0 (default) disables
+ *     the cache</li>
+ *     <li>{@code scim.searchCache.maxSize}: Maximum number of responses held (default 1000)</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class SearchResultCache {
+
+    private static final String PROPERTY_PREFIX = "scim.searchCache.";
+
+    @Inject
+    private Logger log;
+
+    @Inject
+    private ExternalScimService externalScimService;
+
+    private long ttl;
+
+    private int maxSize;
+
+    private Map<String, CachedResponse> responses;
+
+    //Incremented upon every invalidation of a resource type
+    private ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private AtomicLong hits = new AtomicLong();
+
+    private AtomicLong misses = new AtomicLong();
+
+    @PostConstruct
+    private void init() {
+
+        ttl = getLongProperty("ttl").orElse(0L);
+        maxSize = getLongProperty("maxSize").orElse(1000L).intValue();
+
+        responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        if (isEnabled()) {
+            log.info("Search result cache enabled with {} ms TTL and {} responses max", ttl, maxSize);
+        }
+
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (isEnabled()) {
+            log.info("Search result cache statistics: {} hits, {} misses", hits.get(), misses.get());
+        }
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0 && maxSize > 0;
+    }
+
+    /**
+     * Gets the response of a search, running (and caching) the search if the response is not present or is stale
+     * @param resourceType Type of resource searched, e.g. "User"
+     * @param searchRequest The search, after search constraints were applied
+     * @param search Runs the search and serializes its results
+     * @param qualifiers Other values the response depends on, if any
+     * @return The serialized response
+     * @throws Exception If the search failed
+     */
+    public String get(String resourceType, SearchRequest searchRequest, Callable<String> search,
+                      Object... qualifiers) throws Exception {
+
+        if (!isEnabled() || externalScimService.isEnabled()) {
+            return search.call();
+        }
+
+        StringBuilder sb = new StringBuilder(resourceType)
+                .append('|').append(normalizeFilter(searchRequest.getFilter()))
+                .append('|').append(searchRequest.getSortBy())
+                .append('|').append(searchRequest.getSortOrder())
+                .append('|').append(searchRequest.getStartIndex())
+                .append('|').append(searchRequest.getCount())
+                .append('|').append(searchRequest.getAttributesStr())
+                .append('|').append(searchRequest.getExcludedAttributesStr());
+        for (Object qualifier : qualifiers) {
+            sb.append('|').append(qualifier);
+        }
+        String key = sb.toString();
+
+        long now = System.currentTimeMillis();
+        long generation = getGeneration(resourceType).get();
+        CachedResponse cached;
+        synchronized (responses) {
+            cached = responses.get(key);
+        }
+        if (cached != null && cached.expiration > now && cached.generation == generation) {
+            hits.incrementAndGet();
+            return cached.json;
+        }
+
+        misses.incrementAndGet();
+        String json = search.call();
+
+        synchronized (responses) {
+            //Do not cache if the resource type was written while searching
+            if (generation == getGeneration(resourceType).get()) {
+                responses.put(key, new CachedResponse(json, now + ttl, generation));
+            }
+        }
+        return json;
+
+    }
+
+    /**
+     * Discards the responses of all searches on the given resource types. Must be called whenever a resource of
+     * these types is created, modified or removed
+     * @param resourceTypes Types of resource, e.g. "User"
+     */
+    public void invalidate(String... resourceTypes) {
+
+        if (isEnabled()) {
+            for (String resourceType : resourceTypes) {
+                getGeneration(resourceType).incrementAndGet();
+            }
+        }
+
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private AtomicLong getGeneration(String resourceType) {
+        return generations.computeIfAbsent(resourceType, type -> new AtomicLong());
+    }
+
+    /**
+     * Collapses whitespace outside of string literals and lower-cases the remainder of the filter (attribute names,
+     * operators and keywords are case-insensitive in SCIM) so that equivalent filters map to the same key
+     */
+    private String normalizeFilter(String filter) {
+
+        if (filter == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        boolean escaped = false;
+        for (char c : filter.trim().toCharArray()) {
+            if (quoted) {
+                sb.append(c);
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    quoted = false;
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                    sb.append(' ');
+                }
+            } else {
+                quoted = c == '"';
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+
+    }
+
+    private Optional<Long> getLongProperty(String name) {
+
+        return Optional.ofNullable(System.getProperty(PROPERTY_PREFIX + name)).map(prop -> {
+            try {
+                return Long.valueOf(prop);
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid value of {}{}: {}", PROPERTY_PREFIX, name, prop);
+                return null;
+            }
+        });
+
+    }
+
+    private static class CachedResponse {
+
+        private String json;
+        private long expiration;
+        private long generation;
+
+        private CachedResponse(String json, long expiration, long generation) {
+            this.json = json;
+            this.expiration = expiration;
+            this.generation = generation;
+        }
+
+    }
+
+}
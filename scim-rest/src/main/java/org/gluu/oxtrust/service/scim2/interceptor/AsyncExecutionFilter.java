@@ -0,0 +1,63 @@
+/*
+ * oxTrust is available under the MIT License (2008). See http://opensource.org/licenses/MIT for full text.
+ *
+ * Copyright (c) 2017, Gluu
+ */
+package org.gluu.oxtrust.service.scim2.interceptor;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.ext.Provider;
+
+import org.gluu.oxtrust.service.scim2.AsyncExecutionService;
+import org.jboss.resteasy.core.ResteasyContext;
+import org.jboss.resteasy.core.interception.jaxrs.SuspendableContainerRequestContext;
+import org.jboss.resteasy.spi.HttpRequest;
+
+/**
+ * Suspends requests to {@link AsyncExecution} web methods when asynchronous execution is enabled. The rest of the
+ * filter chain, the web method, and the writing of the response take place in the thread of
+ * {@link AsyncExecutionService} that resumes the request. RESTEasy restores the request data in that thread, so the
+ * web methods need not be aware of where they run
+ */
+@ApplicationScoped
+@Provider
+@AsyncExecution
+@Priority(Priorities.USER)
+public class AsyncExecutionFilter implements ContainerRequestFilter {
+
+    @Inject
+    private AsyncExecutionService asyncExecutionService;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+
+        if (asyncExecutionService.isEnabled()) {
+            SuspendableContainerRequestContext context = (SuspendableContainerRequestContext) requestContext;
+            context.suspend();
+            AsyncResponse asyncResponse = ResteasyContext.getContextData(HttpRequest.class).getAsyncContext()
+                    .getAsyncResponse();
+            asyncExecutionService.submit(getEndpoint(requestContext), asyncResponse, context::resume, context::abortWith);
+        }
+
+    }
+
+    /**
+     * Name of the endpoint a request is directed to, e.g. "Users", as taken from the path of the resource class matched
+     */
+    private String getEndpoint(ContainerRequestContext requestContext) {
+        //The last element corresponds to the resource class
+        List<String> matched = requestContext.getUriInfo().getMatchedURIs();
+        String path = matched.get(matched.size() - 1);
+        return path.substring(path.lastIndexOf("/") + 1);
+    }
+
+}
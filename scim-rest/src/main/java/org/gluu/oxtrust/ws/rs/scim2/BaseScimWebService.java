@@ -3,10 +3,13 @@ package org.gluu.oxtrust.ws.rs.scim2;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 import static org.gluu.oxtrust.model.scim2.Constants.PATCH_REQUEST_SCHEMA_ID;
 import static org.gluu.oxtrust.model.scim2.Constants.SEARCH_REQUEST_SCHEMA_ID;
+import static org.gluu.oxtrust.model.scim2.Constants.TOTAL_RESULTS_MODE_PARAM;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
@@ -43,6 +46,9 @@ import org.gluu.oxtrust.service.IPersonService;
 import org.gluu.oxtrust.service.antlr.scimFilter.util.FilterUtil;
 import org.gluu.oxtrust.service.scim2.ExtensionService;
 import org.gluu.oxtrust.service.scim2.ExternalConstraintsService;
+import org.gluu.oxtrust.service.scim2.MetadataDocumentCache;
+import org.gluu.oxtrust.service.scim2.ResourceVersionUtil;
+import org.gluu.oxtrust.service.scim2.TotalResultsService;
 import org.gluu.oxtrust.service.scim2.UserPersistenceHelper;
 import org.gluu.oxtrust.service.scim2.serialization.ListResponseJsonSerializer;
 import org.gluu.oxtrust.service.scim2.serialization.ScimResourceSerializer;
@@ -79,6 +85,9 @@ public class BaseScimWebService {
     @Inject
     ExternalConstraintsService externalConstraintsService;
 
+    @Inject
+    MetadataDocumentCache documentCache;
+
     @Context
     HttpHeaders httpHeaders;
 
@@ -138,6 +147,64 @@ public class BaseScimWebService {
 
     }
 
+    /**
+     * Evaluates the If-None-Match header of a retrieval request against the current version of a resource
+     * @param version Current version of the resource
+     * @return A 304 response if the client already holds the current version, null otherwise
+     */
+    Response checkNotModified(String version) {
+
+        String header = getValueFromHeaders(httpHeaders, HttpHeaders.IF_NONE_MATCH);
+        if (header != null && ResourceVersionUtil.matches(header, version)) {
+            log.debug("Resource has not been modified (version {})", version);
+            return Response.notModified().header(HttpHeaders.ETAG, version).build();
+        }
+        return null;
+
+    }
+
+    /**
+     * Evaluates the If-Match header of a modification request against the current version of a resource. This prevents
+     * lost updates: clients send the version they based their modification on
+     * @param version Current version of the resource
+     * @return A 412 response if the resource was modified in the meantime, null otherwise
+     */
+    Response checkPrecondition(String version) {
+
+        String header = getValueFromHeaders(httpHeaders, HttpHeaders.IF_MATCH);
+        if (header != null && !ResourceVersionUtil.matches(header, version)) {
+            log.info("Version supplied in If-Match header ({}) is not current ({})", header, version);
+            return getErrorResponse(Response.Status.PRECONDITION_FAILED,
+                    "Resource has been modified since version " + header);
+        }
+        return null;
+
+    }
+
+    /**
+     * Builds a response for a discovery document (schemas, resource types, etc.) using its cached rendition
+     * @param key Identifier of the document in the cache
+     * @param location Value for the Location header (may be null)
+     * @param renderer Builds and serializes the document in case it is not cached or is stale
+     * @return A 200 response carrying the document and its ETag, or 304 if the client already holds it
+     * @throws Exception If rendering failed
+     */
+    Response serveDocument(String key, String location, Callable<String> renderer) throws Exception {
+
+        MetadataDocumentCache.Document document = documentCache.getDocument(key, renderer);
+        Response response = checkNotModified(document.getEtag());
+
+        if (response == null) {
+            Response.ResponseBuilder builder = Response.ok(document.getBytes()).header(HttpHeaders.ETAG, document.getEtag());
+            if (location != null) {
+                builder.location(new URI(location));
+            }
+            response = builder.build();
+        }
+        return response;
+
+    }
+
     int getMaxCount() {
         return scimProperties.getMaxCount();
     }
@@ -146,6 +213,15 @@ public class BaseScimWebService {
         List<String> values=headers.getRequestHeaders().get(name);
         return (values==null || values.size()==0) ? null : values.get(0);
     }
+
+    /**
+     * Returns the mode for computing totalResults requested in the current search (see {@link TotalResultsService})
+     * @return Value of the query param or header of the same name, null if not supplied
+     */
+    String getTotalResultsMode() {
+        String mode = uriInfo.getQueryParameters().getFirst(TOTAL_RESULTS_MODE_PARAM);
+        return mode == null ? httpHeaders.getHeaderString(TOTAL_RESULTS_MODE_PARAM) : mode;
+    }
         
     protected void init(Class<? extends BaseScimWebService> cls) {
     	
@@ -47,6 +47,8 @@ import org.gluu.oxtrust.model.scim2.group.GroupResource;
 import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
 import org.gluu.oxtrust.model.scim2.user.UserResource;
 import org.gluu.oxtrust.service.filter.ProtectedApi;
+import org.gluu.oxtrust.service.scim2.cache.RequestEntityMap;
+import org.gluu.oxtrust.service.scim2.interceptor.AsyncExecution;
 import org.gluu.util.Pair;
 
 /**
@@ -54,6 +56,7 @@ import org.gluu.util.Pair;
  */
 @Named("scim2BulkEndpoint")
 @Path("/scim/v2/Bulk")
+@AsyncExecution
 public class BulkWebService extends BaseScimWebService {
 
     enum Verb {POST, PUT, PATCH, DELETE}    //HTTP methods involved in bulk requests
@@ -81,6 +84,9 @@ public class BulkWebService extends BaseScimWebService {
     @Inject
     private Fido2DeviceWebService fido2DeviceWS;
 
+    @Inject
+    private RequestEntityMap requestEntityMap;
+
     @javax.ws.rs.POST
     @Consumes({MEDIA_TYPE_SCIM_JSON, MediaType.APPLICATION_JSON})
     @Produces({MEDIA_TYPE_SCIM_JSON + UTF8_CHARSET_FRAGMENT, MediaType.APPLICATION_JSON + UTF8_CHARSET_FRAGMENT})
@@ -133,6 +139,8 @@ public class BulkWebService extends BaseScimWebService {
                     else {
                         operationResponse.setResponse(subResponse.getEntity());
                         errors+= familyOf(status).equals(CLIENT_ERROR) || familyOf(status).equals(SERVER_ERROR) ? 1 : 0;
+                        //A failed operation may leave modified but unsaved entries behind
+                        requestEntityMap.clear();
                     }
 
                     subResponse.close();
@@ -145,6 +153,7 @@ public class BulkWebService extends BaseScimWebService {
                     operationResponse.setStatus(Integer.toString(BAD_REQUEST.getStatusCode()));
                     operationResponse.setResponse(subResponse.getEntity());
                     errors++;
+                    requestEntityMap.clear();
                 }
 
                 operationResponse.setBulkId(bulkId);
@@ -13,6 +13,9 @@ import static org.gluu.oxtrust.model.scim2.Constants.UTF8_CHARSET_FRAGMENT;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -32,6 +35,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -44,12 +48,17 @@ import org.gluu.oxtrust.model.scim2.SearchRequest;
 import org.gluu.oxtrust.model.scim2.group.GroupResource;
 import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
 import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
+import org.gluu.oxtrust.model.scim2.user.UserResource;
 import org.gluu.oxtrust.model.scim2.util.DateUtil;
 import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
 import org.gluu.oxtrust.service.IGroupService;
 import org.gluu.oxtrust.service.filter.ProtectedApi;
+import org.gluu.oxtrust.service.scim2.RejectedSearchException;
 import org.gluu.oxtrust.service.scim2.Scim2GroupService;
 import org.gluu.oxtrust.service.scim2.Scim2PatchService;
+import org.gluu.oxtrust.service.scim2.cache.RenderedResourceCache;
+import org.gluu.oxtrust.service.scim2.cache.SearchResultCache;
+import org.gluu.oxtrust.service.scim2.interceptor.AsyncExecution;
 import org.gluu.oxtrust.service.scim2.interceptor.RefAdjusted;
 import org.gluu.persist.exception.operation.DuplicateEntryException;
 import org.gluu.persist.model.PagedResult;
@@ -61,6 +70,7 @@ import org.gluu.persist.model.SortOrder;
  */
 @Named("scim2GroupEndpoint")
 @Path("/scim/v2/Groups")
+@AsyncExecution
 public class GroupWebService extends BaseScimWebService implements IGroupWebService {
 
     @Inject
@@ -72,6 +82,12 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
     @Inject
     private IGroupService groupService;
 
+    @Inject
+    private RenderedResourceCache renderedResourceCache;
+
+    @Inject
+    private SearchResultCache searchResultCache;
+
     @Inject
     private Scim2PatchService scim2PatchService;
     
@@ -109,6 +125,29 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
 
     }
 
+    private void invalidateSearches() {
+        //User searches display the groups users belong to, so they are discarded too
+        searchResultCache.invalidate(groupResourceType, ScimResourceUtil.getType(UserResource.class));
+    }
+
+    private void invalidateRenderings(String id, boolean usersAffected) {
+        renderedResourceCache.invalidate(groupResourceType, id);
+        if (usersAffected) {
+            //Users display the names of the groups they belong to
+            renderedResourceCache.invalidateAll(ScimResourceUtil.getType(UserResource.class));
+        }
+    }
+
+    //Data of a group that is part of the representations of its members
+    private List<Object> getMembershipData(GluuGroup gluuGroup) {
+        return Arrays.asList(gluuGroup.getDisplayName(),
+                gluuGroup.getMembers() == null ? Collections.emptySet() : new HashSet<>(gluuGroup.getMembers()));
+    }
+
+    private boolean hasMembers(GluuGroup gluuGroup) {
+        return gluuGroup.getMembers() != null && !gluuGroup.getMembers().isEmpty();
+    }
+
     private Response doSearchGroups(String filter, Integer startIndex, Integer count,
             String sortBy, String sortOrder, String attrsList, String excludedAttrsList,
             String method, boolean fillMembersDisplay) {
@@ -124,15 +163,22 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
                     httpHeaders, uriInfo, method, groupResourceType);
             if (response != null) return response;
 
-            PagedResult<BaseScimResource> resources = scim2GroupService.searchGroups(
-                    searchReq.getFilter(), translateSortByAttribute(GroupResource.class, searchReq.getSortBy()), 
-                    SortOrder.getByValue(searchReq.getSortOrder()), searchReq.getStartIndex(),
-                    searchReq.getCount(), endpointUrl, usersUrl, getMaxCount(), fillMembersDisplay);
-
-            String json = getListResponseSerialized(resources.getTotalEntriesCount(), 
-                    searchReq.getStartIndex(), resources.getEntries(), searchReq.getAttributesStr(), 
-                    searchReq.getExcludedAttributesStr(), searchReq.getCount() == 0);
+            String totalResultsMode = getTotalResultsMode();
+            String json = searchResultCache.get(groupResourceType, searchReq, () -> {
+                PagedResult<BaseScimResource> resources = scim2GroupService.searchGroups(
+                        searchReq.getFilter(), translateSortByAttribute(GroupResource.class, searchReq.getSortBy()),
+                        SortOrder.getByValue(searchReq.getSortOrder()), searchReq.getStartIndex(),
+                        searchReq.getCount(), endpointUrl, usersUrl, getMaxCount(), fillMembersDisplay,
+                        totalResultsMode);
+
+                return getListResponseSerialized(resources.getTotalEntriesCount(),
+                        searchReq.getStartIndex(), resources.getEntries(), searchReq.getAttributesStr(),
+                        searchReq.getExcludedAttributesStr(), searchReq.getCount() == 0);
+            }, fillMembersDisplay, totalResultsMode);
             response = Response.ok(json).location(new URI(endpointUrl)).build();
+        } catch (RejectedSearchException e) {
+            log.error(e.getMessage());
+            response = getErrorResponse(Response.Status.BAD_REQUEST, e.getScimType(), e.getMessage());
         } catch (SCIMException e){
             log.error(e.getMessage(), e);
             response = getErrorResponse(Response.Status.BAD_REQUEST, ErrorScimType.INVALID_FILTER,
@@ -177,8 +223,13 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
             if (response != null) return response;
 
             scim2GroupService.createGroup(gluuGroup, group, !displayExcluded, endpointUrl, usersUrl);           
+            if (hasMembers(gluuGroup)) {
+                renderedResourceCache.invalidateAll(ScimResourceUtil.getType(UserResource.class));
+            }
+            invalidateSearches();
             String json = resourceSerializer.serialize(group, attrsList, excludedAttrsList);
-            response = Response.created(new URI(group.getMeta().getLocation())).entity(json).build();
+            response = Response.created(new URI(group.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, group.getMeta().getVersion()).build();
         } catch (DuplicateEntryException e) {
             log.error(e.getMessage());
             response = getErrorResponse(Response.Status.CONFLICT, ErrorScimType.UNIQUENESS, e.getMessage());
@@ -208,19 +259,28 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
         try {
             log.debug("Executing web service method. getGroupById");
 
-            GluuGroup gluuGroup = groupService.getGroupByInum(id);
+            GluuGroup gluuGroup = userPersistenceHelper.getCachedGroupByInum(id);
             if (gluuGroup == null) return notFoundResponse(id, groupResourceType);
             
             response = externalConstraintsService.applyEntityCheck(gluuGroup, null,
                     httpHeaders, uriInfo, HttpMethod.GET, groupResourceType);
             if (response != null) return response;
 
-            boolean displayExcluded = isDisplayExcluded(false, attrsList, excludedAttrsList);
-            GroupResource group = scim2GroupService.buildGroupResource(gluuGroup,
-                    !displayExcluded, endpointUrl, usersUrl);
+            String version = scim2GroupService.getVersion(gluuGroup);
+            response = checkNotModified(version);
+            if (response != null) return response;
 
-            String json = resourceSerializer.serialize(group, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(group.getMeta().getLocation())).entity(json).build();
+            RenderedResourceCache.Representation representation = renderedResourceCache.get(groupResourceType, id,
+                    version, attrsList, excludedAttrsList, () -> {
+                        boolean displayExcluded = isDisplayExcluded(false, attrsList, excludedAttrsList);
+                        GroupResource group = scim2GroupService.buildGroupResource(gluuGroup,
+                                !displayExcluded, endpointUrl, usersUrl);
+
+                        String json = resourceSerializer.serialize(group, attrsList, excludedAttrsList);
+                        return new RenderedResourceCache.Representation(json, group.getMeta().getLocation());
+                    });
+            response = Response.ok(new URI(representation.getLocation())).entity(representation.getEntity())
+                    .header(HttpHeaders.ETAG, version).build();
         } catch (Exception e) {
             log.error("Failure at getGroupById method", e);
             response = getErrorResponse(Response.Status.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
@@ -259,12 +319,15 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
             if (group.getId() != null && !group.getId().equals(id))
                 throw new SCIMException("Parameter id does not match with id attribute of Group");
 
-            GluuGroup gluuGroup = groupService.getGroupByInum(id);
+            GluuGroup gluuGroup = userPersistenceHelper.getGroupByInum(id);
             if (gluuGroup == null) return notFoundResponse(id, groupResourceType);
 
             response = externalConstraintsService.applyEntityCheck(gluuGroup, group,
                     httpHeaders, uriInfo, HttpMethod.PUT, groupResourceType);
             if (response != null) return response;
+
+            response = checkPrecondition(scim2GroupService.getVersion(gluuGroup));
+            if (response != null) return response;
             
             executeValidation(group, true);
             if (StringUtils.isNotEmpty(group.getDisplayName())) {
@@ -273,11 +336,15 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
 
             boolean skipValidation = isMembersValidationSkipped();
             boolean displayExcluded = isDisplayExcluded(skipValidation, attrsList, excludedAttrsList);
+            List<Object> membershipData = getMembershipData(gluuGroup);
             GroupResource updatedResource = scim2GroupService.updateGroup(gluuGroup,
                     group, skipValidation, !displayExcluded, endpointUrl, usersUrl);
+            invalidateRenderings(id, !membershipData.equals(getMembershipData(gluuGroup)));
+            invalidateSearches();
 
             String json = resourceSerializer.serialize(updatedResource, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(updatedResource.getMeta().getLocation())).entity(json).build();
+            response = Response.ok(new URI(updatedResource.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, updatedResource.getMeta().getVersion()).build();
         } catch (DuplicateEntryException e) {
             log.error(e.getMessage());
             response = getErrorResponse(Response.Status.CONFLICT, ErrorScimType.UNIQUENESS, e.getMessage());
@@ -306,14 +373,20 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
         try {
             log.debug("Executing web service method. deleteGroup");
 
-            GluuGroup gluuGroup = groupService.getGroupByInum(id);
+            GluuGroup gluuGroup = userPersistenceHelper.getGroupByInum(id);
             if (gluuGroup == null) return notFoundResponse(id, groupResourceType);
 
             response = externalConstraintsService.applyEntityCheck(gluuGroup, null,
                     httpHeaders, uriInfo, HttpMethod.DELETE, groupResourceType);
             if (response != null) return response;
+
+            response = checkPrecondition(scim2GroupService.getVersion(gluuGroup));
+            if (response != null) return response;
             
+            boolean hadMembers = hasMembers(gluuGroup);
             scim2GroupService.deleteGroup(gluuGroup);
+            invalidateRenderings(id, hadMembers);
+            invalidateSearches();
             response = Response.noContent().build();
         } catch (Exception e){
             log.error("Failure at deleteGroup method", e);
@@ -392,13 +465,16 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
             response = inspectPatchRequest(request, GroupResource.class);
             if (response != null) return response;
             
-            GluuGroup gluuGroup = groupService.getGroupByInum(id);			
+            GluuGroup gluuGroup = userPersistenceHelper.getGroupByInum(id);			
             if (gluuGroup == null) return notFoundResponse(id, groupResourceType);
 
             response = externalConstraintsService.applyEntityCheck(gluuGroup, request,
                     httpHeaders, uriInfo, HttpMethod.PATCH, groupResourceType);
             if (response != null) return response;
 
+            response = checkPrecondition(scim2GroupService.getVersion(gluuGroup));
+            if (response != null) return response;
+
             boolean skipValidation = isMembersValidationSkipped();
             boolean displayExcluded = isDisplayExcluded(skipValidation, attrsList, excludedAttrsList);
 
@@ -427,11 +503,15 @@ public class GroupWebService extends BaseScimWebService implements IGroupWebServ
             }
 
             //Replaces the information found in gluuGroup with the contents of group
+            List<Object> membershipData = getMembershipData(gluuGroup);
             scim2GroupService.replaceGroupInfo(gluuGroup, group, skipValidation, !displayExcluded,
                     endpointUrl, usersUrl);
+            invalidateRenderings(id, !membershipData.equals(getMembershipData(gluuGroup)));
+            invalidateSearches();
 
             String json = resourceSerializer.serialize(group, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(group.getMeta().getLocation())).entity(json).build();
+            response = Response.ok(new URI(group.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, group.getMeta().getVersion()).build();
         } catch (DuplicateEntryException e) {
             log.error(e.getMessage());
             response = getErrorResponse(Response.Status.CONFLICT, ErrorScimType.UNIQUENESS, e.getMessage());
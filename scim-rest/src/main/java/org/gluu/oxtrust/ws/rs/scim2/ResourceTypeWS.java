@@ -3,7 +3,6 @@ package org.gluu.oxtrust.ws.rs.scim2;
 import static org.gluu.oxtrust.model.scim2.Constants.MEDIA_TYPE_SCIM_JSON;
 import static org.gluu.oxtrust.model.scim2.Constants.UTF8_CHARSET_FRAGMENT;
 
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -64,14 +63,15 @@ public class ResourceTypeWS extends BaseScimWebService {
     public Response serve() {
 
         try {
-            ListResponse listResponse = new ListResponse(1, 4, 4);
-            listResponse.addResource(getUserResourceType());
-            listResponse.addResource(getGroupResourceType());
-            listResponse.addResource(getFidoDeviceResourceType());
-            listResponse.addResource(getFido2DeviceResourceType());
-
-            String json = resourceSerializer.getListResponseMapper().writeValueAsString(listResponse);
-            return Response.ok(json).location(new URI(endpointUrl)).build();
+            return serveDocument("ResourceTypes", endpointUrl, () -> {
+                ListResponse listResponse = new ListResponse(1, 4, 4);
+                listResponse.addResource(getUserResourceType());
+                listResponse.addResource(getGroupResourceType());
+                listResponse.addResource(getFidoDeviceResourceType());
+                listResponse.addResource(getFido2DeviceResourceType());
+
+                return resourceSerializer.getListResponseMapper().writeValueAsString(listResponse);
+            });
         }
         catch (Exception e){
             log.error(e.getMessage(), e);
@@ -88,8 +88,8 @@ public class ResourceTypeWS extends BaseScimWebService {
     public Response userResourceType() {
 
         try {
-            URI uri=new URI(getResourceLocation(USER_SUFFIX));
-            return Response.ok(resourceSerializer.serialize(getUserResourceType())).location(uri).build();
+            return serveDocument("ResourceTypes/" + USER_SUFFIX, getResourceLocation(USER_SUFFIX),
+                    () -> resourceSerializer.serialize(getUserResourceType()));
         }
         catch (Exception e){
             log.error("Failure at userResourceType method", e);
@@ -106,8 +106,8 @@ public class ResourceTypeWS extends BaseScimWebService {
     public Response groupResourceType() {
 
         try {
-            URI uri=new URI(getResourceLocation(GROUP_SUFFIX));
-            return Response.ok(resourceSerializer.serialize(getGroupResourceType())).location(uri).build();
+            return serveDocument("ResourceTypes/" + GROUP_SUFFIX, getResourceLocation(GROUP_SUFFIX),
+                    () -> resourceSerializer.serialize(getGroupResourceType()));
         }
         catch (Exception e){
             log.error("Failure at groupResourceType method", e);
@@ -123,8 +123,8 @@ public class ResourceTypeWS extends BaseScimWebService {
     @RejectFilterParam
     public Response fidoResourceType() {
         try {
-            URI uri=new URI(getResourceLocation(FIDO_SUFFIX));
-            return Response.ok(resourceSerializer.serialize(getFidoDeviceResourceType())).location(uri).build();
+            return serveDocument("ResourceTypes/" + FIDO_SUFFIX, getResourceLocation(FIDO_SUFFIX),
+                    () -> resourceSerializer.serialize(getFidoDeviceResourceType()));
         }
         catch (Exception e){
             log.error("Failure at fidoResourceType method", e);
@@ -140,8 +140,8 @@ public class ResourceTypeWS extends BaseScimWebService {
     @RejectFilterParam
     public Response fido2ResourceType() {
         try {
-            URI uri=new URI(getResourceLocation(FIDO2_SUFFIX));
-            return Response.ok(resourceSerializer.serialize(getFido2DeviceResourceType())).location(uri).build();
+            return serveDocument("ResourceTypes/" + FIDO2_SUFFIX, getResourceLocation(FIDO2_SUFFIX),
+                    () -> resourceSerializer.serialize(getFido2DeviceResourceType()));
         }
         catch (Exception e){
             log.error("Failure at fido2ResourceType method", e);
@@ -3,8 +3,6 @@ package org.gluu.oxtrust.ws.rs.scim2;
 import static org.gluu.oxtrust.model.scim2.Constants.MEDIA_TYPE_SCIM_JSON;
 import static org.gluu.oxtrust.model.scim2.Constants.UTF8_CHARSET_FRAGMENT;
 
-import java.lang.reflect.Field;
-import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -13,7 +11,6 @@ import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Named;
-import javax.lang.model.type.NullType;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -26,7 +23,6 @@ import org.gluu.oxtrust.model.scim2.AttributeDefinition;
 import org.gluu.oxtrust.model.scim2.BaseScimResource;
 import org.gluu.oxtrust.model.scim2.ListResponse;
 import org.gluu.oxtrust.model.scim2.Meta;
-import org.gluu.oxtrust.model.scim2.annotations.Attribute;
 import org.gluu.oxtrust.model.scim2.annotations.Schema;
 import org.gluu.oxtrust.model.scim2.extensions.Extension;
 import org.gluu.oxtrust.model.scim2.extensions.ExtensionField;
@@ -34,12 +30,11 @@ import org.gluu.oxtrust.model.scim2.provider.config.ServiceProviderConfig;
 import org.gluu.oxtrust.model.scim2.provider.resourcetypes.ResourceType;
 import org.gluu.oxtrust.model.scim2.provider.schema.SchemaAttribute;
 import org.gluu.oxtrust.model.scim2.provider.schema.SchemaResource;
+import org.gluu.oxtrust.model.scim2.util.AttributeMetadata;
 import org.gluu.oxtrust.model.scim2.util.IntrospectUtil;
 import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
 import org.gluu.oxtrust.service.scim2.interceptor.RejectFilterParam;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-
 /**
  * Web service for the /Schemas endpoint.
  */
@@ -57,14 +52,15 @@ public class SchemaWebService extends BaseScimWebService {
 
         Response response;
         try {
-            int total = resourceSchemas.size();
-            ListResponse listResponse = new ListResponse(1, total, total);
+            response = serveDocument("Schemas", endpointUrl, () -> {
+                int total = resourceSchemas.size();
+                ListResponse listResponse = new ListResponse(1, total, total);
 
-            for (String urn : resourceSchemas.keySet()){
-                listResponse.addResource(getSchemaInstance(resourceSchemas.get(urn), urn));
-            }
-            String json=resourceSerializer.getListResponseMapper().writeValueAsString(listResponse);
-            response=Response.ok(json).location(new URI(endpointUrl)).build();
+                for (String urn : resourceSchemas.keySet()){
+                    listResponse.addResource(getSchemaInstance(resourceSchemas.get(urn), urn));
+                }
+                return resourceSerializer.getListResponseMapper().writeValueAsString(listResponse);
+            });
         }
         catch (Exception e){
             log.error("Failure at serve method", e);
@@ -89,9 +85,8 @@ public class SchemaWebService extends BaseScimWebService {
                 response=Response.status(Response.Status.NOT_FOUND).build();
             }
             else {
-                String json=resourceSerializer.serialize(getSchemaInstance(cls, urn));
-                URI location = new URI(endpointUrl + "/" + urn);
-                response = Response.ok(json).location(location).build();
+                response = serveDocument("Schemas/" + urn, endpointUrl + "/" + urn,
+                        () -> resourceSerializer.serialize(getSchemaInstance(cls, urn)));
             }
         }
         catch (Exception e){
@@ -139,41 +134,37 @@ public class SchemaWebService extends BaseScimWebService {
             resource.setMeta(meta);
 
             List<SchemaAttribute> attribs=new ArrayList<>();
+            Map<String, AttributeMetadata> metadata=IntrospectUtil.attributeMetadata.get(clazz);
             //paths are, happily alphabetically sorted :)
             for (String path : IntrospectUtil.allAttrs.get(clazz)){
                 SchemaAttribute schAttr=new SchemaAttribute();
-                Field f=IntrospectUtil.findFieldFromPath(clazz, path);
-
-                Attribute attrAnnot=f.getAnnotation(Attribute.class);
-                if (attrAnnot!=null) {
-                    JsonProperty jsonAnnot=f.getAnnotation(JsonProperty.class);
-
-                    schAttr.setName(jsonAnnot==null ? f.getName() : jsonAnnot.value());
-                    schAttr.setType(attrAnnot.type().getName());
-                    schAttr.setMultiValued(!attrAnnot.multiValueClass().equals(NullType.class) || IntrospectUtil.isCollection(f.getType()));
-                    schAttr.setDescription(attrAnnot.description());
-                    schAttr.setRequired(attrAnnot.isRequired());
-
-                    schAttr.setCanonicalValues(attrAnnot.canonicalValues().length==0 ? null : Arrays.asList(attrAnnot.canonicalValues()));
-                    schAttr.setCaseExact(attrAnnot.isCaseExact());
-                    schAttr.setMutability(attrAnnot.mutability().getName());
-                    schAttr.setReturned(attrAnnot.returned().getName());
-                    schAttr.setUniqueness(attrAnnot.uniqueness().getName());
-                    schAttr.setReferenceTypes(attrAnnot.referenceTypes().length==0 ? null : Arrays.asList(attrAnnot.referenceTypes()));
-
-                    if (attrAnnot.type().equals(AttributeDefinition.Type.COMPLEX))
-                        schAttr.setSubAttributes(new ArrayList<>());
-
-                    List<SchemaAttribute> list=attribs;     //root list
-                    String parts[]=path.split("\\.");
-
-                    for (int i=0;i<parts.length-1;i++) {    //skip last part (real attribute name)
-                        int j = list.indexOf(new SchemaAttribute(parts[i]));
-                        list = list.get(j).getSubAttributes();
-                    }
-
-                    list.add(schAttr);
+                AttributeMetadata attr=metadata.get(path);
+
+                schAttr.setName(attr.getName());
+                schAttr.setType(attr.getType().getName());
+                schAttr.setMultiValued(attr.isMultiValued());
+                schAttr.setDescription(attr.getDescription());
+                schAttr.setRequired(attr.isRequired());
+
+                schAttr.setCanonicalValues(attr.getCanonicalValues().isEmpty() ? null : attr.getCanonicalValues());
+                schAttr.setCaseExact(attr.isCaseExact());
+                schAttr.setMutability(attr.getMutability().getName());
+                schAttr.setReturned(attr.getReturned().getName());
+                schAttr.setUniqueness(attr.getUniqueness().getName());
+                schAttr.setReferenceTypes(attr.getReferenceTypes().isEmpty() ? null : attr.getReferenceTypes());
+
+                if (attr.getType().equals(AttributeDefinition.Type.COMPLEX))
+                    schAttr.setSubAttributes(new ArrayList<>());
+
+                List<SchemaAttribute> list=attribs;     //root list
+                String parts[]=path.split("\\.");
+
+                for (int i=0;i<parts.length-1;i++) {    //skip last part (real attribute name)
+                    int j = list.indexOf(new SchemaAttribute(parts[i]));
+                    list = list.get(j).getSubAttributes();
                 }
+
+                list.add(schAttr);
             }
             resource.setAttributes(attribs);
         }
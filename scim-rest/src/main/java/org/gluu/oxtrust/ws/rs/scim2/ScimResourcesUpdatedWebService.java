@@ -184,7 +184,7 @@ public class ScimResourcesUpdatedWebService extends BaseScimWebService {
                     Method getter = IntrospectUtil.getGetter(fieldName, ScimCustomPerson.class);
 
                     if (getter != null) {
-                        Object value = getter.invoke(person);
+                        Object value = IntrospectUtil.getReadAccessor(getter).apply(person);
                         if (value != null) {
                             map.put(attribute, new ArrayList<>(Collections.singletonList(value)));
                         }
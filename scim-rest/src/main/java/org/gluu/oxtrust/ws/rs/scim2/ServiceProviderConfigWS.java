@@ -1,11 +1,15 @@
 package org.gluu.oxtrust.ws.rs.scim2;
 
 import static org.gluu.oxtrust.model.scim2.Constants.MEDIA_TYPE_SCIM_JSON;
+import static org.gluu.oxtrust.model.scim2.Constants.SPC_EXT_SCHEMA_ID;
 import static org.gluu.oxtrust.model.scim2.Constants.UTF8_CHARSET_FRAGMENT;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -14,17 +18,24 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.gluu.config.oxtrust.ScimMode;
 import org.gluu.oxtrust.model.scim2.Meta;
 import org.gluu.oxtrust.model.scim2.provider.config.AuthenticationScheme;
 import org.gluu.oxtrust.model.scim2.provider.config.ServiceProviderConfig;
 import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
+import org.gluu.oxtrust.service.scim2.TotalResultsService;
 import org.gluu.oxtrust.service.scim2.interceptor.RejectFilterParam;
 
 @Named("serviceProviderConfig")
 @Path("/scim/v2/ServiceProviderConfig")
 public class ServiceProviderConfigWS extends BaseScimWebService {
 
+    @Inject
+    private TotalResultsService totalResultsService;
+
     @GET
     @Produces(MEDIA_TYPE_SCIM_JSON + UTF8_CHARSET_FRAGMENT)
     @HeaderParam("Accept") @DefaultValue(MEDIA_TYPE_SCIM_JSON)
@@ -32,21 +43,32 @@ public class ServiceProviderConfigWS extends BaseScimWebService {
     public Response serve(){
 
         try {
-            ServiceProviderConfig serviceProviderConfig = new ServiceProviderConfig();
-            serviceProviderConfig.getFilter().setMaxResults(getMaxCount());
-            serviceProviderConfig.getBulk().setMaxOperations(scimProperties.getBulkMaxOperations());
-            serviceProviderConfig.getBulk().setMaxPayloadSize(scimProperties.getBulkMaxPayloadSize());
+            return serveDocument("ServiceProviderConfig", null, () -> {
+                ServiceProviderConfig serviceProviderConfig = new ServiceProviderConfig();
+                serviceProviderConfig.getFilter().setMaxResults(getMaxCount());
+                serviceProviderConfig.getBulk().setMaxOperations(scimProperties.getBulkMaxOperations());
+                serviceProviderConfig.getBulk().setMaxPayloadSize(scimProperties.getBulkMaxPayloadSize());
+                //Users and Groups endpoints issue (weak) ETags and honor If-Match and If-None-Match headers
+                serviceProviderConfig.getEtag().setSupported(true);
  
-            Meta meta = new Meta();
-            meta.setLocation(endpointUrl);
-            meta.setResourceType(ScimResourceUtil.getType(serviceProviderConfig.getClass()));
-            serviceProviderConfig.setMeta(meta);
+                Meta meta = new Meta();
+                meta.setLocation(endpointUrl);
+                meta.setResourceType(ScimResourceUtil.getType(serviceProviderConfig.getClass()));
+                serviceProviderConfig.setMeta(meta);
+
+                boolean uma = scimProperties.getProtectionMode().equals(ScimMode.UMA);
+                serviceProviderConfig.setAuthenticationSchemes(Arrays.asList(
+                        AuthenticationScheme.createOAuth2(!uma), AuthenticationScheme.createUma(uma)));
 
-            boolean uma = scimProperties.getProtectionMode().equals(ScimMode.UMA);
-            serviceProviderConfig.setAuthenticationSchemes(Arrays.asList(
-                    AuthenticationScheme.createOAuth2(!uma), AuthenticationScheme.createUma(uma)));
+                serviceProviderConfig.getSchemas().add(SPC_EXT_SCHEMA_ID);
 
-            return Response.ok(resourceSerializer.serialize(serviceProviderConfig)).build();
+                //The serializer only outputs extensions registered in ExtensionService, so Gluu's one is appended here
+                ObjectMapper mapper = new ObjectMapper();
+                Map<String, Object> map = mapper.readValue(resourceSerializer.serialize(serviceProviderConfig),
+                        new TypeReference<LinkedHashMap<String, Object>>(){});
+                map.put(SPC_EXT_SCHEMA_ID, totalResultsService.getCapabilities());
+                return mapper.writeValueAsString(map);
+            });
         }
         catch (Exception e){
             log.error(e.getMessage(), e);
@@ -15,6 +15,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -32,6 +33,7 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -42,6 +44,7 @@ import org.gluu.oxtrust.model.exception.SCIMException;
 import org.gluu.oxtrust.model.scim2.BaseScimResource;
 import org.gluu.oxtrust.model.scim2.ErrorScimType;
 import org.gluu.oxtrust.model.scim2.SearchRequest;
+import org.gluu.oxtrust.model.scim2.group.GroupResource;
 import org.gluu.oxtrust.model.scim2.patch.PatchOperation;
 import org.gluu.oxtrust.model.scim2.patch.PatchRequest;
 import org.gluu.oxtrust.model.scim2.user.UserResource;
@@ -49,8 +52,12 @@ import org.gluu.oxtrust.model.scim2.util.DateUtil;
 import org.gluu.oxtrust.model.scim2.util.ScimResourceUtil;
 import org.gluu.oxtrust.service.filter.ProtectedApi;
 import org.gluu.oxtrust.model.scim.ScimCustomPerson;
+import org.gluu.oxtrust.service.scim2.RejectedSearchException;
 import org.gluu.oxtrust.service.scim2.Scim2PatchService;
 import org.gluu.oxtrust.service.scim2.Scim2UserService;
+import org.gluu.oxtrust.service.scim2.cache.RenderedResourceCache;
+import org.gluu.oxtrust.service.scim2.cache.SearchResultCache;
+import org.gluu.oxtrust.service.scim2.interceptor.AsyncExecution;
 import org.gluu.oxtrust.service.scim2.interceptor.RefAdjusted;
 import org.gluu.persist.exception.operation.DuplicateEntryException;
 import org.gluu.persist.model.PagedResult;
@@ -62,6 +69,7 @@ import org.gluu.persist.model.SortOrder;
  */
 @Named
 @Path("/scim/v2/Users")
+@AsyncExecution
 public class UserWebService extends BaseScimWebService implements IUserWebService {
 
     @Inject
@@ -69,9 +77,28 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
 
     @Inject
     private Scim2PatchService scim2PatchService;
+
+    @Inject
+    private RenderedResourceCache renderedResourceCache;
+
+    @Inject
+    private SearchResultCache searchResultCache;
     
     private String userResourceType;
 
+    private void invalidateSearches() {
+        //Group searches may display members' names, so they are discarded too
+        searchResultCache.invalidate(userResourceType, ScimResourceUtil.getType(GroupResource.class));
+    }
+
+    private void invalidateRenderings(String id, boolean groupsAffected) {
+        renderedResourceCache.invalidate(userResourceType, id);
+        if (groupsAffected) {
+            //Groups display the names of their members
+            renderedResourceCache.invalidateAll(ScimResourceUtil.getType(GroupResource.class));
+        }
+    }
+
     private void checkUidExistence(String uid) throws DuplicateEntryException {
         if (personService.getPersonByUid(uid) != null) {
             throw new DuplicateEntryException("Duplicate UID value: " + uid);
@@ -108,15 +135,21 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
                     httpHeaders, uriInfo, method, userResourceType);
             if (response != null) return response;
 
-            PagedResult<BaseScimResource> resources = scim2UserService.searchUsers(
-                    searchReq.getFilter(), translateSortByAttribute(UserResource.class, searchReq.getSortBy()),
-                    SortOrder.getByValue(searchReq.getSortOrder()), searchReq.getStartIndex(), 
-                    searchReq.getCount(), endpointUrl, getMaxCount());
-
-            String json = getListResponseSerialized(resources.getTotalEntriesCount(), 
-                    searchReq.getStartIndex(), resources.getEntries(), searchReq.getAttributesStr(),
-                    searchReq.getExcludedAttributesStr(), searchReq.getCount() == 0);
+            String totalResultsMode = getTotalResultsMode();
+            String json = searchResultCache.get(userResourceType, searchReq, () -> {
+                PagedResult<BaseScimResource> resources = scim2UserService.searchUsers(
+                        searchReq.getFilter(), translateSortByAttribute(UserResource.class, searchReq.getSortBy()),
+                        SortOrder.getByValue(searchReq.getSortOrder()), searchReq.getStartIndex(),
+                        searchReq.getCount(), endpointUrl, getMaxCount(), totalResultsMode);
+
+                return getListResponseSerialized(resources.getTotalEntriesCount(),
+                        searchReq.getStartIndex(), resources.getEntries(), searchReq.getAttributesStr(),
+                        searchReq.getExcludedAttributesStr(), searchReq.getCount() == 0);
+            }, totalResultsMode);
             response = Response.ok(json).location(new URI(endpointUrl)).build();
+        } catch (RejectedSearchException e) {
+            log.error(e.getMessage());
+            response = getErrorResponse(Response.Status.BAD_REQUEST, e.getScimType(), e.getMessage());
         } catch (SCIMException e) {
             log.error(e.getMessage(), e);
             response = getErrorResponse(Response.Status.BAD_REQUEST, ErrorScimType.INVALID_FILTER, 
@@ -158,8 +191,10 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
             if (response != null) return response;
 
             scim2UserService.createUser(person, user, endpointUrl);
+            invalidateSearches();
             String json = resourceSerializer.serialize(user, attrsList, excludedAttrsList);
-            response = Response.created(new URI(user.getMeta().getLocation())).entity(json).build();
+            response = Response.created(new URI(user.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, user.getMeta().getVersion()).build();
         } catch (DuplicateEntryException e) {
             log.error(e.getMessage());
             response = getErrorResponse(Response.Status.CONFLICT, ErrorScimType.UNIQUENESS, e.getMessage());
@@ -189,16 +224,25 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
         try {
             log.debug("Executing web service method. getUserById");
 
-            ScimCustomPerson person = userPersistenceHelper.getPersonByInum(id);
+            ScimCustomPerson person = userPersistenceHelper.getCachedPersonByInum(id);
             if (person == null) return notFoundResponse(id, userResourceType);
 
             response = externalConstraintsService.applyEntityCheck(person, null,
                     httpHeaders, uriInfo, HttpMethod.GET, userResourceType);
             if (response != null) return response;
 
-            UserResource user = scim2UserService.buildUserResource(person, endpointUrl);
-            String json = resourceSerializer.serialize(user, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(user.getMeta().getLocation())).entity(json).build();
+            String version = scim2UserService.getVersion(person);
+            response = checkNotModified(version);
+            if (response != null) return response;
+
+            RenderedResourceCache.Representation representation = renderedResourceCache.get(userResourceType, id,
+                    version, attrsList, excludedAttrsList, () -> {
+                        UserResource user = scim2UserService.buildUserResource(person, endpointUrl);
+                        String json = resourceSerializer.serialize(user, attrsList, excludedAttrsList);
+                        return new RenderedResourceCache.Representation(json, user.getMeta().getLocation());
+                    });
+            response = Response.ok(new URI(representation.getLocation())).entity(representation.getEntity())
+                    .header(HttpHeaders.ETAG, version).build();
         } catch (Exception e) {
             log.error("Failure at getUserById method", e);
             response = getErrorResponse(Response.Status.INTERNAL_SERVER_ERROR, "Unexpected error: " + e.getMessage());
@@ -241,15 +285,22 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
                     httpHeaders, uriInfo, HttpMethod.PUT, userResourceType);
             if (response != null) return response;
 
+            response = checkPrecondition(scim2UserService.getVersion(person));
+            if (response != null) return response;
+
             executeValidation(user, true);
             if (StringUtils.isNotEmpty(user.getUserName())) {
                 checkUidExistence(user.getUserName(), id);
             }
 
             ScimResourceUtil.adjustPrimarySubAttributes(user);
+            String displayName = person.getDisplayName();
             UserResource updatedResource = scim2UserService.updateUser(person, user, endpointUrl);
+            invalidateRenderings(id, !Objects.equals(displayName, updatedResource.getDisplayName()));
+            invalidateSearches();
             String json = resourceSerializer.serialize(updatedResource, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(updatedResource.getMeta().getLocation())).entity(json).build();
+            response = Response.ok(new URI(updatedResource.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, updatedResource.getMeta().getVersion()).build();
 
         } catch (DuplicateEntryException e) {
             log.error(e.getMessage());
@@ -285,8 +336,14 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
             response = externalConstraintsService.applyEntityCheck(person, null,
                     httpHeaders, uriInfo, HttpMethod.DELETE, userResourceType);
             if (response != null) return response;
+
+            response = checkPrecondition(scim2UserService.getVersion(person));
+            if (response != null) return response;
             
+            boolean member = person.getMemberOf() != null && !person.getMemberOf().isEmpty();
             scim2UserService.deleteUser(person);
+            invalidateRenderings(id, member);
+            invalidateSearches();
             response = Response.noContent().build();
         } catch (Exception e) {
             log.error("Failure at deleteUser method", e);
@@ -367,9 +424,13 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
                     httpHeaders, uriInfo, HttpMethod.PATCH, userResourceType);
             if (response != null) return response;
 
+            response = checkPrecondition(scim2UserService.getVersion(person));
+            if (response != null) return response;
+
             UserResource user=new UserResource();
             //Fill user instance with all info from person
             scim2UserService.transferAttributesToUserResource(person, user, endpointUrl);
+            String displayName = user.getDisplayName();
 
             //Apply patches one by one in sequence
             for (PatchOperation po : request.getOperations()) {
@@ -394,9 +455,12 @@ public class UserWebService extends BaseScimWebService implements IUserWebServic
 
             //Replaces the information found in person with the contents of user
             scim2UserService.replacePersonInfo(person, user, endpointUrl);
+            invalidateRenderings(id, !Objects.equals(displayName, user.getDisplayName()));
+            invalidateSearches();
 
             String json = resourceSerializer.serialize(user, attrsList, excludedAttrsList);
-            response = Response.ok(new URI(user.getMeta().getLocation())).entity(json).build();
+            response = Response.ok(new URI(user.getMeta().getLocation())).entity(json)
+                    .header(HttpHeaders.ETAG, user.getMeta().getVersion()).build();
         } catch (InvalidAttributeValueException e) {
             log.error(e.getMessage(), e);
             response = getErrorResponse(Response.Status.BAD_REQUEST, ErrorScimType.MUTABILITY, e.getMessage());